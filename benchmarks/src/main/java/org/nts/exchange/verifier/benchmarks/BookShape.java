@@ -0,0 +1,99 @@
+package org.nts.exchange.verifier.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.orderbook.InMemoryOrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+
+/**
+ *
+ * Builds the order books the benchmarks run against.
+ *
+ * A shape is a number of price levels on a side, each holding the same number
+ * of orders. Levels are one tick apart either side of {@link #MID_PRICE}, so
+ * that the best buy is at {@code MID_PRICE - 1} and the best sell at
+ * {@code MID_PRICE}, and the book never crosses.
+ */
+final class BookShape {
+
+	/**
+	 * The price of the best sell level, inside the range of every book.
+	 */
+	static final int MID_PRICE = 500_000;
+
+	private BookShape() {
+	}
+
+	/**
+	 * Creates an empty book of the given implementation.
+	 *
+	 * @param implementation the simple name of an {@link OrderBook} class
+	 * @return the new book
+	 */
+	static OrderBook newBook(String implementation) {
+		switch (implementation) {
+		case "InMemoryOrderBook":
+			return new InMemoryOrderBook();
+		case "PriceLadderOrderBook":
+			return new PriceLadderOrderBook();
+		default:
+			throw new IllegalArgumentException("Unknown order book " + implementation);
+		}
+	}
+
+	/**
+	 * Returns the price of a level of a side, the best one being level 0.
+	 *
+	 * @param side  the side of the level
+	 * @param level the distance of the level from the best price, in ticks
+	 * @return the price of the level
+	 */
+	static int priceOf(OrderSide side, int level) {
+		return side == OrderSide.BUY ? MID_PRICE - 1 - level : MID_PRICE + level;
+	}
+
+	/**
+	 * Creates the orders of one side of a shape, in priority order.
+	 *
+	 * @param side           the side of the orders
+	 * @param levels         the number of price levels
+	 * @param ordersPerLevel the number of orders on each level
+	 * @param quantity       the quantity of each order
+	 * @param firstId        the numeric id of the first order, the others
+	 *                       following it
+	 * @return the orders
+	 */
+	static List<Order> orders(OrderSide side, int levels, int ordersPerLevel, int quantity, long firstId) {
+		List<Order> orders = new ArrayList<>(levels * ordersPerLevel);
+		long        id     = firstId;
+		for (int level = 0; level < levels; level++) {
+			for (int i = 0; i < ordersPerLevel; i++) {
+				orders.add(new Order(Long.toString(id++), side, priceOf(side, level), quantity));
+			}
+		}
+		return orders;
+	}
+
+	/**
+	 * Adds the orders of a shape to both sides of a book, one at a time as the
+	 * matching engine would, and discards the book's queue of new orders.
+	 *
+	 * @param orderBook      the book to fill
+	 * @param levels         the number of price levels on each side
+	 * @param ordersPerLevel the number of orders on each level
+	 * @param quantity       the quantity of each order
+	 */
+	static void fill(OrderBook orderBook, int levels, int ordersPerLevel, int quantity) {
+		for (Order order : orders(OrderSide.BUY, levels, ordersPerLevel, quantity, 1)) {
+			orderBook.addOrder(order);
+		}
+		for (Order order : orders(OrderSide.SELL, levels, ordersPerLevel, quantity, 1 + levels * ordersPerLevel)) {
+			orderBook.addOrder(order);
+		}
+		orderBook.getNewOrders();
+	}
+}
@@ -0,0 +1,137 @@
+package org.nts.exchange.verifier.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *
+ * Measures {@link PriceTimePriorityMatchingEngine#match(Order, java.util.function.Consumer)}
+ * for an order that rests without trading, one that is filled by a single
+ * resting order, and one that sweeps several levels of the book.
+ *
+ * The engine does not subscribe to its book and stores no trades, so only
+ * matching and the book updates it makes are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingEngineBenchmark {
+
+	/**
+	 * A book of the given shape whose resting orders are too large to ever be
+	 * filled, so that it keeps its shape while orders trade against it.
+	 */
+	@State(Scope.Thread)
+	public static class RestingBook {
+
+		@Param({ "InMemoryOrderBook", "PriceLadderOrderBook" })
+		String                          implementation;
+
+		@Param({ "1", "100", "10000" })
+		int                             levels;
+
+		@Param({ "1", "10" })
+		int                             ordersPerLevel;
+
+		PriceTimePriorityMatchingEngine matchingEngine;
+		Order                           passiveOrder;
+		Order                           aggressiveOrder;
+
+		@Setup
+		public void setUp() {
+			OrderBook orderBook = BookShape.newBook(implementation);
+			BookShape.fill(orderBook, levels, ordersPerLevel, Integer.MAX_VALUE);
+			matchingEngine  = new PriceTimePriorityMatchingEngine(orderBook, new DiscardingTradeStore(), false);
+			passiveOrder    = new Order("passive", OrderSide.BUY, BookShape.priceOf(OrderSide.BUY, 0), 100);
+			aggressiveOrder = new Order("aggressive", OrderSide.BUY, BookShape.priceOf(OrderSide.SELL, 0), 1);
+		}
+	}
+
+	/**
+	 * A book whose best sell levels are swept by a single buy order and are put
+	 * back before every invocation.
+	 */
+	@State(Scope.Thread)
+	public static class SweptBook {
+
+		@Param({ "InMemoryOrderBook", "PriceLadderOrderBook" })
+		String                          implementation;
+
+		@Param({ "1", "10", "100" })
+		int                             sweptLevels;
+
+		@Param({ "1", "10" })
+		int                             ordersPerLevel;
+
+		PriceTimePriorityMatchingEngine matchingEngine;
+		List<Order>                     sweptOrders;
+		Order                           sweepingOrder;
+
+		@Setup(Level.Trial)
+		public void setUpBook() {
+			OrderBook orderBook = BookShape.newBook(implementation);
+			// One level more than is swept, so that the sell side is never emptied
+			BookShape.fill(orderBook, sweptLevels + 1, ordersPerLevel, 100);
+			matchingEngine = new PriceTimePriorityMatchingEngine(orderBook, new DiscardingTradeStore(), false);
+			sweptOrders    = orderBook.getSellOrders().subList(0, sweptLevels * ordersPerLevel);
+			sweepingOrder  = new Order("sweeping", OrderSide.BUY, BookShape.priceOf(OrderSide.SELL, sweptLevels - 1),
+					1);
+		}
+
+		@Setup(Level.Invocation)
+		public void restore() {
+			OrderBook orderBook = matchingEngine.getOrderBook();
+			for (Order order : sweptOrders) {
+				if (order.getQuantity() == 0) {
+					order.init(order.getIdCode(), OrderSide.SELL, order.getPrice(), 100);
+					orderBook.addOrder(order);
+				}
+			}
+			orderBook.getNewOrders();
+			sweepingOrder.init(sweepingOrder.getIdCode(), OrderSide.BUY, sweepingOrder.getPrice(),
+					sweptOrders.size() * 100);
+		}
+	}
+
+	@Benchmark
+	public void passive(RestingBook book, Blackhole blackhole) {
+		Order order = book.passiveOrder;
+		order.init(order.getIdCode(), OrderSide.BUY, order.getPrice(), 100);
+		blackhole.consume(book.matchingEngine.match(order, blackhole::consume));
+		book.matchingEngine.getOrderBook().removeOrder(order.getIdCode());
+		blackhole.consume(book.matchingEngine.getOrderBook().getNewOrders());
+	}
+
+	@Benchmark
+	public void singleFill(RestingBook book, Blackhole blackhole) {
+		Order order = book.aggressiveOrder;
+		order.init(order.getIdCode(), OrderSide.BUY, order.getPrice(), 1);
+		blackhole.consume(book.matchingEngine.match(order, blackhole::consume));
+	}
+
+	@Benchmark
+	public int sweep(SweptBook book, Blackhole blackhole) {
+		return book.matchingEngine.match(book.sweepingOrder, blackhole::consume);
+	}
+}
@@ -0,0 +1,83 @@
+package org.nts.exchange.verifier.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.orderbook.DepthLevel;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *
+ * Measures adding an order to a book and removing it again, and reading the
+ * depth of its best levels, for each book implementation and shape.
+ *
+ * Every operation leaves the book as it found it, so the depth stays the one
+ * given. The order joins the back of either the best level or the deepest one,
+ * which is where the cost of finding a level differs between books.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+
+	@Param({ "InMemoryOrderBook", "PriceLadderOrderBook" })
+	String    implementation;
+
+	@Param({ "1", "100", "10000" })
+	int       levels;
+
+	@Param({ "1", "10" })
+	int       ordersPerLevel;
+
+	private OrderBook orderBook;
+	private Order     bestLevelOrder;
+	private Order     deepestLevelOrder;
+
+	@Setup
+	public void setUp() {
+		orderBook         = BookShape.newBook(implementation);
+		BookShape.fill(orderBook, levels, ordersPerLevel, 100);
+		bestLevelOrder    = new Order("best", OrderSide.BUY, BookShape.priceOf(OrderSide.BUY, 0), 100);
+		deepestLevelOrder = new Order("deepest", OrderSide.BUY, BookShape.priceOf(OrderSide.BUY, levels - 1), 100);
+	}
+
+	@Benchmark
+	public void addAndRemoveAtBestLevel(Blackhole blackhole) {
+		addAndRemove(bestLevelOrder, blackhole);
+	}
+
+	@Benchmark
+	public void addAndRemoveAtDeepestLevel(Blackhole blackhole) {
+		addAndRemove(deepestLevelOrder, blackhole);
+	}
+
+	@Benchmark
+	public List<DepthLevel> topTenLevels() {
+		return orderBook.getDepth(OrderSide.BUY, 10);
+	}
+
+	private void addAndRemove(Order order, Blackhole blackhole) {
+		order.setSequence(Order.NO_SEQUENCE);
+		orderBook.addOrder(order);
+		// Drained as a subscribed engine would, or the queue grows without bound
+		blackhole.consume(orderBook.getNewOrders());
+		orderBook.removeOrder(order.getIdCode());
+	}
+}
@@ -0,0 +1,97 @@
+package org.nts.exchange.verifier.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.nts.exchange.verifier.cli.input.FileOrderReader;
+import org.nts.exchange.verifier.cli.input.MappedFileOrderReader;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *
+ * Measures reading an order file, from the file to the trades and book lines
+ * printed, with {@link FileOrderReader} and {@link MappedFileOrderReader}, and
+ * parsing alone with the mapped reader handing orders to a sink.
+ *
+ * The file is generated once per trial. Its orders are spread over
+ * {@code priceLevels} prices either side of a mid price with random quantities,
+ * so that about half of them trade; every invocation matches the whole file
+ * into a fresh book.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderReaderBenchmark {
+
+	@Param({ "100000", "1000000" })
+	int          orders;
+
+	@Param({ "10", "1000" })
+	int          priceLevels;
+
+	private Path file;
+
+	@Setup
+	public void writeOrders() throws IOException {
+		file = Files.createTempFile("orders-", ".csv");
+		Random random = new Random(42);
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+			for (int i = 0; i < orders; i++) {
+				boolean buy   = random.nextBoolean();
+				// Buys and sells overlap by a level, so some of them cross
+				int     level = random.nextInt(priceLevels);
+				int     price = BookShape.MID_PRICE + (buy ? -level : level - 1);
+				writer.write(i + (buy ? ",B," : ",S,") + price + "," + (1 + random.nextInt(1000)) + "\n");
+			}
+		}
+	}
+
+	@TearDown
+	public void deleteOrders() throws IOException {
+		Files.delete(file);
+	}
+
+	private static MatchingEngine newMatchingEngine() {
+		return new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore());
+	}
+
+	@Benchmark
+	public List<String> fileOrderReader() throws IOException {
+		return new FileOrderReader(file.toString(), newMatchingEngine()).parse();
+	}
+
+	@Benchmark
+	public List<String> mappedFileOrderReader() throws IOException {
+		return new MappedFileOrderReader(file.toString(), newMatchingEngine()).parse();
+	}
+
+	@Benchmark
+	public long mappedParseOnly(Blackhole blackhole) throws IOException {
+		return new MappedFileOrderReader(file.toString(), newMatchingEngine(), blackhole::consume).readMappedOrders();
+	}
+}
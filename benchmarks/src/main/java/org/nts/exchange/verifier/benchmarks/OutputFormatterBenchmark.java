@@ -0,0 +1,81 @@
+package org.nts.exchange.verifier.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Measures printing with {@link OutputFormatter}: a whole book of each shape,
+ * written to a stream that discards it, and a single trade line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputFormatterBenchmark {
+
+	// Counts what is written, so that the writes can not be optimised away
+	private static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+	@Param({ "1", "100", "10000" })
+	int                          levels;
+
+	@Param({ "1", "10" })
+	int                          ordersPerLevel;
+
+	private OrderBook            orderBook;
+	private Trade                trade;
+	private OutputFormatter      formatter;
+	private CountingOutputStream output;
+
+	@Setup
+	public void setUp() {
+		orderBook = BookShape.newBook("PriceLadderOrderBook");
+		BookShape.fill(orderBook, levels, ordersPerLevel, 1_000_000);
+		trade     = new Trade("10006", "10001", 100, 500);
+		formatter = new OutputFormatter();
+		output    = new CountingOutputStream();
+	}
+
+	@Benchmark
+	public long writeBook() throws IOException {
+		formatter.writeBook(orderBook, output);
+		return output.count;
+	}
+
+	@Benchmark
+	public int appendTrade() {
+		return formatter.reset().appendTrade(trade).length();
+	}
+}
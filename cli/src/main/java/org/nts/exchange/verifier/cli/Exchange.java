@@ -1,16 +1,40 @@
 package org.nts.exchange.verifier.cli;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import org.nts.exchange.verifier.cli.input.FileOrderReader;
+import org.nts.exchange.verifier.cli.batch.BatchVerifier;
+
+import org.nts.exchange.verifier.cli.input.MappedFileOrderReader;
 import org.nts.exchange.verifier.cli.input.OrderReader;
-import org.nts.exchange.verifier.cli.output.FileOrderWriter;
-import org.nts.exchange.verifier.cli.output.OrderWriter;
+import org.nts.exchange.verifier.cli.input.ShardedOrderReader;
+import org.nts.exchange.verifier.cli.input.StreamingOrderReader;
+import org.nts.exchange.verifier.cli.journal.OrderJournal;
+import org.nts.exchange.verifier.cli.load.LoadDriver;
+import org.nts.exchange.verifier.cli.verify.Divergence;
+import org.nts.exchange.verifier.cli.verify.Segment;
+import org.nts.exchange.verifier.cli.verify.SegmentVerifier;
+import org.nts.exchange.verifier.cli.verify.StreamingVerifier;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
 import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
 import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
-import org.nts.exchange.verifier.core.orderbook.InMemoryOrderBook;
+import org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.exception.MatchingEngineException;
+import org.nts.exchange.verifier.core.metrics.EngineMetrics;
+import org.nts.exchange.verifier.core.metrics.LatencyHistogram;
 import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.pool.TradePool;
+import org.nts.exchange.verifier.core.registry.BookRegistry;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
 import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
 import org.nts.exchange.verifier.core.tradestore.TradeStore;
 
@@ -22,7 +46,69 @@ public class Exchange {
 	private static String outputFileName = "RemainingOrderBackup.txt";
 	
 	public static void main(String[] args) {
-		if (args.length > 0) {
+		if (args.length > 2 && args[0].equals("--batch")) {
+			try {
+				if (!batch(Paths.get(args[1]), Arrays.asList(args).subList(2, args.length))) {
+					System.exit(1);
+				}
+			} catch (IOException e) {
+				log.error("Error processing batch {}", e.getMessage());
+				System.exit(1);
+			}
+
+		} else if (args.length > 2 && (args[0].equals("--generate") || args[0].equals("--load"))) {
+			try {
+				List<String>     options = Arrays.asList(args).subList(3, args.length);
+				OrderFlowProfile profile = OrderFlowProfile.parse(options);
+				if (args[0].equals("--generate")) {
+					new OrderFlowGenerator(profile).write(Paths.get(args[2]), Long.parseLong(args[1]));
+				} else {
+					System.out.println(load(profile, Long.parseLong(args[1]), Long.parseLong(args[2])));
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				log.error("Error running {} {}", args[0], e.getMessage());
+				System.exit(1);
+			}
+
+		} else if (args.length == 3 && args[0].equals("--verify")) {
+			try {
+				if (!verify(args[1], Paths.get(args[2]))) {
+					System.exit(1);
+				}
+			} catch (IOException e) {
+				log.error("Error verifying {}", e.getMessage());
+				System.exit(1);
+			}
+
+		} else if (args.length == 4 && args[0].equals("--checkpoints")) {
+			try {
+				long orders = new SegmentVerifier(args[2], Paths.get(args[3]), 1)
+						.writeCheckpoints(Long.parseLong(args[1]));
+				System.out.println("Checkpointed " + orders + " orders");
+			} catch (IOException | IllegalArgumentException e) {
+				log.error("Error writing checkpoints {}", e.getMessage());
+				System.exit(1);
+			}
+
+		} else if (args.length == 3 && args[0].equals("--segments")) {
+			try {
+				if (!verifySegments(args[1], Paths.get(args[2]))) {
+					System.exit(1);
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				log.error("Error verifying segments {}", e.getMessage());
+				System.exit(1);
+			}
+
+		} else if (args.length == 3 && args[0].equals("--shards")) {
+			try {
+				new Exchange(args[2], Integer.parseInt(args[1]));
+			} catch (IOException | IllegalArgumentException | MatchingEngineException e) {
+				log.error("Error processing file {}", e.getMessage());
+				System.exit(1);
+			}
+
+		} else if (args.length > 0) {
 			try {
 				new Exchange(args[0]);
 			} catch (IOException e) {
@@ -30,24 +116,170 @@ public class Exchange {
 			}
 
 		} else {
-			log.error("Please specify a file");
+			try {
+				new Exchange(System.in, System.out);
+			} catch (IOException e) {
+				log.error("Error processing standard input {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Streams orders from an input to an output, printing each trade as it occurs
+	 * and the order book once the input ends. Trades are not kept, so memory use
+	 * does not grow with the length of the input.
+	 * 
+	 * The book is recovered from the backup and its {@link OrderJournal}, and every
+	 * order accepted is journalled, so nothing is rewritten at the end of the run.
+	 * 
+	 * While the stream is read, the throughput, depth and latencies of the engine
+	 * are published over JMX as {@link EngineMetrics} named {@code stdin}.
+	 * 
+	 * @param input  the stream to read orders from
+	 * @param output the stream to print trades and the order book to
+	 * @throws IOException if the input can not be read or the output written
+	 */
+	public Exchange(InputStream input, OutputStream output) throws IOException {
+		OrderBook               orderBook      = new PriceLadderOrderBook();
+		OrderPool               orderPool      = new OrderPool(SequencedMatchingEngine.DEFAULT_QUEUE_CAPACITY);
+		SequencedMatchingEngine matchingEngine = new SequencedMatchingEngine(orderBook, new DiscardingTradeStore(),
+				SequencedMatchingEngine.DEFAULT_QUEUE_CAPACITY, runnable -> new Thread(runnable, "matching-engine"),
+				orderPool, new TradePool(1024));
+
+		try (OrderJournal journal = new OrderJournal(outputFileName, orderBook)) {
+			// Matched on this thread before the engine starts
+			journal.recover(matchingEngine, matchingEngine::match);
+			matchingEngine.addListener(journal);
+
+			EngineMetrics metrics = new EngineMetrics();
+			matchingEngine.setMetrics(metrics);
+			metrics.register("stdin");
+			try {
+				new StreamingOrderReader(input, output, matchingEngine, orderPool).parse();
+			} finally {
+				metrics.unregister();
+			}
 		}
 	}
 
 	public Exchange(String filename) throws IOException {
-		OrderBook        orderBook        = new InMemoryOrderBook();
+		OrderBook        orderBook        = new PriceLadderOrderBook();
 		TradeStore       tradeStore       = new InMemoryTradeStore();
-		MatchingEngine   matchingEngine   = new PriceTimePriorityMatchingEngine(orderBook, tradeStore);
-	
-		if(new File(outputFileName).exists()) {
-			OrderReader backupReader = new FileOrderReader(outputFileName,matchingEngine);
-			backupReader.parse();
+
+		try (OrderJournal journal = new OrderJournal(outputFileName, orderBook)) {
+			// Recovered before the engine subscribes, so replayed trades are not printed
+			MatchingEngine recoveryEngine = new PriceTimePriorityMatchingEngine(orderBook, new DiscardingTradeStore(),
+					false);
+			journal.recover(recoveryEngine, recoveryEngine::match);
+
+			// Never started, so every order is matched on this thread and journalled
+			// as it is accepted
+			SequencedMatchingEngine matchingEngine = new SequencedMatchingEngine(orderBook, tradeStore);
+			matchingEngine.addListener(journal);
+			OrderReader consoleReader = new MappedFileOrderReader(filename, matchingEngine, matchingEngine::match);
+			consoleReader.parse().forEach(System.out::println);
+		}
+	}
+
+	/**
+	 * Matches a file holding several instruments, one book per symbol, with the
+	 * symbols spread over a number of matching threads, and prints the trades and
+	 * book of each symbol.
+	 * 
+	 * Each run starts from empty books: the backup and journal hold a single book
+	 * and are neither recovered nor written.
+	 * 
+	 * @param filename   the order file, whose lines may start with a symbol
+	 * @param shardCount the number of matching threads
+	 * @throws IOException if the file can not be read
+	 */
+	public Exchange(String filename, int shardCount) throws IOException {
+		BookRegistry registry = new BookRegistry(shardCount, PriceLadderOrderBook::new, InMemoryTradeStore::new);
+		new ShardedOrderReader(filename, registry).parse().forEach(System.out::println);
+	}
+
+	/**
+	 * Verifies many order files in parallel, each in a book of its own, writing
+	 * the output of each file and its MD5 to an output directory. The backup and
+	 * journal are neither recovered nor written.
+	 * 
+	 * @param outputDirectory the directory to write the outputs to
+	 * @param paths           the order files, and directories of order files
+	 * @return true if every file was verified
+	 * @throws IOException if a directory can not be listed or the output
+	 *                     directory created
+	 */
+	public static boolean batch(Path outputDirectory, List<String> paths) throws IOException {
+		List<Path>   inputs  = BatchVerifier.collectInputs(paths);
+		List<String> digests = new BatchVerifier(outputDirectory, Runtime.getRuntime().availableProcessors())
+				.verify(inputs);
+		return !digests.contains(null);
+	}
+
+	/**
+	 * Matches an order file from an empty book and compares the trades and book
+	 * with those another exchange printed for it, printing either the first
+	 * difference or how much was verified. The backup and journal are neither
+	 * recovered nor written.
+	 * 
+	 * @param ordersFile     the orders the exchange was given
+	 * @param exchangeOutput what the exchange printed
+	 * @return true if the outputs are the same
+	 * @throws IOException if either file can not be read
+	 */
+	public static boolean verify(String ordersFile, Path exchangeOutput) throws IOException {
+		StreamingVerifier verifier   = new StreamingVerifier(ordersFile, exchangeOutput);
+		Divergence        divergence = verifier.verify();
+		if (divergence != null) {
+			System.out.println(divergence);
+			return false;
 		}
-		
-		OrderReader consoleReader = new FileOrderReader(filename,matchingEngine);
-		consoleReader.parse().forEach(System.out::println);
-		
-		OrderWriter orderWriter = new FileOrderWriter(outputFileName,matchingEngine);
-		orderWriter.push();
+		System.out.println("Verified " + verifier.getOrderCount() + " orders and " + verifier.getTradeCount()
+				+ " trades");
+		return true;
+	}
+
+	/**
+	 * Re-verifies an order file in parallel from the checkpoints of a directory,
+	 * one segment between two checkpoints per task, printing every segment whose
+	 * book did not end as checkpointed and how much was verified.
+	 * 
+	 * @param ordersFile          the orders of the session
+	 * @param checkpointDirectory the checkpoints taken along it
+	 * @return true if every segment was verified
+	 * @throws IOException if the checkpoints can not be listed or the orders read
+	 */
+	public static boolean verifySegments(String ordersFile, Path checkpointDirectory) throws IOException {
+		List<Segment> segments = new SegmentVerifier(ordersFile, checkpointDirectory,
+				Runtime.getRuntime().availableProcessors()).verify();
+		boolean       verified = true;
+		for (Segment segment : segments) {
+			if (!segment.isVerified()) {
+				System.out.println(segment);
+				verified = false;
+			}
+		}
+		System.out.println("Verified " + segments.stream().filter(Segment::isVerified).count() + " of "
+				+ segments.size() + " segments up to order "
+				+ (segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getToOrder()));
+		return verified;
+	}
+
+	/**
+	 * Matches generated orders at a target rate in a book of their own and
+	 * reports the latency percentiles. A tenth of the orders are sent first to
+	 * warm the engine up and are not recorded.
+	 * 
+	 * @param profile         the order flow to generate
+	 * @param ordersPerSecond the target rate
+	 * @param orders          the number of orders recorded
+	 * @return the count and latency percentiles, in microseconds
+	 */
+	public static String load(OrderFlowProfile profile, long ordersPerSecond, long orders) {
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(),
+				new DiscardingTradeStore(), false);
+		LatencyHistogram                latencies      = new LoadDriver(matchingEngine,
+				new OrderFlowGenerator(profile), ordersPerSecond).run(orders / 10, orders);
+		return latencies.summary(TimeUnit.MICROSECONDS);
 	}
 }
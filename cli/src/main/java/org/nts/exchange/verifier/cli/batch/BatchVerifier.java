@@ -0,0 +1,178 @@
+package org.nts.exchange.verifier.cli.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.nts.exchange.verifier.cli.input.MappedFileOrderReader;
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * Verifies many independent order files in one JVM, spreading them over a
+ * work-stealing {@link ForkJoinPool}.
+ *
+ * Every file is matched in a book and trade store of its own, starting empty:
+ * no backup is read or written. Its trades and remaining book are written, as
+ * the single file mode prints them, to {@code <name>.out} in the output
+ * directory, and their MD5 to {@code <name>.out.md5} in the format of
+ * {@code md5sum}. Files of very different lengths balance out as idle workers
+ * steal the waiting files of busy ones.
+ *
+ * A file that can not be read, matched or written is logged and counted as
+ * failed; the other files are still verified. So is a file with the same name
+ * as an earlier input, from another directory, as its output would overwrite
+ * the output of that input.
+ */
+@Log4j2
+public class BatchVerifier {
+
+	/**
+	 * The suffix of the output file written for an input file.
+	 */
+	public static final String OUTPUT_SUFFIX = ".out";
+
+	/**
+	 * The suffix of the checksum file written next to an output file.
+	 */
+	public static final String MD5_SUFFIX    = ".md5";
+
+	private final Path         outputDirectory;
+	private final int          parallelism;
+
+	/**
+	 * Constructs a BatchVerifier.
+	 *
+	 * @param outputDirectory The directory to write the output files to, created
+	 *                        if missing.
+	 * @param parallelism     The number of worker threads.
+	 */
+	public BatchVerifier(Path outputDirectory, int parallelism) {
+		this.outputDirectory = outputDirectory;
+		this.parallelism     = parallelism;
+	}
+
+	/**
+	 *
+	 * Expands a list of paths into the order files to verify. A directory stands
+	 * for the regular files directly in it, sorted by name, and any other path
+	 * for itself.
+	 *
+	 * @param paths the files and directories given
+	 * @return the order files, in the order given
+	 * @throws IOException if a directory can not be listed
+	 */
+	public static List<Path> collectInputs(List<String> paths) throws IOException {
+		List<Path> inputs = new ArrayList<>();
+		for (String name : paths) {
+			Path path = Paths.get(name);
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> files = Files.list(path)) {
+					inputs.addAll(files.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+				}
+			} else {
+				inputs.add(path);
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 *
+	 * Verifies every file and waits for all of them to finish.
+	 *
+	 * @param inputs the order files
+	 * @return the MD5 of the output of each file, in the order of the inputs, or
+	 *         null for each file that failed
+	 * @throws IOException if the output directory can not be created
+	 */
+	public List<String> verify(List<Path> inputs) throws IOException {
+		Files.createDirectories(outputDirectory);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			Set<Path>                  names = new HashSet<>();
+			List<ForkJoinTask<String>> tasks = new ArrayList<>(inputs.size());
+			for (Path input : inputs) {
+				if (names.add(input.getFileName())) {
+					tasks.add(pool.submit(() -> verifyFile(input)));
+				} else {
+					log.error("Not verifying file {} : another input is named {}", input, input.getFileName());
+					tasks.add(null);
+				}
+			}
+			List<String> digests = new ArrayList<>(inputs.size());
+			for (ForkJoinTask<String> task : tasks) {
+				digests.add(task != null ? task.join() : null);
+			}
+			return digests;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *
+	 * Matches one file in a fresh book and writes its output and checksum.
+	 *
+	 * @param input the order file
+	 * @return the MD5 of the output in hexadecimal, or null if the file failed
+	 */
+	String verifyFile(Path input) {
+		MatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(),
+				new InMemoryTradeStore());
+		Path           output         = outputDirectory.resolve(input.getFileName() + OUTPUT_SUFFIX);
+		try {
+			new MappedFileOrderReader(input.toString(), matchingEngine).readMappedOrders();
+
+			MessageDigest md5 = MessageDigest.getInstance("MD5");
+			try (OutputStream stream = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(output)),
+					md5)) {
+				OutputFormatter formatter = new OutputFormatter();
+				for (Trade trade : matchingEngine.getTradeStore().getTrades()) {
+					formatter.reset().appendTrade(trade).appendNewLine().writeTo(stream);
+				}
+				formatter.writeBook(matchingEngine.getOrderBook(), stream);
+			}
+
+			String digest = toHex(md5.digest());
+			Files.write(outputDirectory.resolve(output.getFileName() + MD5_SUFFIX),
+					(digest + "  " + output.getFileName() + "\n").getBytes(StandardCharsets.US_ASCII));
+			return digest;
+		} catch (IOException | RuntimeException e) {
+			log.error("Error verifying file {} : {}", input, e.toString());
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not available", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
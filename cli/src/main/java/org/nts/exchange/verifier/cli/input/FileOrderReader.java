@@ -5,8 +5,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
 import org.nts.exchange.verifier.core.Order;
 import org.nts.exchange.verifier.core.Trade;
 import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
@@ -14,7 +14,6 @@ import org.nts.exchange.verifier.core.orderbook.OrderBook;
 import org.nts.exchange.verifier.core.orderbook.OrderSide;
 import org.nts.exchange.verifier.core.tradestore.TradeStore;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
 /**
@@ -32,23 +31,9 @@ import lombok.extern.log4j.Log4j2;
 @Log4j2
 public class FileOrderReader implements OrderReader {
 
-	/**
-	 * A helper class for pairing buy and sell order strings for output.
-	 */
-	@AllArgsConstructor
-	class OrderBookOutputLinePair {
-		String buyLine;
-		String sellLine;
-
-		@Override
-		public String toString() {
-			return String.format("%s|%s", buyLine, sellLine);
-		}
-	}
-
-	private final OrderBook  orderBook;
-	private final TradeStore tradeStore;
-	private final String     fileName;
+	protected final OrderBook  orderBook;
+	protected final TradeStore tradeStore;
+	protected final String     fileName;
 
 	/**
 	 * 
@@ -74,41 +59,10 @@ public class FileOrderReader implements OrderReader {
 		return (text.equalsIgnoreCase("B")) ? OrderSide.BUY : OrderSide.SELL;
 	}
 
-	/**
-	 * 
-	 * Formats a Trade object as a string for output.
-	 * 
-	 * @param trade The Trade object to format.
-	 * @return A formatted string representation of the input Trade object.
-	 */
-	private String formatTradeOutPutString(Trade trade) {
-		return String.format("trade %s,%s,%d,%d ", trade.getRestingOrderId(), trade.getAggressorOrderId(),
-				trade.getPrice(), trade.getQuantity());
-	}
-
-	/**
-	 * 
-	 * Formats a Buy Order object as a string for output.
-	 * 
-	 * @param order The Buy Order object to format.
-	 * @return A formatted string representation of the input Buy Order object.
-	 */
-	private String formatBuyOrderOutPutString(Order order) {
-		return String.format("%1$,9d %2$,6d", order.getQuantity(), order.getPrice());
-	}
-
-	/**
-	 * 
-	 * Formats a Sell Order object as a string for output.
-	 * 
-	 * @param order The Sell Order object to format.
-	 * @return A formatted string representation of the input Sell Order object.
-	 */
-	private String formatSellOrderOutPutString(Order order) {
-		return String.format("%1$,6d %2$,9d", order.getPrice(), order.getQuantity());
-	}
-
 	private void readStringAndAddOrder(String line) {
+		if (line.startsWith("#")) {
+			return;
+		}
 		String[] fields = line.split(",");
 		if (fields.length != 4) {
 			log.error("Invalid order format: " + line);
@@ -145,25 +99,32 @@ public class FileOrderReader implements OrderReader {
 
 	/**
 	 * 
-	 * Reads input lines from a file and adds orders to the order book.
-	 * 
-	 * @param fileName The name of the file to read.
+	 * Reads every order of the input file and adds it to the order book.
+	 * Subclasses can replace the way the file is read and parsed while keeping
+	 * the output of {@link #parse()}.
 	 */
-	private List<String> formatOrdersForprinting() {
-		List<OrderBookOutputLinePair> bookOutputLinePairs = new ArrayList<>();
-
-		List<String>                  formatedBuyOrders   = orderBook.getBuyOrders().stream()
-				.map(this::formatBuyOrderOutPutString).collect(Collectors.toList());
-		List<String>                  formatedSellOrders  = orderBook.getSellOrders().stream()
-				.map(this::formatSellOrderOutPutString).collect(Collectors.toList());
-
-		for (int i = 0; i < formatedBuyOrders.size() || i < formatedSellOrders.size(); i++) {
-			String buyOrder  = (formatedBuyOrders.size() > i) ? formatedBuyOrders.get(i) : "                ";
-			String sellOrder = (formatedSellOrders.size() > i) ? formatedSellOrders.get(i) : "                ";
+	protected void readOrders() {
+		readlineAndAddOrder(fileName);
+	}
 
-			bookOutputLinePairs.add(new OrderBookOutputLinePair(buyOrder, sellOrder));
+	/**
+	 * 
+	 * Formats the content of an order book for printing, one line per pair of buy
+	 * and sell orders.
+	 * 
+	 * @param formatter The formatter to format the lines with.
+	 * @return the formatted lines of the order book
+	 */
+	private List<String> formatOrdersForprinting(OutputFormatter formatter) {
+		List<String> lines      = new ArrayList<>();
+		List<Order>  buyOrders  = orderBook.getBuyOrders();
+		List<Order>  sellOrders = orderBook.getSellOrders();
+		for (int i = 0; i < buyOrders.size() || i < sellOrders.size(); i++) {
+			Order buyOrder  = (buyOrders.size() > i) ? buyOrders.get(i) : null;
+			Order sellOrder = (sellOrders.size() > i) ? sellOrders.get(i) : null;
+			lines.add(formatter.reset().appendBookLine(buyOrder, sellOrder).toString());
 		}
-		return bookOutputLinePairs.stream().map(OrderBookOutputLinePair::toString).collect(Collectors.toList());
+		return lines;
 	}
 
 	/**
@@ -184,9 +145,12 @@ public class FileOrderReader implements OrderReader {
 	@Override
 	public List<String> parse() throws IOException {
 		List<String> output = new ArrayList<>();
-		readlineAndAddOrder(fileName);
-		output.addAll(tradeStore.getTrades().stream().map(this::formatTradeOutPutString).collect(Collectors.toList()));
-		output.addAll(formatOrdersForprinting());
+		readOrders();
+		OutputFormatter formatter = new OutputFormatter();
+		for (Trade trade : tradeStore.getTrades()) {
+			output.add(formatter.reset().appendTrade(trade).toString());
+		}
+		output.addAll(formatOrdersForprinting(formatter));
 
 		return output;
 	}
@@ -0,0 +1,212 @@
+package org.nts.exchange.verifier.cli.input;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * This class reads the same comma-separated order files as
+ * {@link FileOrderReader}, but maps the file into memory and parses each line
+ * straight from the mapped bytes.
+ *
+ * No line is ever turned into a {@link String}: each line is decoded in place
+ * by an {@link OrderLineParser}, so the only allocation per line is the
+ * {@link Order} that goes on to rest in the book. Files larger than a mapping
+ * can address are read through successive windows, each starting at the
+ * beginning of a line. Invalid lines are logged and skipped.
+ */
+@Log4j2
+public class MappedFileOrderReader extends FileOrderReader {
+
+	/**
+	 * The size of the window mapped at a time when none is specified.
+	 */
+	public static final int       DEFAULT_WINDOW_SIZE = 1 << 28;
+
+	private final OrderLineParser parser;
+	private final Consumer<Order> orderSink;
+	private final int             windowSize;
+
+	/**
+	 *
+	 * Creates a reader that adds the orders read to the order book of the given
+	 * matching engine.
+	 *
+	 * @param fileName       The name of the file to read.
+	 * @param matchingEngine The matching engine to use for order processing.
+	 */
+	public MappedFileOrderReader(String fileName, MatchingEngine matchingEngine) {
+		this(fileName, matchingEngine, null);
+	}
+
+	/**
+	 *
+	 * Creates a reader that hands the orders read to the given sink, such as
+	 * {@link org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine#submit(Order)}.
+	 *
+	 * @param fileName       The name of the file to read.
+	 * @param matchingEngine The matching engine whose book and trades are printed.
+	 * @param orderSink      Receives every order read, or null to add them to the
+	 *                       order book.
+	 */
+	public MappedFileOrderReader(String fileName, MatchingEngine matchingEngine, Consumer<Order> orderSink) {
+		this(fileName, matchingEngine, orderSink, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedFileOrderReader(String fileName, MatchingEngine matchingEngine, Consumer<Order> orderSink,
+			int windowSize) {
+		super(fileName, matchingEngine);
+		this.parser     = new OrderLineParser(null);
+		this.orderSink  = orderSink != null ? orderSink : orderBook::addOrder;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void readOrders() {
+		try {
+			readMappedOrders();
+		} catch (IOException e) {
+			log.error("Error reading file: " + fileName);
+		}
+	}
+
+	/**
+	 *
+	 * Maps the file window by window and hands every order it holds to the sink.
+	 *
+	 * @return the number of orders read
+	 * @throws IOException if the file can not be read
+	 */
+	public long readMappedOrders() throws IOException {
+		return readLines(fileName, windowSize, parser, orderSink);
+	}
+
+	/**
+	 *
+	 * Hands the orders held between two offsets of the file to the sink, as when
+	 * several readers share a file. Both offsets must be at the start of a line,
+	 * such as those returned by {@link #findOrderOffsets(String, long[])}.
+	 *
+	 * @param from the offset of the first line to read
+	 * @param to   the offset after the last line to read
+	 * @return the number of orders read
+	 * @throws IOException if the file can not be read
+	 */
+	public long readMappedOrders(long from, long to) throws IOException {
+		return readLines(fileName, from, to, windowSize, parser, (order, next) -> orderSink.accept(order));
+	}
+
+	/**
+	 *
+	 * Finds where the file can be split so that each part starts after a given
+	 * number of orders. Every line is parsed, but no order is matched.
+	 *
+	 * @param fileName    the name of the file to read
+	 * @param orderCounts the numbers of orders, in ascending order
+	 * @return for each number, the offset of the line after that many orders
+	 * @throws IOException if the file can not be read or holds fewer orders than
+	 *                     the last number
+	 */
+	public static long[] findOrderOffsets(String fileName, long[] orderCounts) throws IOException {
+		long[] offsets = new long[orderCounts.length];
+		int[]  found   = new int[1];
+		long[] read    = new long[1];
+		// Counts of zero are found before the first line
+		while (found[0] < orderCounts.length && orderCounts[found[0]] == 0) {
+			offsets[found[0]++] = 0;
+		}
+		readLines(fileName, 0, Long.MAX_VALUE, DEFAULT_WINDOW_SIZE, new OrderLineParser(null), (order, next) -> {
+			read[0]++;
+			while (found[0] < orderCounts.length && orderCounts[found[0]] == read[0]) {
+				offsets[found[0]++] = next;
+			}
+		});
+		if (found[0] < orderCounts.length) {
+			throw new IOException(fileName + " holds " + read[0] + " orders, not " + orderCounts[found[0]]);
+		}
+		return offsets;
+	}
+
+	/**
+	 *
+	 * Maps a file window by window, parses every line and hands the orders to a
+	 * sink.
+	 *
+	 * @param fileName   the name of the file to read
+	 * @param windowSize the size of the window mapped at a time
+	 * @param parser     the parser to decode the lines with
+	 * @param orderSink  receives every order read
+	 * @return the number of orders read
+	 * @throws IOException if the file can not be read or holds a line longer than
+	 *                     a window
+	 */
+	static long readLines(String fileName, int windowSize, OrderLineParser parser, Consumer<Order> orderSink)
+			throws IOException {
+		return readLines(fileName, 0, Long.MAX_VALUE, windowSize, parser, (order, next) -> orderSink.accept(order));
+	}
+
+	/**
+	 * Receives an order together with the offset of the line after it.
+	 */
+	@FunctionalInterface
+	private interface OrderAtOffset {
+		void accept(Order order, long next);
+	}
+
+	private static long readLines(String fileName, long from, long to, int windowSize, OrderLineParser parser,
+			OrderAtOffset orderSink) throws IOException {
+		long orderCount = 0;
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long end      = Math.min(to, channel.size());
+			long position = from;
+			while (position < end) {
+				int              length     = (int) Math.min(windowSize, end - position);
+				boolean          lastWindow = position + length == end;
+				MappedByteBuffer window     = channel.map(MapMode.READ_ONLY, position, length);
+
+				int              lineStart  = 0;
+				for (int i = 0; i < length; i++) {
+					if (window.get(i) == '\n') {
+						orderCount += readLine(window, lineStart, i, position + i + 1, parser, orderSink);
+						lineStart = i + 1;
+					}
+				}
+				if (lastWindow) {
+					if (lineStart < length) {
+						orderCount += readLine(window, lineStart, length, end, parser, orderSink);
+					}
+					position = end;
+				} else if (lineStart == 0) {
+					throw new IOException("Line longer than " + windowSize + " bytes at offset " + position);
+				} else {
+					// Carry the incomplete last line over to the next window
+					position += lineStart;
+				}
+			}
+		}
+		return orderCount;
+	}
+
+	private static int readLine(MappedByteBuffer window, int start, int end, long next, OrderLineParser parser,
+			OrderAtOffset orderSink) {
+		Order order = parser.parse(window, start, end);
+		if (order == null) {
+			return 0;
+		}
+		orderSink.accept(order, next);
+		return 1;
+	}
+}
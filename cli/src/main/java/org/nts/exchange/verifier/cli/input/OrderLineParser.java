@@ -0,0 +1,214 @@
+package org.nts.exchange.verifier.cli.input;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.registry.BookRegistry;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * Parses an {@code order-id,side,price,quantity} line straight from bytes,
+ * without turning it into a {@link String}.
+ *
+ * The order id is packed with {@link OrderIdCodec} and the side, price and
+ * quantity are decoded in place into primitives. Given an {@link OrderPool},
+ * the orders are acquired from it, so parsing allocates nothing at all.
+ *
+ * Given a {@link BookRegistry}, a line may also start with a symbol, as in
+ * {@code symbol,order-id,side,price,quantity}, which is registered and set on
+ * the order. Consecutive lines of the same symbol are the common case, so the
+ * last symbol is remembered and only a change of symbol allocates.
+ *
+ * Lines starting with {@code #} are comments and are skipped quietly. Other
+ * lines that do not hold exactly four fields, or five with a registry, or whose
+ * price or quantity is not a non-negative integer, are logged and skipped.
+ */
+@Log4j2
+final class OrderLineParser {
+
+	private static final byte[] NO_SYMBOL = new byte[0];
+
+	private final OrderPool    orderPool;
+	private final BookRegistry registry;
+	private byte[]             lastSymbol;
+	private int                lastSymbolId;
+
+	/**
+	 * Creates a parser of lines without a symbol.
+	 *
+	 * @param orderPool the pool to acquire orders from, or null to create them
+	 */
+	OrderLineParser(OrderPool orderPool) {
+		this(orderPool, null);
+	}
+
+	/**
+	 * Creates a parser.
+	 *
+	 * @param orderPool the pool to acquire orders from, or null to create them
+	 * @param registry  the registry to look symbols up in, or null if lines have
+	 *                  no symbol
+	 */
+	OrderLineParser(OrderPool orderPool, BookRegistry registry) {
+		this.orderPool    = orderPool;
+		this.registry     = registry;
+		this.lastSymbol   = NO_SYMBOL;
+		this.lastSymbolId = Order.DEFAULT_SYMBOL_ID;
+	}
+
+	/**
+	 * Parses the line held between two indexes of a buffer. A trailing carriage
+	 * return is ignored.
+	 *
+	 * @param bytes the buffer holding the line, read with absolute gets
+	 * @param start the index of the first byte of the line
+	 * @param end   the index of the line feed ending the line, or of the end of
+	 *              the input
+	 * @return the order, or null if the line is a comment or is invalid
+	 */
+	Order parse(ByteBuffer bytes, int start, int end) {
+		if (end > start && bytes.get(start) == '#') {
+			return null;
+		}
+		if (end > start && bytes.get(end - 1) == '\r') {
+			end--;
+		}
+		int symbolId = Order.DEFAULT_SYMBOL_ID;
+		if (registry != null && countCommas(bytes, start, end) == 4) {
+			int symbolEnd = indexOfComma(bytes, start, end);
+			symbolId = symbolId(bytes, start, symbolEnd);
+			start    = symbolEnd + 1;
+		}
+		int idEnd    = indexOfComma(bytes, start, end);
+		int sideEnd  = indexOfComma(bytes, idEnd + 1, end);
+		int priceEnd = indexOfComma(bytes, sideEnd + 1, end);
+		if (priceEnd >= end || indexOfComma(bytes, priceEnd + 1, end) != end) {
+			logInvalidLine(bytes, start, end);
+			return null;
+		}
+		int price    = parseNonNegativeInt(bytes, sideEnd + 1, priceEnd);
+		int quantity = parseNonNegativeInt(bytes, priceEnd + 1, end);
+		if (price < 0 || quantity < 0) {
+			logInvalidLine(bytes, start, end);
+			return null;
+		}
+		long      idCode = OrderIdCodec.pack(bytes, start, idEnd);
+		OrderSide side   = getSide(bytes, idEnd + 1, sideEnd);
+		Order     order;
+		if (idCode != OrderIdCodec.NO_CODE) {
+			order = orderPool != null ? orderPool.acquire(idCode, side, price, quantity)
+					: new Order(idCode, side, price, quantity);
+		} else {
+			// An id that can not be packed is hashed and kept as a string
+			String id = text(bytes, start, idEnd);
+			order = orderPool != null ? orderPool.acquire(id, side, price, quantity)
+					: new Order(id, side, price, quantity);
+		}
+		order.setSymbolId(symbolId);
+		return order;
+	}
+
+	/**
+	 * Returns the registry id of the symbol held between two indexes, looking it
+	 * up only when it differs from the symbol of the previous line.
+	 */
+	private int symbolId(ByteBuffer bytes, int start, int end) {
+		int length = end - start;
+		if (length != lastSymbol.length || !sameBytes(bytes, start, lastSymbol)) {
+			byte[] symbol = new byte[length];
+			for (int i = 0; i < length; i++) {
+				symbol[i] = bytes.get(start + i);
+			}
+			lastSymbolId = registry.symbolId(new String(symbol, StandardCharsets.UTF_8));
+			lastSymbol   = symbol;
+		}
+		return lastSymbolId;
+	}
+
+	private static boolean sameBytes(ByteBuffer bytes, int start, byte[] expected) {
+		for (int i = 0; i < expected.length; i++) {
+			if (bytes.get(start + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int countCommas(ByteBuffer bytes, int start, int end) {
+		int commas = 0;
+		for (int i = start; i < end; i++) {
+			if (bytes.get(i) == ',') {
+				commas++;
+			}
+		}
+		return commas;
+	}
+
+	/**
+	 * Returns the index of the first comma between two indexes, or the end index
+	 * if there is none. Searching from beyond the end returns the start index.
+	 */
+	private static int indexOfComma(ByteBuffer bytes, int from, int end) {
+		int i = from;
+		while (i < end && bytes.get(i) != ',') {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Reads the side the same way as {@link FileOrderReader}: "B" in any case is a
+	 * buy and anything else is a sell.
+	 */
+	private static OrderSide getSide(ByteBuffer bytes, int start, int end) {
+		if (end - start == 1) {
+			byte side = bytes.get(start);
+			if (side == 'B' || side == 'b') {
+				return OrderSide.BUY;
+			}
+		}
+		return OrderSide.SELL;
+	}
+
+	/**
+	 * Parses the decimal digits between two indexes.
+	 *
+	 * @return the value, or -1 if the field is empty, holds anything but digits or
+	 *         overflows an int
+	 */
+	private static int parseNonNegativeInt(ByteBuffer bytes, int start, int end) {
+		if (start == end) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = bytes.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+			if (value > Integer.MAX_VALUE) {
+				return -1;
+			}
+		}
+		return (int) value;
+	}
+
+	private static void logInvalidLine(ByteBuffer bytes, int start, int end) {
+		log.error("Invalid order format: " + text(bytes, start, end));
+	}
+
+	private static String text(ByteBuffer bytes, int start, int end) {
+		byte[] text = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			text[i - start] = bytes.get(i);
+		}
+		return new String(text, StandardCharsets.UTF_8);
+	}
+}
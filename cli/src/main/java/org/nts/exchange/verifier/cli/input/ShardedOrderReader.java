@@ -0,0 +1,95 @@
+package org.nts.exchange.verifier.cli.input;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.registry.BookRegistry;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * This class reads an order file holding several instruments and matches each
+ * one in its own book of a {@link BookRegistry}, spreading the instruments over
+ * the registry's shards.
+ *
+ * A line is either {@code symbol,order-id,side,price,quantity} or the usual
+ * {@code order-id,side,price,quantity}, which belongs to the default symbol.
+ * The file is mapped and parsed as by {@link MappedFileOrderReader} on the
+ * calling thread, which hands each order to the shard of its symbol.
+ *
+ * The output holds the trades and then the book of each symbol, the symbols
+ * sorted by name. The default symbol comes first and has no heading, so that a
+ * file without symbols prints exactly what {@link FileOrderReader} prints; every
+ * other symbol is headed by a {@code symbol <name>} line.
+ */
+@Log4j2
+public class ShardedOrderReader implements OrderReader {
+
+	/**
+	 * The prefix of the line heading the output of a symbol.
+	 */
+	public static final String SYMBOL_HEADING = "symbol ";
+
+	private final String       fileName;
+	private final BookRegistry registry;
+
+	/**
+	 * Constructs a ShardedOrderReader.
+	 *
+	 * @param fileName The name of the file to read.
+	 * @param registry The registry to match the orders in, not started yet.
+	 */
+	public ShardedOrderReader(String fileName, BookRegistry registry) {
+		this.fileName = fileName;
+		this.registry = registry;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The registry is started, fed every order of the file and closed before the
+	 * output is built.
+	 */
+	@Override
+	public List<String> parse() throws IOException {
+		registry.start();
+		try {
+			long orders = MappedFileOrderReader.readLines(fileName, MappedFileOrderReader.DEFAULT_WINDOW_SIZE,
+					new OrderLineParser(null, registry), registry::submit);
+			log.debug("Read {} orders of {} symbols from {}", orders, registry.getSymbols().size(), fileName);
+		} finally {
+			registry.close();
+		}
+
+		List<String> symbols = registry.getSymbols();
+		symbols.sort(null);
+		List<String>    output    = new ArrayList<>();
+		OutputFormatter formatter = new OutputFormatter();
+		for (String symbol : symbols) {
+			if (!BookRegistry.DEFAULT_SYMBOL.equals(symbol)) {
+				output.add(SYMBOL_HEADING + symbol);
+			}
+			for (Trade trade : registry.getTradeStore(symbol).getTrades()) {
+				output.add(formatter.reset().appendTrade(trade).toString());
+			}
+			addBookLines(registry.getOrderBook(symbol), formatter, output);
+		}
+		return output;
+	}
+
+	private static void addBookLines(OrderBook orderBook, OutputFormatter formatter, List<String> output) {
+		List<Order> buyOrders  = orderBook.getBuyOrders();
+		List<Order> sellOrders = orderBook.getSellOrders();
+		for (int i = 0; i < buyOrders.size() || i < sellOrders.size(); i++) {
+			Order buyOrder  = (buyOrders.size() > i) ? buyOrders.get(i) : null;
+			Order sellOrder = (sellOrders.size() > i) ? sellOrders.get(i) : null;
+			output.add(formatter.reset().appendBookLine(buyOrder, sellOrder).toString());
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package org.nts.exchange.verifier.cli.input;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngineListener;
+import org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * This class reads orders from an input stream, standard input in the
+ * exchange, and writes each trade to an output stream as soon as the matching
+ * engine produces it. Once the input ends, the final contents of the order
+ * book are written.
+ *
+ * Orders are parsed from a fixed read buffer by an {@link OrderLineParser},
+ * acquired from an {@link OrderPool} and submitted to a
+ * {@link SequencedMatchingEngine}, whose bounded queue holds back the reader
+ * when matching falls behind. Trades are formatted by an {@link OutputFormatter}
+ * and written from the matching thread through a buffered stream, and nothing
+ * keeps them afterwards, so the heap stays flat however long the input is,
+ * provided the engine's trade store does not retain trades either.
+ *
+ * The lines written are the same as those returned by
+ * {@link FileOrderReader#parse()}.
+ */
+@Log4j2
+public class StreamingOrderReader implements OrderReader {
+
+	/**
+	 * The size of the buffers used to read orders and write output when none is
+	 * specified.
+	 */
+	public static final int               DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final InputStream             input;
+	private final OutputStream            output;
+	private final OutputFormatter         formatter;
+	private final SequencedMatchingEngine matchingEngine;
+	private final OrderLineParser         parser;
+	private final int                     bufferSize;
+	// The first error writing a trade, reported once the input is done
+	private IOException                   writeError;
+
+	/**
+	 *
+	 * Creates a reader that feeds the given matching engine. The engine must not
+	 * have been started, the reader starts and closes it.
+	 *
+	 * @param input          The stream to read orders from.
+	 * @param output         The stream to write trades and the order book to.
+	 * @param matchingEngine The matching engine to submit the orders to.
+	 * @param orderPool      The pool to acquire orders from, or null to create
+	 *                       them.
+	 */
+	public StreamingOrderReader(InputStream input, OutputStream output, SequencedMatchingEngine matchingEngine,
+			OrderPool orderPool) {
+		this(input, output, matchingEngine, orderPool, DEFAULT_BUFFER_SIZE);
+	}
+
+	StreamingOrderReader(InputStream input, OutputStream output, SequencedMatchingEngine matchingEngine,
+			OrderPool orderPool, int bufferSize) {
+		this.input          = input;
+		this.output         = new BufferedOutputStream(output, bufferSize);
+		this.formatter      = new OutputFormatter();
+		this.matchingEngine = matchingEngine;
+		this.parser         = new OrderLineParser(orderPool);
+		this.bufferSize     = bufferSize;
+	}
+
+	/**
+	 *
+	 * Streams the input through the matching engine, writing trades as they occur
+	 * and the order book once the input ends.
+	 *
+	 * @return an empty list, as everything has already been written to the output
+	 * @throws IOException if there is an error reading the input or writing the
+	 *                     output
+	 */
+	@Override
+	public List<String> parse() throws IOException {
+		MatchingEngineListener tradeWriter = this::writeTrade;
+		matchingEngine.addListener(tradeWriter);
+		matchingEngine.start();
+		try {
+			readOrders();
+		} finally {
+			// Waits for every submitted order to be matched and its trades written
+			matchingEngine.close();
+			matchingEngine.removeListener(tradeWriter);
+		}
+		if (writeError != null) {
+			throw writeError;
+		}
+		formatter.writeBook(matchingEngine.getOrderBook(), output);
+		output.flush();
+		return Collections.emptyList();
+	}
+
+	private void writeTrade(Trade trade) {
+		if (writeError != null) {
+			return;
+		}
+		try {
+			formatter.reset().appendTrade(trade).appendNewLine().writeTo(output);
+		} catch (IOException e) {
+			log.error("Error writing trade {} : {}", trade, e.getMessage());
+			writeError = e;
+		}
+	}
+
+	/**
+	 * Reads the input into a fixed buffer, submitting every complete line and
+	 * moving the incomplete last line to the front before reading on.
+	 */
+	private void readOrders() throws IOException {
+		byte[]     buffer = new byte[bufferSize];
+		ByteBuffer bytes  = ByteBuffer.wrap(buffer);
+		int        filled = 0;
+		int        read   = input.read(buffer, 0, buffer.length);
+		while (read != -1) {
+			filled += read;
+			int lineStart = 0;
+			for (int i = filled - read; i < filled; i++) {
+				if (buffer[i] == '\n') {
+					submit(bytes, lineStart, i);
+					lineStart = i + 1;
+				}
+			}
+			if (lineStart == 0 && filled == buffer.length) {
+				throw new IOException("Line longer than " + bufferSize + " bytes");
+			}
+			System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+			filled -= lineStart;
+			read    = input.read(buffer, filled, buffer.length - filled);
+		}
+		if (filled > 0) {
+			submit(bytes, 0, filled);
+		}
+	}
+
+	private void submit(ByteBuffer bytes, int start, int end) {
+		Order order = parser.parse(bytes, start, end);
+		if (order != null) {
+			matchingEngine.submit(order);
+		}
+	}
+}
@@ -0,0 +1,387 @@
+package org.nts.exchange.verifier.cli.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.nts.exchange.verifier.cli.input.MappedFileOrderReader;
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngineListener;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * A write-ahead journal of the orders accepted by a
+ * {@link org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine},
+ * so that the order book survives a crash without being rewritten after every
+ * run.
+ *
+ * The state on disk is a checkpoint, an order file holding the book at some
+ * point, plus the journal of every order accepted since. Both are written as
+ * order lines, so the checkpoint is the usual backup file and is read by
+ * {@link MappedFileOrderReader}. As matching is deterministic, replaying the
+ * journalled orders on top of the checkpoint rebuilds the book.
+ *
+ * Accepted orders are buffered and written with a single fsync once a group of
+ * them is pending, on the first order after the commit delay has passed, or as
+ * soon as the matching engine has no order waiting, so an order is never left
+ * uncommitted for longer than the commit delay while orders keep coming, nor
+ * once they stop. A crash loses at most the last, uncommitted group. After
+ * every checkpoint interval of orders the book is written to a new checkpoint
+ * and the journal starts over.
+ *
+ * An order that can not be journalled fails with an
+ * {@link UncheckedIOException} before it is matched, which stops the matching
+ * engine: matching on without the journal would leave a book that can not be
+ * recovered.
+ *
+ * Journals are numbered by generation, {@code RemainingOrderBackup.txt.journal-3}
+ * for instance, and the checkpoint starts with a {@code # journal 3} comment
+ * naming the first generation that is not part of it. A checkpoint is written
+ * to a temporary file and moved into place only once the next journal exists,
+ * and older journals are deleted after that, so a crash at any step recovers
+ * to the same book.
+ *
+ * An instance is driven by the matching thread, through the listener
+ * callbacks, and is not thread-safe.
+ */
+@Log4j2
+public class OrderJournal implements MatchingEngineListener, Closeable {
+
+	/**
+	 * The number of orders committed together when none is specified.
+	 */
+	public static final int       DEFAULT_GROUP_COMMIT_SIZE         = 256;
+
+	/**
+	 * The longest an accepted order waits for its group to fill, in
+	 * milliseconds, when none is specified.
+	 */
+	public static final long      DEFAULT_GROUP_COMMIT_DELAY_MILLIS = 10;
+
+	/**
+	 * The number of journalled orders between checkpoints when none is
+	 * specified.
+	 */
+	public static final long      DEFAULT_CHECKPOINT_INTERVAL       = 1_000_000;
+
+	private static final String   GENERATION_HEADER                 = "# journal ";
+
+	private final Path            checkpointPath;
+	private final OrderBook       orderBook;
+	private final int             groupCommitSize;
+	private final long            groupCommitDelayNanos;
+	private final long            checkpointInterval;
+	private final OutputFormatter formatter;
+	private FileChannel           journal;
+	private OutputStream          journalOutput;
+	// The first journal generation still needed and the one being written
+	private long                  oldestGeneration;
+	private long                  generation;
+	private int                   pending;
+	private long                  lastCommitNanos;
+	private long                  journalledSinceCheckpoint;
+	// The error that stopped the journal, reported again by every later call
+	private IOException           writeError;
+
+	/**
+	 *
+	 * Creates a journal with the default group commit and checkpoint settings.
+	 *
+	 * @param checkpointFileName The name of the checkpoint file, next to which
+	 *                           the journals are kept.
+	 * @param orderBook          The order book loaded from and written to the
+	 *                           checkpoints.
+	 */
+	public OrderJournal(String checkpointFileName, OrderBook orderBook) {
+		this(checkpointFileName, orderBook, DEFAULT_GROUP_COMMIT_SIZE, DEFAULT_GROUP_COMMIT_DELAY_MILLIS,
+				DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 *
+	 * Creates a journal.
+	 *
+	 * @param checkpointFileName     The name of the checkpoint file, next to which
+	 *                               the journals are kept.
+	 * @param orderBook              The order book loaded from and written to the
+	 *                               checkpoints.
+	 * @param groupCommitSize        The number of orders committed together.
+	 * @param groupCommitDelayMillis The longest an order waits for its group to
+	 *                               fill before the next order commits it.
+	 * @param checkpointInterval     The number of journalled orders between
+	 *                               checkpoints.
+	 */
+	public OrderJournal(String checkpointFileName, OrderBook orderBook, int groupCommitSize,
+			long groupCommitDelayMillis, long checkpointInterval) {
+		this.checkpointPath        = Paths.get(checkpointFileName);
+		this.orderBook             = orderBook;
+		this.groupCommitSize       = groupCommitSize;
+		this.groupCommitDelayNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitDelayMillis);
+		this.checkpointInterval    = checkpointInterval;
+		this.formatter             = new OutputFormatter();
+	}
+
+	/**
+	 *
+	 * Loads the checkpoint into the order book, which must be empty, then hands
+	 * the orders of every journal written since to a sink, and opens a new journal
+	 * for the orders accepted from now on. It must be called before any order is
+	 * journalled.
+	 *
+	 * A checkpoint is written in priority order and does not cross, so it is bulk
+	 * loaded with {@link OrderBook#loadOrders(List, List)}. A backup that was
+	 * edited out of order is handed to the sink instead, to be matched.
+	 *
+	 * @param matchingEngine The matching engine whose book the orders go to.
+	 * @param orderSink      Receives the recovered orders, in order, typically
+	 *                       {@link MatchingEngine#match(Order)}.
+	 * @return the number of orders recovered
+	 * @throws IOException if the checkpoint or a journal can not be read, or the
+	 *                     new journal can not be created
+	 */
+	public long recover(MatchingEngine matchingEngine, Consumer<Order> orderSink) throws IOException {
+		long orders = 0;
+		oldestGeneration = readCheckpointGeneration();
+		if (Files.exists(checkpointPath)) {
+			orders += loadCheckpoint(matchingEngine, orderSink);
+		}
+		// Journals left over from a crash after the checkpoint was moved into place
+		for (long older = oldestGeneration - 1; older >= 0 && Files.deleteIfExists(journalPath(older)); older--) {
+			log.debug("Deleted journal {} already in the checkpoint", journalPath(older));
+		}
+
+		generation = oldestGeneration;
+		for (Path tail = journalPath(generation); Files.exists(tail); tail = journalPath(++generation)) {
+			truncateTornLine(tail);
+			long replayed = new MappedFileOrderReader(tail.toString(), matchingEngine, orderSink).readMappedOrders();
+			journalledSinceCheckpoint += replayed;
+			orders                    += replayed;
+		}
+		openJournal(generation);
+		log.debug("Recovered {} orders from {} and {} journals", orders, checkpointPath,
+				generation - oldestGeneration);
+		return orders;
+	}
+
+	/**
+	 * Journals an accepted order, committing its group if it is full or has
+	 * waited long enough, and writes a checkpoint first if one is due.
+	 *
+	 * @param order the accepted order
+	 * @throws UncheckedIOException if the journal or checkpoint can not be
+	 *                              written, now or earlier
+	 */
+	@Override
+	public void onOrderAccepted(Order order) {
+		failIfStopped();
+		try {
+			if (journalledSinceCheckpoint >= checkpointInterval) {
+				checkpoint();
+			}
+			formatter.appendOrder(order).appendNewLine();
+			pending++;
+			journalledSinceCheckpoint++;
+			if (pending >= groupCommitSize || System.nanoTime() - lastCommitNanos >= groupCommitDelayNanos) {
+				commit();
+			}
+		} catch (IOException e) {
+			log.error("Error journalling order {} : {}", order, e.getMessage());
+			writeError = e;
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Commits the pending orders as the matching engine has no more to give for
+	 * now.
+	 *
+	 * @throws UncheckedIOException if the journal can not be written, now or
+	 *                              earlier
+	 */
+	@Override
+	public void onIdle() {
+		failIfStopped();
+		try {
+			commit();
+		} catch (IOException e) {
+			log.error("Error committing the journal : {}", e.getMessage());
+			writeError = e;
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void onTrade(Trade trade) {
+		// Trades are reproduced by replaying the orders
+	}
+
+	/**
+	 * Writes the pending orders to the journal and forces them to the disk.
+	 *
+	 * @throws IOException if the journal can not be written
+	 */
+	public void commit() throws IOException {
+		if (pending > 0) {
+			formatter.writeTo(journalOutput);
+			journal.force(false);
+			pending = 0;
+		}
+		lastCommitNanos = System.nanoTime();
+	}
+
+	/**
+	 * Writes the order book to a new checkpoint, after which the journals it
+	 * covers are deleted and the journal starts over.
+	 *
+	 * @throws IOException if the checkpoint or the new journal can not be written
+	 */
+	public void checkpoint() throws IOException {
+		commit();
+		long        next    = generation + 1;
+		FileChannel written = journal;
+		openJournal(next);
+		written.close();
+
+		Path temporary = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				OutputStream output = new BufferedOutputStream(file)) {
+			output.write((GENERATION_HEADER + next + "\n").getBytes(StandardCharsets.US_ASCII));
+			formatter.writeOrders(orderBook, output);
+			output.flush();
+			file.getFD().sync();
+		}
+		Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		for (long older = oldestGeneration; older < next; older++) {
+			Files.deleteIfExists(journalPath(older));
+		}
+		oldestGeneration          = next;
+		journalledSinceCheckpoint = 0;
+		log.debug("Checkpointed the order book to {}, journal generation {}", checkpointPath, next);
+	}
+
+	/**
+	 * Commits the pending orders and closes the journal.
+	 *
+	 * @throws IOException if the journal could not be written, now or earlier
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (writeError == null) {
+				commit();
+			}
+		} finally {
+			journal.close();
+		}
+		if (writeError != null) {
+			throw writeError;
+		}
+	}
+
+	/**
+	 * Returns the generation of the journal being written.
+	 *
+	 * @return the journal generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	private void failIfStopped() {
+		if (writeError != null) {
+			throw new UncheckedIOException("The journal stopped on an earlier error", writeError);
+		}
+	}
+
+	private long loadCheckpoint(MatchingEngine matchingEngine, Consumer<Order> orderSink) throws IOException {
+		List<Order> buyOrders  = new ArrayList<>();
+		List<Order> sellOrders = new ArrayList<>();
+		long        orders     = new MappedFileOrderReader(checkpointPath.toString(), matchingEngine,
+				order -> (order.getSide() == OrderSide.BUY ? buyOrders : sellOrders).add(order)).readMappedOrders();
+		try {
+			orderBook.loadOrders(buyOrders, sellOrders);
+		} catch (IllegalArgumentException e) {
+			log.warn("Matching the orders of {} as they can not be bulk loaded : {}", checkpointPath, e.getMessage());
+			new MappedFileOrderReader(checkpointPath.toString(), matchingEngine, orderSink).readMappedOrders();
+		}
+		return orders;
+	}
+
+	private Path journalPath(long journalGeneration) {
+		return checkpointPath.resolveSibling(checkpointPath.getFileName() + ".journal-" + journalGeneration);
+	}
+
+	private void openJournal(long journalGeneration) throws IOException {
+		journal         = FileChannel.open(journalPath(journalGeneration), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		journalOutput   = Channels.newOutputStream(journal);
+		generation      = journalGeneration;
+		lastCommitNanos = System.nanoTime();
+	}
+
+	/**
+	 * Reads the generation named by the header of the checkpoint, 0 if there is
+	 * no checkpoint or it has no header.
+	 */
+	private long readCheckpointGeneration() throws IOException {
+		if (!Files.exists(checkpointPath)) {
+			return 0;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(checkpointPath, StandardCharsets.US_ASCII)) {
+			String header = reader.readLine();
+			if (header == null || !header.startsWith(GENERATION_HEADER)) {
+				return 0;
+			}
+			return Long.parseLong(header.substring(GENERATION_HEADER.length()).trim());
+		}
+	}
+
+	/**
+	 * Cuts a journal back to its last complete line, dropping what a crash in the
+	 * middle of a write left behind.
+	 */
+	private static void truncateTornLine(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer last = ByteBuffer.allocate(1);
+			long       size = channel.size();
+			long       end  = size;
+			while (end > 0) {
+				last.clear();
+				channel.read(last, end - 1);
+				if (last.get(0) == '\n') {
+					break;
+				}
+				end--;
+			}
+			if (end < size) {
+				log.warn("Dropped {} bytes of an incomplete order at the end of {}", size - end, path);
+				channel.truncate(end);
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package org.nts.exchange.verifier.cli.load;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.metrics.LatencyHistogram;
+
+/**
+ *
+ * Feeds a matching engine with generated orders at a target rate and records
+ * the latency of every order.
+ *
+ * Orders are sent one at a time on the calling thread, each once the previous
+ * one has been matched, and are due at fixed intervals from the start of the
+ * run. The latency of an order is measured from when it was due, not from when
+ * it was sent, so an order held up by a slow predecessor is charged for the
+ * wait, as it would be by a client sending at that rate. Without this, a stall
+ * would be recorded once instead of by every order queued behind it, and the
+ * tail of the histogram would be hidden.
+ *
+ * The generator runs between orders, outside the time measured.
+ */
+public class LoadDriver {
+
+	private static final Consumer<Trade> IGNORE_TRADE = trade -> {
+	};
+
+	private final PriceTimePriorityMatchingEngine matchingEngine;
+	private final OrderFlowGenerator              generator;
+	private final long                            intervalNanos;
+
+	/**
+	 * Creates a driver.
+	 *
+	 * @param matchingEngine  the engine to match the orders with, which should
+	 *                        not subscribe to its book
+	 * @param generator       the flow of orders to send
+	 * @param ordersPerSecond the target rate
+	 * @throws IllegalArgumentException if the rate is not positive or above one
+	 *                                  order per nanosecond
+	 */
+	public LoadDriver(PriceTimePriorityMatchingEngine matchingEngine, OrderFlowGenerator generator,
+			long ordersPerSecond) {
+		if (ordersPerSecond < 1 || ordersPerSecond > TimeUnit.SECONDS.toNanos(1)) {
+			throw new IllegalArgumentException("Invalid rate " + ordersPerSecond + " orders per second");
+		}
+		this.matchingEngine = matchingEngine;
+		this.generator      = generator;
+		this.intervalNanos  = TimeUnit.SECONDS.toNanos(1) / ordersPerSecond;
+	}
+
+	/**
+	 *
+	 * Sends orders at the target rate, first some that warm the engine up and are
+	 * not recorded and then the ones measured.
+	 *
+	 * @param warmupOrders   the number of orders sent before recording
+	 * @param measuredOrders the number of orders recorded
+	 * @return the latencies of the measured orders, in nanoseconds
+	 */
+	public LatencyHistogram run(long warmupOrders, long measuredOrders) {
+		send(warmupOrders, null);
+		LatencyHistogram histogram = new LatencyHistogram();
+		send(measuredOrders, histogram);
+		return histogram;
+	}
+
+	private void send(long count, LatencyHistogram histogram) {
+		long start = System.nanoTime();
+		for (long i = 0; i < count; i++) {
+			Order order = generator.next();
+			long  due   = start + i * intervalNanos;
+			long  wait  = due - System.nanoTime();
+			while (wait > 0) {
+				// Parking is too coarse for short waits, so spin through them
+				if (wait > TimeUnit.MICROSECONDS.toNanos(100)) {
+					LockSupport.parkNanos(wait - TimeUnit.MICROSECONDS.toNanos(50));
+				}
+				wait = due - System.nanoTime();
+			}
+			matchingEngine.match(order, IGNORE_TRADE);
+			if (histogram != null) {
+				histogram.record(System.nanoTime() - due);
+			}
+		}
+	}
+}
@@ -1,14 +1,11 @@
 package org.nts.exchange.verifier.cli.output;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
 
-import org.nts.exchange.verifier.core.Order;
 import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
-import org.nts.exchange.verifier.core.orderbook.OrderBook;
-import org.nts.exchange.verifier.core.orderbook.OrderSide;
 
 /**
  * 
@@ -44,22 +41,6 @@ public class FileOrderWriter implements OrderWriter {
 		this.matchingEngine = matchingEngine;
 	}
 
-	/**
-	 * Writes an order to the output file in the format "order-id, side, price,
-	 * quantity".
-	 * 
-	 * @param writer The BufferedWriter object used to write to the output file.
-	 * @param order  The order to write to the output file.
-	 * @param side   The side of the order (BUY or SELL).
-	 * @throws IOException If an I/O error occurs while writing to the output file.
-	 */
-	private void writeOrder(BufferedWriter writer, Order order, OrderSide side) throws IOException {
-		String line = String.format("%s,%s,%d,%d", order.getId(), side.toString().substring(0, 1), order.getPrice(),
-				order.getQuantity());
-		writer.write(line);
-		writer.newLine();
-	}
-
 	/**
 	 * Retrieves the remaining buy and sell orders from the matching engine and
 	 * writes them to the output file in the format "order-id, side, price,
@@ -67,21 +48,8 @@ public class FileOrderWriter implements OrderWriter {
 	 */
 	@Override
 	public void push() {
-
-		OrderBook   orderBook  = matchingEngine.getOrderBook();
-		List<Order> buyOrders  = orderBook.getBuyOrders();
-		List<Order> sellOrders = orderBook.getSellOrders();
-
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFileName))) {
-			// Write buy orders
-			for (Order buyOrder : buyOrders) {
-				writeOrder(writer, buyOrder, OrderSide.BUY);
-			}
-
-			// Write sell orders
-			for (Order sellOrder : sellOrders) {
-				writeOrder(writer, sellOrder, OrderSide.SELL);
-			}
+		try (OutputStream output = new BufferedOutputStream(new FileOutputStream(outputFileName))) {
+			new OutputFormatter().writeOrders(matchingEngine.getOrderBook(), output);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
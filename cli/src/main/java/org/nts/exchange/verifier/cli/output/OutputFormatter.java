@@ -0,0 +1,319 @@
+package org.nts.exchange.verifier.cli.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+/**
+ *
+ * Formats the lines printed by the exchange straight into a reusable byte
+ * buffer, without going through {@link String#format(String, Object...)}.
+ *
+ * The lines follow the layout of the README:
+ * <ul>
+ * <li>a trade is {@code trade aggressor-id,resting-id,price,quantity};</li>
+ * <li>a book line is {@code 000,000,000 000000 | 000000 000,000,000}, the buy
+ * order on the left and the sell order on the right, each value left padded
+ * with spaces and a missing order printed as blanks;</li>
+ * <li>a backup order is {@code order-id,side,price,quantity}.</li>
+ * </ul>
+ * Order ids are written from their codes with
+ * {@link OrderIdCodec#decode(long, byte[], int)}, so no line creates any object
+ * once the buffer has grown to fit it. An instance is not thread-safe.
+ */
+public final class OutputFormatter {
+
+	private static final int    QUANTITY_WIDTH       = 11;
+	private static final int    PRICE_WIDTH          = 6;
+	private static final byte[] TRADE_PREFIX         = "trade ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] BOOK_SEPARATOR       = " | ".getBytes(StandardCharsets.US_ASCII);
+	private static final int    BOOK_SIDE_WIDTH      = QUANTITY_WIDTH + 1 + PRICE_WIDTH;
+	// Flush a book to its stream once this much of it is buffered
+	private static final int    BOOK_FLUSH_THRESHOLD = 1 << 16;
+
+	private byte[]              buffer;
+	private int                 length;
+
+	/**
+	 * Creates a formatter with an empty buffer.
+	 */
+	public OutputFormatter() {
+		this.buffer = new byte[256];
+	}
+
+	/**
+	 * Empties the buffer.
+	 *
+	 * @return this formatter
+	 */
+	public OutputFormatter reset() {
+		length = 0;
+		return this;
+	}
+
+	/**
+	 * Appends a trade line, without the line feed.
+	 *
+	 * @param trade the trade to append
+	 * @return this formatter
+	 */
+	public OutputFormatter appendTrade(Trade trade) {
+		append(TRADE_PREFIX);
+		if (OrderIdCodec.isHashed(trade.getAggressorOrderIdCode())) {
+			append(trade.getAggressorOrderId().getBytes(StandardCharsets.UTF_8));
+		} else {
+			appendId(trade.getAggressorOrderIdCode());
+		}
+		append(',');
+		if (OrderIdCodec.isHashed(trade.getRestingOrderIdCode())) {
+			append(trade.getRestingOrderId().getBytes(StandardCharsets.UTF_8));
+		} else {
+			appendId(trade.getRestingOrderIdCode());
+		}
+		append(',');
+		appendInt(trade.getPrice());
+		append(',');
+		appendInt(trade.getQuantity());
+		return this;
+	}
+
+	/**
+	 * Appends a book line, without the line feed.
+	 *
+	 * @param buyOrder  the buy order on the line, or null if there is none
+	 * @param sellOrder the sell order on the line, or null if there is none
+	 * @return this formatter
+	 */
+	public OutputFormatter appendBookLine(Order buyOrder, Order sellOrder) {
+		if (buyOrder != null) {
+			appendGrouped(buyOrder.getQuantity(), QUANTITY_WIDTH);
+			append(' ');
+			appendPadded(buyOrder.getPrice(), PRICE_WIDTH);
+		} else {
+			appendBlanks(BOOK_SIDE_WIDTH);
+		}
+		append(BOOK_SEPARATOR);
+		if (sellOrder != null) {
+			appendPadded(sellOrder.getPrice(), PRICE_WIDTH);
+			append(' ');
+			appendGrouped(sellOrder.getQuantity(), QUANTITY_WIDTH);
+		} else {
+			appendBlanks(BOOK_SIDE_WIDTH);
+		}
+		return this;
+	}
+
+	/**
+	 * Appends an order as a line of an order file, without the line feed.
+	 *
+	 * @param order the order to append
+	 * @return this formatter
+	 */
+	public OutputFormatter appendOrder(Order order) {
+		if (OrderIdCodec.isHashed(order.getIdCode())) {
+			append(order.getId().getBytes(StandardCharsets.UTF_8));
+		} else {
+			appendId(order.getIdCode());
+		}
+		append(',');
+		append(order.getSide() == OrderSide.BUY ? 'B' : 'S');
+		append(',');
+		appendInt(order.getPrice());
+		append(',');
+		appendInt(order.getQuantity());
+		return this;
+	}
+
+	/**
+	 * Appends a line feed.
+	 *
+	 * @return this formatter
+	 */
+	public OutputFormatter appendNewLine() {
+		append('\n');
+		return this;
+	}
+
+	/**
+	 * Writes the buffer to a stream and empties it.
+	 *
+	 * @param output the stream to write to
+	 * @throws IOException if the stream can not be written
+	 */
+	public void writeTo(OutputStream output) throws IOException {
+		output.write(buffer, 0, length);
+		length = 0;
+	}
+
+	/**
+	 * Writes every line of an order book to a stream, each followed by a line
+	 * feed, flushing the buffer to the stream as it fills so that a deep book is
+	 * never held in memory as a whole.
+	 *
+	 * @param orderBook the order book to write
+	 * @param output    the stream to write to
+	 * @throws IOException if the stream can not be written
+	 */
+	public void writeBook(OrderBook orderBook, OutputStream output) throws IOException {
+		List<Order> buyOrders  = orderBook.getBuyOrders();
+		List<Order> sellOrders = orderBook.getSellOrders();
+		reset();
+		for (int i = 0; i < buyOrders.size() || i < sellOrders.size(); i++) {
+			appendBookLine(i < buyOrders.size() ? buyOrders.get(i) : null,
+					i < sellOrders.size() ? sellOrders.get(i) : null);
+			appendNewLine();
+			if (length >= BOOK_FLUSH_THRESHOLD) {
+				writeTo(output);
+			}
+		}
+		writeTo(output);
+	}
+
+	/**
+	 * Writes every order of an order book to a stream as the lines of an order
+	 * file, the buy orders first and then the sell orders, each in priority order.
+	 * Reading the lines back into an empty book rebuilds the same book.
+	 *
+	 * @param orderBook the order book to write
+	 * @param output    the stream to write to
+	 * @throws IOException if the stream can not be written
+	 */
+	public void writeOrders(OrderBook orderBook, OutputStream output) throws IOException {
+		reset();
+		appendOrders(orderBook.getBuyOrders(), output);
+		appendOrders(orderBook.getSellOrders(), output);
+		writeTo(output);
+	}
+
+	private void appendOrders(List<Order> orders, OutputStream output) throws IOException {
+		for (Order order : orders) {
+			appendOrder(order);
+			appendNewLine();
+			if (length >= BOOK_FLUSH_THRESHOLD) {
+				writeTo(output);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes in the buffer.
+	 *
+	 * @return the length of the formatted content
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Tells whether the buffer holds exactly the given bytes, as when checking a
+	 * line against one read from another exchange.
+	 *
+	 * @param bytes  the array holding the bytes to compare with
+	 * @param offset the index of the first byte to compare
+	 * @param count  the number of bytes to compare
+	 * @return true if the buffer holds the same bytes and no others
+	 */
+	public boolean contentEquals(byte[] bytes, int offset, int count) {
+		if (count != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer[i] != bytes[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the content of the buffer as a string.
+	 *
+	 * @return the formatted content
+	 */
+	@Override
+	public String toString() {
+		return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+	}
+
+	private void ensureCapacity(int extra) {
+		if (length + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+
+	private void append(char c) {
+		ensureCapacity(1);
+		buffer[length++] = (byte) c;
+	}
+
+	private void append(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void appendBlanks(int count) {
+		ensureCapacity(count);
+		Arrays.fill(buffer, length, length + count, (byte) ' ');
+		length += count;
+	}
+
+	private void appendId(long idCode) {
+		ensureCapacity(OrderIdCodec.decodedLength(idCode));
+		length = OrderIdCodec.decode(idCode, buffer, length);
+	}
+
+	private void appendInt(int value) {
+		appendPadded(value, 0);
+	}
+
+	/**
+	 * Appends a value right-aligned in a field of the given width.
+	 */
+	private void appendPadded(int value, int width) {
+		appendNumber(value, width, false);
+	}
+
+	/**
+	 * Appends a value with its thousands separated by commas, right-aligned in a
+	 * field of the given width.
+	 */
+	private void appendGrouped(int value, int width) {
+		appendNumber(value, width, true);
+	}
+
+	private void appendNumber(int value, int width, boolean grouped) {
+		long magnitude = Math.abs((long) value);
+		int  digits    = 1;
+		for (long rest = magnitude / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		int size = digits + (grouped ? (digits - 1) / 3 : 0) + (value < 0 ? 1 : 0);
+		int pad  = Math.max(width - size, 0);
+		ensureCapacity(pad + size);
+		appendBlanks(pad);
+		int end      = length + size;
+		int position = end;
+		int written  = 0;
+		do {
+			if (grouped && written > 0 && written % 3 == 0) {
+				buffer[--position] = ',';
+			}
+			buffer[--position] = (byte) ('0' + magnitude % 10);
+			magnitude /= 10;
+			written++;
+		} while (magnitude > 0);
+		if (value < 0) {
+			buffer[--position] = '-';
+		}
+		length = end;
+	}
+}
@@ -0,0 +1,50 @@
+package org.nts.exchange.verifier.cli.snapshot;
+
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
+/**
+ *
+ * The layout of a binary order book snapshot, shared by
+ * {@link BookSnapshotWriter} and {@link BookSnapshotReader}.
+ *
+ * A snapshot starts with the {@link #MAGIC} number and a {@link #VERSION}
+ * byte, followed by the buy side and then the sell side, each in priority
+ * order:
+ *
+ * <pre>
+ * side  := levelCount level*
+ * level := priceDelta orderCount order*
+ * order := sequenceDelta quantity id
+ * </pre>
+ *
+ * and ends with the total number of orders as a check. Every number is a
+ * varint, seven bits per byte with the high bit set on all but the last byte.
+ * Price and sequence deltas are taken from the previous level and order of the
+ * same side, starting from zero, and are zigzag encoded so that small steps in
+ * either direction stay short. An id is its {@link OrderIdCodec} code, or, for
+ * an id whose code is a hash, {@link OrderIdCodec#NO_CODE} followed by the
+ * length and the UTF-8 bytes of the id.
+ */
+final class BookSnapshot {
+
+	/**
+	 * The first four bytes of a snapshot, "NTSB".
+	 */
+	static final int MAGIC   = 0x4E545342;
+
+	/**
+	 * The version of the layout written.
+	 */
+	static final int VERSION = 1;
+
+	private BookSnapshot() {
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
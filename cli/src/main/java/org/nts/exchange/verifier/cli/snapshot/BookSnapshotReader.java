@@ -0,0 +1,126 @@
+package org.nts.exchange.verifier.cli.snapshot;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+/**
+ *
+ * Restores an order book from a binary snapshot written by
+ * {@link BookSnapshotWriter}.
+ *
+ * The snapshot is mapped into memory and decoded in a single pass. Its orders
+ * already rest in priority order and can not cross, so they are handed to
+ * {@link OrderBook#loadOrders(List, List)} with their original sequence
+ * numbers and are never matched. The book must be empty.
+ */
+public class BookSnapshotReader {
+
+	private final String    fileName;
+	private final OrderBook orderBook;
+
+	/**
+	 * Constructs a BookSnapshotReader.
+	 *
+	 * @param fileName  The name of the snapshot file.
+	 * @param orderBook The order book to add the orders to.
+	 */
+	public BookSnapshotReader(String fileName, OrderBook orderBook) {
+		this.fileName  = fileName;
+		this.orderBook = orderBook;
+	}
+
+	/**
+	 *
+	 * Adds every order of the snapshot to the order book.
+	 *
+	 * @return the number of orders loaded
+	 * @throws IOException if the snapshot can not be read, is of an unknown
+	 *                     version or is corrupt
+	 */
+	public long load() throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot " + fileName + " is larger than 2GB");
+			}
+			ByteBuffer bytes = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			try {
+				if (bytes.getInt() != BookSnapshot.MAGIC) {
+					throw new IOException(fileName + " is not an order book snapshot");
+				}
+				int version = bytes.get();
+				if (version != BookSnapshot.VERSION) {
+					throw new IOException("Unsupported snapshot version " + version + " in " + fileName);
+				}
+				List<Order> buyOrders  = readSide(bytes, OrderSide.BUY);
+				List<Order> sellOrders = readSide(bytes, OrderSide.SELL);
+				long        orders     = buyOrders.size() + sellOrders.size();
+				if (readVarLong(bytes) != orders || bytes.hasRemaining()) {
+					throw new IOException("Corrupt snapshot " + fileName);
+				}
+				orderBook.loadOrders(buyOrders, sellOrders);
+				return orders;
+			} catch (BufferUnderflowException e) {
+				throw new IOException("Truncated snapshot " + fileName, e);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Corrupt snapshot " + fileName + " : " + e.getMessage(), e);
+			}
+		}
+	}
+
+	private static List<Order> readSide(ByteBuffer bytes, OrderSide side) throws IOException {
+		long        levels   = readVarLong(bytes);
+		List<Order> orders   = new ArrayList<>();
+		long        price    = 0;
+		long        sequence = 0;
+		for (long level = 0; level < levels; level++) {
+			price += BookSnapshot.unzigzag(readVarLong(bytes));
+			long levelOrders = readVarLong(bytes);
+			for (long i = 0; i < levelOrders; i++) {
+				sequence += BookSnapshot.unzigzag(readVarLong(bytes));
+				int   quantity = (int) readVarLong(bytes);
+				Order order    = readOrder(bytes, side, (int) price, quantity);
+				order.setSequence(sequence);
+				orders.add(order);
+			}
+		}
+		return orders;
+	}
+
+	/**
+	 * Reads the id of an order, its code or the id itself, into a new order.
+	 */
+	private static Order readOrder(ByteBuffer bytes, OrderSide side, int price, int quantity) throws IOException {
+		long idCode = readVarLong(bytes);
+		if (idCode != OrderIdCodec.NO_CODE) {
+			return new Order(idCode, side, price, quantity);
+		}
+		byte[] id = new byte[(int) readVarLong(bytes)];
+		bytes.get(id);
+		return new Order(new String(id, StandardCharsets.UTF_8), side, price, quantity);
+	}
+
+	private static long readVarLong(ByteBuffer bytes) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = bytes.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint at offset " + bytes.position());
+	}
+}
@@ -0,0 +1,181 @@
+package org.nts.exchange.verifier.cli.snapshot;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.nts.exchange.verifier.cli.output.OrderWriter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * Writes the resting orders of a matching engine's book to a binary snapshot,
+ * the compact counterpart of
+ * {@link org.nts.exchange.verifier.cli.output.FileOrderWriter}. The layout is
+ * described by {@link BookSnapshot}.
+ *
+ * The snapshot keeps the sequence number of every order, so
+ * {@link BookSnapshotReader} restores the book with its time priorities as they
+ * were. It is written to a temporary file that replaces the snapshot once
+ * complete, so a crash never leaves half a snapshot behind.
+ */
+@Log4j2
+public class BookSnapshotWriter implements OrderWriter {
+
+	private static final int     BUFFER_SIZE = 1 << 16;
+
+	private final String         outputFileName;
+	private final MatchingEngine matchingEngine;
+	private byte[]               buffer;
+	private int                  length;
+	private OutputStream         output;
+
+	/**
+	 * Constructs a BookSnapshotWriter.
+	 *
+	 * @param outputFileName The name of the snapshot file.
+	 * @param matchingEngine The matching engine whose book is written.
+	 */
+	public BookSnapshotWriter(String outputFileName, MatchingEngine matchingEngine) {
+		this.outputFileName = outputFileName;
+		this.matchingEngine = matchingEngine;
+	}
+
+	/**
+	 * Writes the snapshot, logging any error.
+	 */
+	@Override
+	public void push() {
+		try {
+			writeSnapshot();
+		} catch (IOException e) {
+			log.error("Error writing snapshot {} : {}", outputFileName, e.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * Writes the snapshot.
+	 *
+	 * @return the number of orders written
+	 * @throws IOException if the snapshot can not be written
+	 */
+	public long writeSnapshot() throws IOException {
+		OrderBook orderBook = matchingEngine.getOrderBook();
+		Path      target    = Paths.get(outputFileName);
+		Path      temporary = target.resolveSibling(target.getFileName() + ".tmp");
+		long      orders;
+		buffer = new byte[BUFFER_SIZE];
+		length = 0;
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+			output = file;
+			writeInt(BookSnapshot.MAGIC);
+			writeByte(BookSnapshot.VERSION);
+			orders = writeSide(orderBook.getBuyOrders()) + writeSide(orderBook.getSellOrders());
+			writeVarLong(orders);
+			flush();
+			file.getFD().sync();
+		} finally {
+			output = null;
+			buffer = null;
+		}
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return orders;
+	}
+
+	/**
+	 * Writes the orders of one side, given in priority order, level by level.
+	 */
+	private long writeSide(List<Order> orders) throws IOException {
+		int levels = 0;
+		for (int i = 0; i < orders.size(); i++) {
+			if (i == 0 || orders.get(i).getPrice() != orders.get(i - 1).getPrice()) {
+				levels++;
+			}
+		}
+		writeVarLong(levels);
+
+		long previousPrice    = 0;
+		long previousSequence = 0;
+		int  levelStart       = 0;
+		while (levelStart < orders.size()) {
+			int price    = orders.get(levelStart).getPrice();
+			int levelEnd = levelStart + 1;
+			while (levelEnd < orders.size() && orders.get(levelEnd).getPrice() == price) {
+				levelEnd++;
+			}
+			writeVarLong(BookSnapshot.zigzag(price - previousPrice));
+			writeVarLong(levelEnd - levelStart);
+			for (int i = levelStart; i < levelEnd; i++) {
+				Order order = orders.get(i);
+				writeVarLong(BookSnapshot.zigzag(order.getSequence() - previousSequence));
+				writeVarLong(order.getQuantity());
+				writeId(order);
+				previousSequence = order.getSequence();
+			}
+			previousPrice = price;
+			levelStart    = levelEnd;
+		}
+		return orders.size();
+	}
+
+	private void writeId(Order order) throws IOException {
+		if (!OrderIdCodec.isHashed(order.getIdCode())) {
+			writeVarLong(order.getIdCode());
+			return;
+		}
+		byte[] id = order.getId().getBytes(StandardCharsets.UTF_8);
+		writeVarLong(OrderIdCodec.NO_CODE);
+		writeVarLong(id.length);
+		ensure(id.length);
+		System.arraycopy(id, 0, buffer, length, id.length);
+		length += id.length;
+	}
+
+	private void writeInt(int value) throws IOException {
+		ensure(4);
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			buffer[length++] = (byte) (value >>> shift);
+		}
+	}
+
+	private void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeVarLong(long value) throws IOException {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void ensure(int extra) throws IOException {
+		if (length + extra > buffer.length) {
+			flush();
+			if (extra > buffer.length) {
+				buffer = Arrays.copyOf(buffer, extra);
+			}
+		}
+	}
+
+	private void flush() throws IOException {
+		output.write(buffer, 0, length);
+		length = 0;
+	}
+}
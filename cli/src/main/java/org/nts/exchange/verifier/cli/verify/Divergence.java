@@ -0,0 +1,69 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import java.util.List;
+
+import org.nts.exchange.verifier.core.orderbook.DepthLevel;
+
+import lombok.Getter;
+
+/**
+ * The first point at which the output of an exchange differs from that of the
+ * engine, as found by a {@link StreamingVerifier}.
+ */
+public final class Divergence {
+
+	@Getter
+	private final long             orderSequence;
+	@Getter
+	private final String           orderId;
+	@Getter
+	private final long             lineNumber;
+	@Getter
+	private final String           expected;
+	@Getter
+	private final String           actual;
+	@Getter
+	private final List<DepthLevel> bids;
+	@Getter
+	private final List<DepthLevel> asks;
+
+	/**
+	 * Creates a divergence.
+	 *
+	 * @param orderSequence the sequence number of the order being matched, or of
+	 *                      the last order once the input is done
+	 * @param orderId       the id of that order, or null if there was none
+	 * @param lineNumber    the number of the line of the exchange output
+	 * @param expected      the line of the exchange output, or null if it had
+	 *                      ended
+	 * @param actual        the line the engine produced, or null if it produced
+	 *                      none
+	 * @param bids          the best buy levels of the engine's book afterwards
+	 * @param asks          the best sell levels of the engine's book afterwards
+	 */
+	public Divergence(long orderSequence, String orderId, long lineNumber, String expected, String actual,
+			List<DepthLevel> bids, List<DepthLevel> asks) {
+		this.orderSequence = orderSequence;
+		this.orderId       = orderId;
+		this.lineNumber    = lineNumber;
+		this.expected      = expected;
+		this.actual        = actual;
+		this.bids          = bids;
+		this.asks          = asks;
+	}
+
+	/**
+	 * Returns the report printed for the divergence.
+	 *
+	 * @return a report over several lines
+	 */
+	@Override
+	public String toString() {
+		return "Divergence at order " + orderSequence + " (id " + orderId + "), line " + lineNumber
+				+ " of the exchange output\n"
+				+ "  expected : " + (expected != null ? expected : "<end of output>") + "\n"
+				+ "  actual   : " + (actual != null ? actual : "<nothing>") + "\n"
+				+ "  bids     : " + bids + "\n"
+				+ "  asks     : " + asks;
+	}
+}
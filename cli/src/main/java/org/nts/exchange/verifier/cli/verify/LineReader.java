@@ -0,0 +1,160 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Reads a stream one line at a time through a fixed buffer, leaving each line
+ * as bytes in the buffer, so that a file of any size is read in constant memory
+ * and without creating a string per line.
+ *
+ * A line is the bytes before a line feed, or before the end of the stream, with
+ * a trailing carriage return left out. An instance is not thread-safe.
+ */
+final class LineReader implements Closeable {
+
+	private final InputStream input;
+	private final byte[]      buffer;
+	private int               filled;
+	private int               lineStart;
+	private int               lineEnd;
+	private int               nextStart;
+	private long              lineNumber;
+	private boolean           endOfInput;
+
+	/**
+	 * Creates a reader.
+	 *
+	 * @param input      the stream to read
+	 * @param bufferSize the size of the buffer, which bounds the length of a line
+	 */
+	LineReader(InputStream input, int bufferSize) {
+		this.input  = input;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Moves to the next line.
+	 *
+	 * @return true if there is a next line, false at the end of the stream
+	 * @throws IOException if the stream can not be read or holds a line longer
+	 *                     than the buffer
+	 */
+	boolean next() throws IOException {
+		int from = nextStart;
+		while (true) {
+			for (int i = from; i < filled; i++) {
+				if (buffer[i] == '\n') {
+					return startLine(nextStart, i, i + 1);
+				}
+			}
+			if (endOfInput) {
+				return nextStart < filled && startLine(nextStart, filled, filled);
+			}
+			// Move the incomplete line to the front and read on after it
+			System.arraycopy(buffer, nextStart, buffer, 0, filled - nextStart);
+			filled   -= nextStart;
+			from      = filled;
+			nextStart = 0;
+			if (filled == buffer.length) {
+				throw new IOException("Line longer than " + buffer.length + " bytes after line " + lineNumber);
+			}
+			int read = input.read(buffer, filled, buffer.length - filled);
+			if (read == -1) {
+				endOfInput = true;
+			} else {
+				filled += read;
+			}
+		}
+	}
+
+	private boolean startLine(int start, int end, int next) {
+		lineStart = start;
+		lineEnd   = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+		nextStart = next;
+		lineNumber++;
+		return true;
+	}
+
+	/**
+	 * Returns the buffer holding the current line.
+	 *
+	 * @return the buffer, valid until the next call to {@link #next()}
+	 */
+	byte[] buffer() {
+		return buffer;
+	}
+
+	/**
+	 * Returns the index of the first byte of the current line in the buffer.
+	 *
+	 * @return the start of the line
+	 */
+	int lineStart() {
+		return lineStart;
+	}
+
+	/**
+	 * Returns the length of the current line.
+	 *
+	 * @return the number of bytes of the line
+	 */
+	int lineLength() {
+		return lineEnd - lineStart;
+	}
+
+	/**
+	 * Tells whether the current line starts with the given bytes.
+	 *
+	 * @param prefix the bytes to look for
+	 * @return true if the line starts with them
+	 */
+	boolean startsWith(byte[] prefix) {
+		return startsWith(prefix, prefix.length);
+	}
+
+	/**
+	 * Tells whether the current line starts with the first bytes of an array.
+	 *
+	 * @param prefix the array holding the bytes to look for
+	 * @param length the number of bytes to look for
+	 * @return true if the line starts with them
+	 */
+	boolean startsWith(byte[] prefix, int length) {
+		if (lineLength() < length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer[lineStart + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of the current line, counting from 1.
+	 *
+	 * @return the line number, 0 before the first line
+	 */
+	long lineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Returns the current line as a string, for reporting it.
+	 *
+	 * @return the line
+	 */
+	String line() {
+		return new String(buffer, lineStart, lineLength(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+}
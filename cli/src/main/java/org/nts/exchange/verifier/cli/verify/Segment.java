@@ -0,0 +1,46 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import lombok.Getter;
+
+/**
+ * The orders between two checkpoints, as re-verified by a
+ * {@link SegmentVerifier}.
+ */
+public final class Segment {
+
+	@Getter
+	private final long   fromOrder;
+	@Getter
+	private final long   toOrder;
+	@Getter
+	private final String mismatch;
+
+	/**
+	 * Creates a segment.
+	 *
+	 * @param fromOrder the number of orders matched before the segment
+	 * @param toOrder   the number of orders matched at its end
+	 * @param mismatch  the first difference between the book at the end of the
+	 *                  segment and the checkpoint there, or null if they are the
+	 *                  same
+	 */
+	public Segment(long fromOrder, long toOrder, String mismatch) {
+		this.fromOrder = fromOrder;
+		this.toOrder   = toOrder;
+		this.mismatch  = mismatch;
+	}
+
+	/**
+	 * Tells whether the segment ended on the book of its checkpoint.
+	 *
+	 * @return true if the segment was verified
+	 */
+	public boolean isVerified() {
+		return mismatch == null;
+	}
+
+	@Override
+	public String toString() {
+		return "Orders " + (fromOrder + 1) + " to " + toOrder + " : " + (mismatch == null ? "verified" : mismatch);
+	}
+}
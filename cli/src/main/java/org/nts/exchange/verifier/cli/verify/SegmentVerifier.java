@@ -0,0 +1,240 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.nts.exchange.verifier.cli.input.MappedFileOrderReader;
+import org.nts.exchange.verifier.cli.snapshot.BookSnapshotReader;
+import org.nts.exchange.verifier.cli.snapshot.BookSnapshotWriter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * Re-verifies a long session in parallel, one segment of orders per task, from
+ * checkpoints of the book taken along the way.
+ *
+ * A checkpoint is a {@link BookSnapshotWriter} snapshot of the book after a
+ * number of orders, named {@code checkpoint-<orders>.snapshot} in a directory.
+ * They are written by a first, sequential run of
+ * {@link #writeCheckpoints(long)}, or are snapshots the exchange took itself
+ * and named by the number of orders it had matched.
+ *
+ * {@link #verify()} splits the order file at the checkpoints and matches the
+ * segments between them on a work-stealing {@link ForkJoinPool}. Each segment
+ * starts from the book of the checkpoint before it, an empty book for the
+ * first one, and must end on the book of the checkpoint after it, every order
+ * in the same place with the same quantity and time priority. The orders after
+ * the last checkpoint are not verified.
+ */
+@Log4j2
+public class SegmentVerifier {
+
+	/**
+	 * The start of the name of a checkpoint file.
+	 */
+	public static final String           CHECKPOINT_PREFIX = "checkpoint-";
+
+	/**
+	 * The end of the name of a checkpoint file.
+	 */
+	public static final String           CHECKPOINT_SUFFIX = ".snapshot";
+
+	private static final Consumer<Trade> IGNORE_TRADE      = trade -> {
+	};
+
+	private final String                 ordersFile;
+	private final Path                   checkpointDirectory;
+	private final int                    parallelism;
+
+	/**
+	 * Creates a verifier.
+	 *
+	 * @param ordersFile          the orders of the session
+	 * @param checkpointDirectory the directory of the checkpoints
+	 * @param parallelism         the number of worker threads
+	 */
+	public SegmentVerifier(String ordersFile, Path checkpointDirectory, int parallelism) {
+		this.ordersFile          = ordersFile;
+		this.checkpointDirectory = checkpointDirectory;
+		this.parallelism         = parallelism;
+	}
+
+	/**
+	 * Matches the whole session from an empty book and writes a checkpoint every
+	 * given number of orders, and one after the last order.
+	 *
+	 * @param interval the number of orders between checkpoints
+	 * @return the number of orders matched
+	 * @throws IOException if the orders can not be read or a checkpoint written
+	 */
+	public long writeCheckpoints(long interval) throws IOException {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("The checkpoint interval must be positive");
+		}
+		Files.createDirectories(checkpointDirectory);
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(
+				new PriceLadderOrderBook(), new DiscardingTradeStore(), false);
+		long[]                          orderCount     = new long[1];
+		try {
+			new MappedFileOrderReader(ordersFile, matchingEngine, order -> {
+				matchingEngine.match(order, IGNORE_TRADE);
+				if (++orderCount[0] % interval == 0) {
+					writeCheckpoint(matchingEngine, orderCount[0]);
+				}
+			}).readMappedOrders();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (orderCount[0] % interval != 0) {
+			writeCheckpoint(matchingEngine, orderCount[0]);
+		}
+		return orderCount[0];
+	}
+
+	private void writeCheckpoint(PriceTimePriorityMatchingEngine matchingEngine, long orderCount) {
+		try {
+			new BookSnapshotWriter(checkpointOf(orderCount).toString(), matchingEngine).writeSnapshot();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the file of the checkpoint after a number of orders.
+	 *
+	 * @param orderCount the number of orders matched
+	 * @return the checkpoint file
+	 */
+	public Path checkpointOf(long orderCount) {
+		return checkpointDirectory.resolve(CHECKPOINT_PREFIX + orderCount + CHECKPOINT_SUFFIX);
+	}
+
+	/**
+	 * Verifies the segments between the checkpoints and waits for all of them to
+	 * finish.
+	 *
+	 * @return every segment, in the order of the session
+	 * @throws IOException if the checkpoints can not be listed or the order file
+	 *                     holds fewer orders than the last checkpoint
+	 */
+	public List<Segment> verify() throws IOException {
+		List<Long> checkpoints = listCheckpoints();
+		if (checkpoints.isEmpty() || checkpoints.get(0) != 0) {
+			checkpoints.add(0, 0L);
+		}
+		long[] orderCounts = new long[checkpoints.size()];
+		for (int i = 0; i < orderCounts.length; i++) {
+			orderCounts[i] = checkpoints.get(i);
+		}
+		long[]       offsets = MappedFileOrderReader.findOrderOffsets(ordersFile, orderCounts);
+
+		ForkJoinPool pool    = new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<Segment>> tasks = new ArrayList<>(orderCounts.length);
+			for (int i = 1; i < orderCounts.length; i++) {
+				int segment = i;
+				tasks.add(pool.submit(() -> verifySegment(orderCounts[segment - 1], orderCounts[segment],
+						offsets[segment - 1], offsets[segment])));
+			}
+			List<Segment> segments = new ArrayList<>(tasks.size());
+			for (ForkJoinTask<Segment> task : tasks) {
+				segments.add(task.join());
+			}
+			return segments;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Lists the numbers of orders of the checkpoints in the directory.
+	 */
+	private List<Long> listCheckpoints() throws IOException {
+		try (Stream<Path> files = Files.list(checkpointDirectory)) {
+			return files.map(file -> file.getFileName().toString())
+					.filter(name -> name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(CHECKPOINT_SUFFIX))
+					.map(name -> Long.valueOf(
+							name.substring(CHECKPOINT_PREFIX.length(), name.length() - CHECKPOINT_SUFFIX.length())))
+					.sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 *
+	 * Matches the orders of one segment from the checkpoint before it and
+	 * compares the book with the checkpoint after it.
+	 *
+	 * @param fromOrder  the number of orders before the segment
+	 * @param toOrder    the number of orders at its end
+	 * @param fromOffset the offset of its first order in the file
+	 * @param toOffset   the offset after its last order
+	 * @return the segment, with the first difference found if any
+	 */
+	Segment verifySegment(long fromOrder, long toOrder, long fromOffset, long toOffset) {
+		try {
+			OrderBook orderBook = new PriceLadderOrderBook();
+			if (fromOrder > 0) {
+				new BookSnapshotReader(checkpointOf(fromOrder).toString(), orderBook).load();
+			}
+			PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(orderBook,
+					new DiscardingTradeStore(), false);
+			long[]                          sequence       = { fromOrder };
+			new MappedFileOrderReader(ordersFile, matchingEngine, order -> {
+				// The time priority the order had in the whole session
+				order.setSequence(++sequence[0]);
+				matchingEngine.match(order, IGNORE_TRADE);
+			}).readMappedOrders(fromOffset, toOffset);
+
+			OrderBook expected = new PriceLadderOrderBook();
+			new BookSnapshotReader(checkpointOf(toOrder).toString(), expected).load();
+			String mismatch = compare("buy", orderBook.getBuyOrders(), expected.getBuyOrders());
+			if (mismatch == null) {
+				mismatch = compare("sell", orderBook.getSellOrders(), expected.getSellOrders());
+			}
+			return new Segment(fromOrder, toOrder, mismatch);
+		} catch (IOException e) {
+			log.error("Error verifying orders {} to {} : {}", fromOrder + 1, toOrder, e.getMessage());
+			return new Segment(fromOrder, toOrder, "not verified, " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Compares the orders of one side, given in priority order, with those of
+	 * the checkpoint.
+	 *
+	 * @return the first difference, or null if the sides are the same
+	 */
+	private static String compare(String side, List<Order> actual, List<Order> expected) {
+		for (int i = 0; i < actual.size() && i < expected.size(); i++) {
+			Order actualOrder   = actual.get(i);
+			Order expectedOrder = expected.get(i);
+			if (!actualOrder.hasSameId(expectedOrder)
+					|| actualOrder.getPrice() != expectedOrder.getPrice()
+					|| actualOrder.getQuantity() != expectedOrder.getQuantity()
+					|| actualOrder.getSequence() != expectedOrder.getSequence()) {
+				return side + " order " + (i + 1) + " is " + actualOrder.getId() + " " + actualOrder
+						+ " but the checkpoint has " + expectedOrder.getId() + " " + expectedOrder;
+			}
+		}
+		if (actual.size() != expected.size()) {
+			return actual.size() + " " + side + " orders but the checkpoint has " + expected.size();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,215 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.nts.exchange.verifier.cli.input.MappedFileOrderReader;
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+
+/**
+ *
+ * Checks the output of another exchange against that of the engine while both
+ * are being produced, and stops at the first line where they differ.
+ *
+ * The orders are read from a mapped file and matched one at a time, starting
+ * from an empty book, while the output of the exchange is read line by line
+ * through a fixed buffer. Every trade of the engine is formatted by an
+ * {@link OutputFormatter} and compared byte for byte with the next line of the
+ * output, so neither side is turned into strings or kept, and memory does not
+ * grow with the length of the session. Once the orders are done, the rest of
+ * the output must be the book left by the engine, line for line, so an output
+ * that stops after the trades diverges unless that book is empty.
+ *
+ * A mismatch is reported as a {@link Divergence} as soon as the order that
+ * caused it has been matched, with the best levels of the book as that order
+ * left it.
+ */
+public class StreamingVerifier {
+
+	/**
+	 * The number of levels of each side given with a divergence.
+	 */
+	public static final int                       BOOK_EXCERPT_LEVELS = 5;
+
+	/**
+	 * The size of the buffer the output of the exchange is read through.
+	 */
+	public static final int                       BUFFER_SIZE         = 1 << 16;
+
+	private static final byte[]                   TRADE_PREFIX        = "trade "
+			.getBytes(StandardCharsets.US_ASCII);
+
+	private final String                          ordersFile;
+	private final Path                            exchangeOutput;
+	private final PriceTimePriorityMatchingEngine matchingEngine;
+	private final OutputFormatter                 formatter;
+	private final List<Trade>                     trades;
+	// "trade <order-id>," for the order just matched
+	private byte[]                                tradePrefix;
+	private LineReader                            output;
+	private boolean                               hasLine;
+	private Order                                 lastOrder;
+	private Divergence                            divergence;
+	private long                                  orderCount;
+	private long                                  tradeCount;
+
+	/**
+	 * Thrown through the order reader to stop it at the first divergence.
+	 */
+	private static final class DivergenceFound extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private DivergenceFound() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Creates a verifier.
+	 *
+	 * @param ordersFile     the orders the exchange was given
+	 * @param exchangeOutput what the exchange printed for them
+	 */
+	public StreamingVerifier(String ordersFile, Path exchangeOutput) {
+		this.ordersFile     = ordersFile;
+		this.exchangeOutput = exchangeOutput;
+		this.matchingEngine = new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(),
+				new DiscardingTradeStore(), false);
+		this.formatter      = new OutputFormatter();
+		this.trades         = new ArrayList<>();
+		this.tradePrefix    = Arrays.copyOf(TRADE_PREFIX, 64);
+	}
+
+	/**
+	 * Matches the orders and compares the output, up to the first difference.
+	 *
+	 * @return the first divergence, or null if the outputs are the same
+	 * @throws IOException if either file can not be read
+	 */
+	public Divergence verify() throws IOException {
+		try (LineReader reader = new LineReader(Files.newInputStream(exchangeOutput), BUFFER_SIZE)) {
+			output  = reader;
+			hasLine = reader.next();
+			new MappedFileOrderReader(ordersFile, matchingEngine, this::matchOrder).readMappedOrders();
+			verifyBook();
+			return null;
+		} catch (DivergenceFound e) {
+			return divergence;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the number of orders matched.
+	 *
+	 * @return the number of orders, up to and including a diverging one
+	 */
+	public long getOrderCount() {
+		return orderCount;
+	}
+
+	/**
+	 * Returns the number of trades found the same in both outputs.
+	 *
+	 * @return the number of trades verified
+	 */
+	public long getTradeCount() {
+		return tradeCount;
+	}
+
+	private void matchOrder(Order order) {
+		trades.clear();
+		matchingEngine.match(order, trades::add);
+		lastOrder = order;
+		orderCount++;
+		for (Trade trade : trades) {
+			formatter.reset().appendTrade(trade);
+			if (!hasLine || !output.startsWith(TRADE_PREFIX) || !matchesLine()) {
+				throw diverge();
+			}
+			tradeCount++;
+			advance();
+		}
+		if (hasLine && isTradeOf(order)) {
+			// The exchange made more trades for the order than the engine
+			formatter.reset();
+			throw diverge();
+		}
+	}
+
+	private boolean isTradeOf(Order order) {
+		byte[] hashedId = OrderIdCodec.isHashed(order.getIdCode()) ? order.getId().getBytes(StandardCharsets.UTF_8)
+				: null;
+		int    length   = TRADE_PREFIX.length
+				+ (hashedId != null ? hashedId.length : OrderIdCodec.decodedLength(order.getIdCode())) + 1;
+		if (length > tradePrefix.length) {
+			tradePrefix = Arrays.copyOf(tradePrefix, length * 2);
+		}
+		if (hashedId != null) {
+			System.arraycopy(hashedId, 0, tradePrefix, TRADE_PREFIX.length, hashedId.length);
+		} else {
+			OrderIdCodec.decode(order.getIdCode(), tradePrefix, TRADE_PREFIX.length);
+		}
+		tradePrefix[length - 1] = ',';
+		return output.startsWith(tradePrefix, length);
+	}
+
+	private void verifyBook() {
+		OrderBook   orderBook  = matchingEngine.getOrderBook();
+		List<Order> buyOrders  = orderBook.getBuyOrders();
+		List<Order> sellOrders = orderBook.getSellOrders();
+		for (int i = 0; i < buyOrders.size() || i < sellOrders.size(); i++) {
+			formatter.reset().appendBookLine(i < buyOrders.size() ? buyOrders.get(i) : null,
+					i < sellOrders.size() ? sellOrders.get(i) : null);
+			if (!hasLine || !matchesLine()) {
+				throw diverge();
+			}
+			advance();
+		}
+		if (hasLine) {
+			formatter.reset();
+			throw diverge();
+		}
+	}
+
+	private boolean matchesLine() {
+		return formatter.contentEquals(output.buffer(), output.lineStart(), output.lineLength());
+	}
+
+	private void advance() {
+		try {
+			hasLine = output.next();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Records the divergence between the current line of the output and the line
+	 * in the formatter, an empty formatter standing for no line at all.
+	 */
+	private DivergenceFound diverge() {
+		OrderBook orderBook = matchingEngine.getOrderBook();
+		divergence = new Divergence(lastOrder != null ? lastOrder.getSequence() : 0,
+				lastOrder != null ? lastOrder.getId() : null, hasLine ? output.lineNumber() : output.lineNumber() + 1,
+				hasLine ? output.line() : null, formatter.length() > 0 ? formatter.toString() : null,
+				orderBook.getDepth(OrderSide.BUY, BOOK_EXCERPT_LEVELS),
+				orderBook.getDepth(OrderSide.SELL, BOOK_EXCERPT_LEVELS));
+		return new DivergenceFound();
+	}
+}
@@ -0,0 +1,93 @@
+package org.nts.exchange.verifier.cli.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.cli.input.FileOrderReader;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class BatchVerifierTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testEachFileIsVerifiedInIsolation() throws IOException, NoSuchAlgorithmException {
+		Path sessions = Files.createDirectories(tempDir.resolve("sessions"));
+		// The same order ids in every file must not leak between books
+		for (int i = 0; i < 12; i++) {
+			StringBuilder orders = new StringBuilder();
+			for (int j = 0; j <= i; j++) {
+				orders.append(j).append(j % 2 == 0 ? ",B," : ",S,").append(100 + j % 3).append(',').append(10 + i)
+						.append('\n');
+			}
+			Files.write(sessions.resolve(String.format("session-%02d.txt", i)),
+					orders.toString().getBytes(StandardCharsets.US_ASCII));
+		}
+		Path         results = tempDir.resolve("results");
+
+		List<Path>   inputs  = BatchVerifier.collectInputs(Collections.singletonList(sessions.toString()));
+		List<String> digests = new BatchVerifier(results, 4).verify(inputs);
+
+		assertEquals(12, inputs.size());
+		for (int i = 0; i < inputs.size(); i++) {
+			Path         input    = inputs.get(i);
+			List<String> expected = new FileOrderReader(input.toString(),
+					new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore())).parse();
+			Path         output   = results.resolve(input.getFileName() + BatchVerifier.OUTPUT_SUFFIX);
+			assertEquals(expected, Files.readAllLines(output));
+
+			StringBuilder hex = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("MD5").digest(Files.readAllBytes(output))) {
+				hex.append(String.format("%02x", b));
+			}
+			assertEquals(hex.toString(), digests.get(i));
+			assertEquals(Arrays.asList(hex + "  " + output.getFileName()),
+					Files.readAllLines(results.resolve(output.getFileName() + BatchVerifier.MD5_SUFFIX)));
+		}
+	}
+
+	@Test
+	void testMissingFileFailsAlone() throws IOException {
+		Path input = tempDir.resolve("orders.txt");
+		Files.write(input, "1,B,100,10\n2,S,100,4\n".getBytes(StandardCharsets.US_ASCII));
+		List<Path>   inputs  = new ArrayList<>(Arrays.asList(tempDir.resolve("missing.txt"), input));
+
+		List<String> digests = new BatchVerifier(tempDir.resolve("results"), 2).verify(inputs);
+
+		assertNull(digests.get(0));
+		assertEquals(Arrays.asList("trade 2,1,100,4", "          6    100 |                   "),
+				Files.readAllLines(tempDir.resolve("results").resolve("orders.txt.out")));
+	}
+
+	@Test
+	void testSameNameInAnotherDirectoryFails() throws IOException {
+		Path first  = Files.createDirectories(tempDir.resolve("monday")).resolve("orders.txt");
+		Path second = Files.createDirectories(tempDir.resolve("tuesday")).resolve("orders.txt");
+		Files.write(first, "1,B,100,10\n2,S,100,4\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(second, "1,S,100,10\n".getBytes(StandardCharsets.US_ASCII));
+
+		List<String> digests = new BatchVerifier(tempDir.resolve("results"), 2).verify(Arrays.asList(first, second));
+
+		assertNotNull(digests.get(0));
+		assertNull(digests.get(1));
+		assertEquals(Arrays.asList("trade 2,1,100,4", "          6    100 |                   "),
+				Files.readAllLines(tempDir.resolve("results").resolve("orders.txt.out")));
+	}
+}
@@ -3,6 +3,7 @@ package org.nts.exchange.verifier.cli.input;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
 import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
 import org.nts.exchange.verifier.core.orderbook.InMemoryOrderBook;
 import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
 import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
 import org.nts.exchange.verifier.core.tradestore.TradeStore;
 
@@ -37,13 +39,28 @@ class ConsoleReaderTest {
 		List<String> output = consoleReader.parse();
 
 		assertEquals(4, output.size());
-		assertEquals("trade 1,2,50,10 ", output.get(0));
-		assertEquals("trade 2,3,50,10 ", output.get(1));
-		assertEquals("trade 3,4,55,10 ", output.get(2));
-		assertEquals("                |    55        20", output.get(3));
+		assertEquals("trade 2,1,50,10", output.get(0));
+		assertEquals("trade 3,2,50,10", output.get(1));
+		assertEquals("trade 4,3,55,10", output.get(2));
+		assertEquals("                   |     55          20", output.get(3));
 
 		// Verify that orders were added to the order book correctly
 		assertEquals(0, matchingEngine.getOrderBook().getBuyOrders().size());
 		assertEquals(1, matchingEngine.getOrderBook().getSellOrders().size());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testRepeatedIdLeavesTheRestingOrder() throws IOException {
+		// Order 3 is given again on the other side, and both must trade as given
+		List<String> expected = Arrays.asList("trade 4,1,99,1000", "trade 4,2,99,500", "trade 4,3,98,500",
+				"        700     98 |    101       2,000");
+		for (OrderBook book : Arrays.asList(new InMemoryOrderBook(), new PriceLadderOrderBook())) {
+			MatchingEngine engine = new PriceTimePriorityMatchingEngine(book, new InMemoryTradeStore());
+			assertEquals(expected, new FileOrderReader("../test3.txt", engine).parse());
+			assertEquals(expected,
+					new MappedFileOrderReader("../test3.txt", new PriceTimePriorityMatchingEngine(
+							book instanceof InMemoryOrderBook ? new InMemoryOrderBook() : new PriceLadderOrderBook(),
+							new InMemoryTradeStore())).parse());
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package org.nts.exchange.verifier.cli.input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class MappedFileOrderReaderTest {
+
+	private final String fileName = "src/test/resources/orders.csv";
+
+	@TempDir
+	Path                 tempDir;
+
+	private static MatchingEngine newMatchingEngine() {
+		return new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore());
+	}
+
+	@Test
+	void testParseMatchesFileOrderReader() throws IOException {
+		List<String> expected = new FileOrderReader(fileName, newMatchingEngine()).parse();
+		List<String> actual   = new MappedFileOrderReader(fileName, newMatchingEngine()).parse();
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testReadAcrossWindowsSkippingInvalidLines() throws IOException {
+		Path input = tempDir.resolve("orders.csv");
+		Files.write(input, ("10000,B,98,25500\r\n" + "10005,S,105,20000\n" + "bad line\n" + "\n"
+				+ "A-7,s,100,500\n" + "10002,S,1x0,10000\n" + "long-order-id-0001,b,99,50000").getBytes(
+						StandardCharsets.US_ASCII));
+
+		List<Order> orders = new ArrayList<>();
+		long        count  = new MappedFileOrderReader(input.toString(), newMatchingEngine(), orders::add, 32)
+				.readMappedOrders();
+
+		assertEquals(4, count);
+		assertEquals("10000", orders.get(0).getId());
+		assertEquals(25500, orders.get(0).getQuantity());
+		assertEquals("10005", orders.get(1).getId());
+		assertEquals("A-7", orders.get(2).getId());
+		assertEquals("SELL 500 @ 100 seq:0", orders.get(2).toString());
+		assertEquals("long-order-id-0001", orders.get(3).getId());
+		assertEquals("BUY 50000 @ 99 seq:0", orders.get(3).toString());
+	}
+
+	@Test
+	void testLongIdsAreMatchedAndPrintedAsGiven() throws IOException {
+		Path          input  = tempDir.resolve("uuids.csv");
+		StringBuilder orders = new StringBuilder();
+		for (int i = 0; i < 2_000; i++) {
+			orders.append(String.format("%08x-4f89-11d3-9a0c-0305e82c3301", i)).append(i % 2 == 0 ? ",B," : ",S,")
+					.append(100 + i % 7).append(',').append(10 + i % 13).append('\n');
+		}
+		Files.write(input, orders.toString().getBytes(StandardCharsets.US_ASCII));
+
+		List<String> expected = new FileOrderReader(input.toString(), newMatchingEngine()).parse();
+		List<String> actual   = new MappedFileOrderReader(input.toString(), newMatchingEngine()).parse();
+
+		assertEquals(expected, actual);
+		assertEquals("trade 00000002-4f89-11d3-9a0c-0305e82c3301,00000001-4f89-11d3-9a0c-0305e82c3301,101,11",
+				actual.get(0));
+	}
+}
@@ -0,0 +1,56 @@
+package org.nts.exchange.verifier.cli.input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.registry.BookRegistry;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class ShardedOrderReaderTest {
+
+	private final String fileName = "src/test/resources/orders.csv";
+
+	@TempDir
+	Path                 tempDir;
+
+	private static BookRegistry newRegistry() {
+		return new BookRegistry(2, PriceLadderOrderBook::new, InMemoryTradeStore::new);
+	}
+
+	@Test
+	void testParseWithoutSymbolsMatchesFileOrderReader() throws IOException {
+		List<String> expected = new FileOrderReader(fileName,
+				new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore())).parse();
+		List<String> actual   = new ShardedOrderReader(fileName, newRegistry()).parse();
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testParseGroupsOutputBySymbol() throws IOException {
+		Path input = tempDir.resolve("orders.csv");
+		Files.write(input, ("MSFT,1,B,100,500\n" + "AAPL,1,S,200,300\n" + "MSFT,2,S,100,200\n" + "3,B,50,10\n"
+				+ "AAPL,2,B,201,100\n" + "# comment\n" + "bad,line\n").getBytes(StandardCharsets.US_ASCII));
+
+		List<String> output = new ShardedOrderReader(input.toString(), newRegistry()).parse();
+
+		assertEquals(Arrays.asList(
+				"         10     50 |                   ",
+				"symbol AAPL",
+				"trade 2,1,200,100",
+				"                   |    200         200",
+				"symbol MSFT",
+				"trade 2,1,100,200",
+				"        300    100 |                   "), output);
+	}
+}
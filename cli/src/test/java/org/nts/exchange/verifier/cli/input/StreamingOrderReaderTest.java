@@ -0,0 +1,53 @@
+package org.nts.exchange.verifier.cli.input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.pool.TradePool;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class StreamingOrderReaderTest {
+
+	private static final String ORDERS = "10000,B,98,25500\n10005,S,105,20000\n10001,S,100,500\n10002,S,100,10000\n"
+			+ "10003,B,99,50000\n10004,S,103,100\n10006,B,105,16000";
+
+	@TempDir
+	Path                        tempDir;
+
+	@Test
+	void testStreamMatchesFileOrderReader() throws IOException {
+		Path input = tempDir.resolve("orders.csv");
+		Files.write(input, ORDERS.getBytes(StandardCharsets.US_ASCII));
+		List<String>            expected  = new FileOrderReader(input.toString(),
+				new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore())).parse();
+
+		OrderPool               orderPool = new OrderPool(8);
+		SequencedMatchingEngine engine    = new SequencedMatchingEngine(new PriceLadderOrderBook(),
+				new DiscardingTradeStore(), 4, Thread::new, orderPool, new TradePool(4));
+		ByteArrayOutputStream   output    = new ByteArrayOutputStream();
+		// A buffer shorter than two lines makes every line straddle a read
+		List<String>            returned  = new StreamingOrderReader(
+				new ByteArrayInputStream(ORDERS.getBytes(StandardCharsets.US_ASCII)), output, engine, orderPool, 24)
+				.parse();
+
+		assertTrue(returned.isEmpty());
+		assertEquals(expected, Arrays.asList(new String(output.toByteArray(), StandardCharsets.US_ASCII).split("\n")));
+		assertEquals(6, expected.size());
+	}
+}
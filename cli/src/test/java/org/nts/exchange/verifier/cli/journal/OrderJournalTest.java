@@ -0,0 +1,121 @@
+package org.nts.exchange.verifier.cli.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.cli.input.StreamingOrderReader;
+import org.nts.exchange.verifier.cli.output.OutputFormatter;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+
+class OrderJournalTest {
+
+	private static final String ORDERS = "10000,B,98,25500\n10005,S,105,20000\n10001,S,100,500\n10002,S,100,10000\n"
+			+ "10003,B,99,50000\n10004,S,103,100\n10006,B,105,16000\n10007,S,98,100\n";
+
+	@TempDir
+	Path                        tempDir;
+
+	private static String bookLines(OrderBook orderBook) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new OutputFormatter().writeBook(orderBook, output);
+		return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	void testRecoverFromCheckpointAndJournalTail() throws IOException {
+		String                  checkpoint = tempDir.resolve("backup.txt").toString();
+		OrderBook               orderBook  = new PriceLadderOrderBook();
+		SequencedMatchingEngine engine     = new SequencedMatchingEngine(orderBook, new DiscardingTradeStore());
+		// Checkpoints after every three orders, so the run ends with a journal tail
+		try (OrderJournal journal = new OrderJournal(checkpoint, orderBook, 2, 1000, 3)) {
+			assertEquals(0, journal.recover(engine, engine::match));
+			engine.addListener(journal);
+			new StreamingOrderReader(new ByteArrayInputStream(ORDERS.getBytes(StandardCharsets.US_ASCII)),
+					new ByteArrayOutputStream(), engine, null).parse();
+			assertEquals(2, journal.getGeneration());
+		}
+		assertEquals("# journal 2", Files.readAllLines(tempDir.resolve("backup.txt")).get(0));
+		assertFalse(Files.exists(tempDir.resolve("backup.txt.journal-1")));
+		assertEquals(2, Files.readAllLines(tempDir.resolve("backup.txt.journal-2")).size());
+
+		OrderBook               recovered       = new PriceLadderOrderBook();
+		SequencedMatchingEngine recoveredEngine = new SequencedMatchingEngine(recovered, new DiscardingTradeStore());
+		try (OrderJournal journal = new OrderJournal(checkpoint, recovered)) {
+			journal.recover(recoveredEngine, recoveredEngine::match);
+			assertEquals(3, journal.getGeneration());
+		}
+		assertEquals(bookLines(orderBook), bookLines(recovered));
+	}
+
+	@Test
+	void testRecoverDropsTornLine() throws IOException {
+		String checkpoint = tempDir.resolve("backup.txt").toString();
+		Path   tail       = tempDir.resolve("backup.txt.journal-0");
+		Files.write(tail, "1,B,100,10\n2,S,105,5".getBytes(StandardCharsets.US_ASCII));
+
+		OrderBook               orderBook = new PriceLadderOrderBook();
+		SequencedMatchingEngine engine    = new SequencedMatchingEngine(orderBook, new DiscardingTradeStore());
+		try (OrderJournal journal = new OrderJournal(checkpoint, orderBook)) {
+			assertEquals(1, journal.recover(engine, engine::match));
+		}
+		assertEquals("1,B,100,10\n", new String(Files.readAllBytes(tail), StandardCharsets.US_ASCII));
+		assertEquals(1, orderBook.getBuyOrders().size());
+		assertTrue(orderBook.getSellOrders().isEmpty());
+	}
+
+	@Test
+	void testIdleEngineCommitsPendingOrders() throws IOException, InterruptedException {
+		String                  checkpoint = tempDir.resolve("backup.txt").toString();
+		Path                    tail       = tempDir.resolve("backup.txt.journal-0");
+		OrderBook               orderBook  = new PriceLadderOrderBook();
+		SequencedMatchingEngine engine     = new SequencedMatchingEngine(orderBook, new DiscardingTradeStore());
+		// Neither the group size nor the delay is ever reached
+		try (OrderJournal journal = new OrderJournal(checkpoint, orderBook, 1000, 3_600_000, 1000)) {
+			journal.recover(engine, engine::match);
+			engine.addListener(journal);
+			engine.start();
+			engine.submit(new Order("1", OrderSide.BUY, 100, 10));
+			engine.submit(new Order("2", OrderSide.SELL, 105, 5));
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (Files.size(tail) == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals("1,B,100,10\n2,S,105,5\n", new String(Files.readAllBytes(tail), StandardCharsets.US_ASCII));
+			engine.close();
+		}
+	}
+
+	@Test
+	void testWriteErrorStopsMatching() throws IOException {
+		String                  checkpoint = tempDir.resolve("backup.txt").toString();
+		OrderBook               orderBook  = new PriceLadderOrderBook();
+		SequencedMatchingEngine engine     = new SequencedMatchingEngine(orderBook, new DiscardingTradeStore());
+		OrderJournal            journal    = new OrderJournal(checkpoint, orderBook, 1, 1000, 1000);
+		journal.recover(engine, engine::match);
+		engine.addListener(journal);
+		// Every later write to the journal fails
+		journal.close();
+
+		assertThrows(UncheckedIOException.class, () -> engine.match(new Order("1", OrderSide.BUY, 100, 10)));
+		assertThrows(UncheckedIOException.class, () -> engine.match(new Order("2", OrderSide.BUY, 100, 10)));
+		assertTrue(orderBook.getBuyOrders().isEmpty());
+		assertThrows(IOException.class, journal::close);
+	}
+}
@@ -0,0 +1,36 @@
+package org.nts.exchange.verifier.cli.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.metrics.LatencyHistogram;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class LoadDriverTest {
+
+	@Test
+	void testRunPacesOrdersAndRecordsOnlyTheMeasuredOnes() {
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(),
+				new InMemoryTradeStore(), false);
+		OrderFlowProfile                profile        = new OrderFlowProfile();
+		profile.setAggressiveRatio(0.5);
+
+		long             start     = System.nanoTime();
+		LatencyHistogram latencies = new LoadDriver(matchingEngine, new OrderFlowGenerator(profile), 20_000)
+				.run(1_000, 2_000);
+		long             elapsed   = System.nanoTime() - start;
+
+		assertEquals(2_000, latencies.getCount());
+		assertTrue(matchingEngine.getTradeStore().getTrades().size() > 0);
+		// 3,000 orders at 20,000 a second can not take less than 150ms
+		assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(145), Long.toString(elapsed));
+		assertTrue(latencies.getValueAtPercentile(50) <= latencies.getMax());
+	}
+}
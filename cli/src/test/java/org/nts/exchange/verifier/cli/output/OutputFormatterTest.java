@@ -0,0 +1,94 @@
+package org.nts.exchange.verifier.cli.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.cli.input.FileOrderReader;
+import org.nts.exchange.verifier.cli.input.StreamingOrderReader;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.pool.TradePool;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class OutputFormatterTest {
+
+	// The README examples and the MD5 of their expected output
+	private static final String EXAMPLE_1     = "10000,B,98,25500\n10005,S,105,20000\n10001,S,100,500\n"
+			+ "10002,S,100,10000\n10003,B,99,50000\n10004,S,103,100\n";
+	private static final String EXAMPLE_1_MD5 = "8ff13aad3e61429bfb5ce0857e846567";
+	private static final String EXAMPLE_2     = EXAMPLE_1 + "10006,B,105,16000\n";
+	private static final String EXAMPLE_2_MD5 = "ce8e7e5ab26ab5a7db6b7d30759cf02e";
+
+	@TempDir
+	Path                        tempDir;
+
+	@Test
+	void testStreamingOutputMatchesReadmeMd5() throws Exception {
+		assertEquals(EXAMPLE_1_MD5, md5(stream(EXAMPLE_1)));
+		assertEquals(EXAMPLE_2_MD5, md5(stream(EXAMPLE_2)));
+	}
+
+	@Test
+	void testFileOutputMatchesReadmeMd5() throws Exception {
+		assertEquals(EXAMPLE_1_MD5, md5(readFile(EXAMPLE_1)));
+		assertEquals(EXAMPLE_2_MD5, md5(readFile(EXAMPLE_2)));
+	}
+
+	@Test
+	void testFixedWidthLayout() {
+		OutputFormatter formatter = new OutputFormatter();
+
+		assertEquals("999,999,999 999999 |      0           1", formatter
+				.appendBookLine(new Order("1", OrderSide.BUY, 999_999, 999_999_999), new Order("2", OrderSide.SELL, 0, 1))
+				.toString());
+		assertEquals("      1,000    100 | " + "                  ", formatter.reset()
+				.appendBookLine(new Order("1", OrderSide.BUY, 100, 1_000), null).toString());
+		assertEquals("trade A-1,10001,100,500", formatter.reset().appendTrade(new Trade("A-1", "10001", 100, 500))
+				.toString());
+		assertEquals("order-id-longer-than-ten,S,-5,0", formatter.reset()
+				.appendOrder(new Order("order-id-longer-than-ten", OrderSide.SELL, -5, 0)).toString());
+	}
+
+	private static byte[] stream(String orders) throws IOException {
+		OrderPool               orderPool = new OrderPool(16);
+		SequencedMatchingEngine engine    = new SequencedMatchingEngine(new PriceLadderOrderBook(),
+				new DiscardingTradeStore(), 16, Thread::new, orderPool, new TradePool(4));
+		ByteArrayOutputStream   output    = new ByteArrayOutputStream();
+		new StreamingOrderReader(new ByteArrayInputStream(orders.getBytes(StandardCharsets.US_ASCII)), output, engine,
+				orderPool).parse();
+		return output.toByteArray();
+	}
+
+	private byte[] readFile(String orders) throws IOException {
+		Path input = tempDir.resolve("orders.csv");
+		Files.write(input, orders.getBytes(StandardCharsets.US_ASCII));
+		StringBuilder output = new StringBuilder();
+		// Exchange prints every line followed by a line feed
+		for (String line : new FileOrderReader(input.toString(),
+				new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore())).parse()) {
+			output.append(line).append('\n');
+		}
+		return output.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String md5(byte[] bytes) throws NoSuchAlgorithmException {
+		return String.format("%032x", new BigInteger(1, MessageDigest.getInstance("MD5").digest(bytes)));
+	}
+}
@@ -0,0 +1,63 @@
+package org.nts.exchange.verifier.cli.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class BookSnapshotTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSnapshotRestoresOrdersAndPriorities() throws IOException {
+		OrderBook orderBook = new PriceLadderOrderBook();
+		orderBook.addOrder(new Order("10000", OrderSide.BUY, 98, 25500));
+		orderBook.addOrder(new Order("ABC-1", OrderSide.BUY, 99, 100));
+		orderBook.addOrder(new Order("10001", OrderSide.BUY, 98, 1_000_000));
+		orderBook.addOrder(new Order("an order id with spaces", OrderSide.SELL, 105, 20000));
+		orderBook.addOrder(new Order("10002", OrderSide.SELL, 100, 500));
+		orderBook.addOrder(new Order("10003", OrderSide.SELL, 105, 7));
+
+		String snapshot = tempDir.resolve("book.snapshot").toString();
+		assertEquals(6, new BookSnapshotWriter(snapshot,
+				new PriceTimePriorityMatchingEngine(orderBook, new InMemoryTradeStore(), false)).writeSnapshot());
+
+		OrderBook restored = new PriceLadderOrderBook();
+		assertEquals(6, new BookSnapshotReader(snapshot, restored).load());
+		assertSameOrders(orderBook.getBuyOrders(), restored.getBuyOrders());
+		assertSameOrders(orderBook.getSellOrders(), restored.getSellOrders());
+
+		Order next = new Order("10004", OrderSide.SELL, 100, 1);
+		restored.addOrder(next);
+		assertEquals(7, next.getSequence());
+	}
+
+	@Test
+	void testLoadRejectsUnknownVersion() throws IOException {
+		Path snapshot = tempDir.resolve("book.snapshot");
+		Files.write(snapshot, new byte[] { 'N', 'T', 'S', 'B', 9, 0, 0, 0 });
+		assertThrows(IOException.class,
+				() -> new BookSnapshotReader(snapshot.toString(), new PriceLadderOrderBook()).load());
+	}
+
+	private static void assertSameOrders(List<Order> expected, List<Order> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), actual.get(i).toString());
+		}
+	}
+}
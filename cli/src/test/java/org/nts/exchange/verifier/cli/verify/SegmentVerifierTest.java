@@ -0,0 +1,63 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
+
+class SegmentVerifierTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSegmentsEndOnTheirCheckpoints() throws IOException {
+		Path            orders      = tempDir.resolve("orders.txt");
+		new OrderFlowGenerator(new OrderFlowProfile()).write(orders, 5_000);
+		Path            checkpoints = tempDir.resolve("checkpoints");
+		SegmentVerifier verifier    = new SegmentVerifier(orders.toString(), checkpoints, 4);
+
+		assertEquals(5_000, verifier.writeCheckpoints(700));
+		assertTrue(Files.exists(verifier.checkpointOf(4_900)));
+		assertTrue(Files.exists(verifier.checkpointOf(5_000)));
+
+		List<Segment> segments = verifier.verify();
+		assertEquals(8, segments.size());
+		for (int i = 0; i < segments.size(); i++) {
+			assertEquals(i * 700, segments.get(i).getFromOrder());
+			assertTrue(segments.get(i).isVerified(), segments.get(i).toString());
+		}
+		assertEquals(5_000, segments.get(7).getToOrder());
+	}
+
+	@Test
+	void testChangedOrderFailsItsSegmentOnly() throws IOException {
+		Path            orders      = tempDir.resolve("orders.txt");
+		Files.write(orders, "1,B,100,10\n2,S,101,5\n3,B,99,7\n4,S,100,4\n5,B,101,5\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		SegmentVerifier verifier    = new SegmentVerifier(orders.toString(), tempDir.resolve("checkpoints"), 2);
+		assertEquals(5, verifier.writeCheckpoints(2));
+
+		// The rules or the input changed after the checkpoints were taken
+		Files.write(orders, "1,B,100,10\n2,S,101,5\n3,B,99,8\n4,S,100,4\n5,B,101,5\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		List<Segment> segments = verifier.verify();
+
+		assertEquals(3, segments.size());
+		assertTrue(segments.get(0).isVerified());
+		assertFalse(segments.get(1).isVerified());
+		assertEquals("buy order 2 is 3 BUY 8 @ 99 seq:3 but the checkpoint has 3 BUY 7 @ 99 seq:3",
+				segments.get(1).getMismatch());
+		assertTrue(segments.get(2).isVerified());
+	}
+}
@@ -0,0 +1,91 @@
+package org.nts.exchange.verifier.cli.verify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.cli.input.FileOrderReader;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class StreamingVerifierTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSameOutputIsVerified() throws IOException {
+		Path         orders   = tempDir.resolve("orders.txt");
+		new OrderFlowGenerator(new OrderFlowProfile()).write(orders, 5_000);
+		List<String> expected = new FileOrderReader(orders.toString(),
+				new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore())).parse();
+		Path         output   = Files.write(tempDir.resolve("output.txt"), expected);
+
+		StreamingVerifier verifier = new StreamingVerifier(orders.toString(), output);
+		assertNull(verifier.verify());
+		assertEquals(5_000, verifier.getOrderCount());
+		assertEquals(expected.stream().filter(line -> line.startsWith("trade ")).count(), verifier.getTradeCount());
+
+	}
+
+	@Test
+	void testMissingBookIsADivergence() throws IOException {
+		Path         orders   = tempDir.resolve("orders.txt");
+		new OrderFlowGenerator(new OrderFlowProfile()).write(orders, 5_000);
+		List<String> expected = new FileOrderReader(orders.toString(),
+				new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(), new InMemoryTradeStore())).parse();
+		List<String> trades   = expected.stream().filter(line -> line.startsWith("trade ")).collect(Collectors.toList());
+		Path         output   = Files.write(tempDir.resolve("trades.txt"), trades);
+
+		Divergence divergence = new StreamingVerifier(orders.toString(), output).verify();
+		assertEquals(trades.size() + 1, divergence.getLineNumber());
+		assertNull(divergence.getExpected());
+		assertEquals(expected.get(trades.size()), divergence.getActual());
+
+		// Trades that leave nothing in the book need no book lines
+		Files.write(orders, "1,S,100,10\n2,B,100,10\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(output, "trade 2,1,100,10\n".getBytes(StandardCharsets.US_ASCII));
+		assertNull(new StreamingVerifier(orders.toString(), output).verify());
+	}
+
+	@Test
+	void testFirstDivergenceIsReported() throws IOException {
+		Path orders = tempDir.resolve("orders.txt");
+		Files.write(orders, "1,S,101,10\n2,S,100,10\n3,B,99,10\n4,B,101,15\n5,S,90,5\n".getBytes(StandardCharsets.US_ASCII));
+		// Order 4 should trade 10 at 100 and 5 at 101, and order 5 should trade 5 at 99
+		Path output = Files.write(tempDir.resolve("output.txt"),
+				"trade 4,2,100,10\ntrade 4,1,101,4\ntrade 4,1,101,1\ntrade 5,3,99,5\n"
+						.getBytes(StandardCharsets.US_ASCII));
+
+		StreamingVerifier verifier   = new StreamingVerifier(orders.toString(), output);
+		Divergence        divergence = verifier.verify();
+
+		assertEquals(4, divergence.getOrderSequence());
+		assertEquals("4", divergence.getOrderId());
+		assertEquals(2, divergence.getLineNumber());
+		assertEquals("trade 4,1,101,4", divergence.getExpected());
+		assertEquals("trade 4,1,101,5", divergence.getActual());
+		assertEquals("[10@99 (1)]", divergence.getBids().toString());
+		assertEquals("[5@101 (1)]", divergence.getAsks().toString());
+		assertEquals(4, verifier.getOrderCount());
+		assertEquals(1, verifier.getTradeCount());
+
+		// An exchange that trades more than the engine is caught at the same order
+		Files.write(output, "trade 4,2,100,10\ntrade 4,1,101,5\ntrade 4,1,101,1\n".getBytes(StandardCharsets.US_ASCII));
+		divergence = new StreamingVerifier(orders.toString(), output).verify();
+		assertEquals(3, divergence.getLineNumber());
+		assertEquals("trade 4,1,101,1", divergence.getExpected());
+		assertNull(divergence.getActual());
+	}
+}
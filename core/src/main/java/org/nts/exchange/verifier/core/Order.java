@@ -1,5 +1,6 @@
 package org.nts.exchange.verifier.core;
 
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
 import org.nts.exchange.verifier.core.matchingengine.exception.InvalidQuantityException;
 import org.nts.exchange.verifier.core.orderbook.OrderSide;
 
@@ -9,19 +10,56 @@ import lombok.Setter;
 /**
  * Represents an order submitted by a trader to buy or sell a quantity of shares
  * at a specific price.
+ * 
+ * The order id is held as its {@link OrderIdCodec} code, a primitive long, and
+ * only turned back into a string when asked for. An id that the codec can only
+ * hash is kept as a string as well.
+ * 
+ * Time priority is given by a sequence number that the order book assigns when
+ * it accepts the order, not by a clock, so orders never tie and replaying the
+ * same input always yields the same priorities.
  */
 public class Order implements Comparable<Order> {
+
+	/**
+	 * The sequence number of an order that has not been accepted yet.
+	 */
+	public static final long NO_SEQUENCE       = 0L;
+
+	/**
+	 * The symbol id of an order that names no instrument, the only one when a
+	 * single product is traded.
+	 */
+	public static final int  DEFAULT_SYMBOL_ID = 0;
+
 	@Getter
-	private final String    id;
+	private long            idCode;
+	// The id when its code is a hash, null otherwise
+	private String          hashedId;
 	@Getter
-	private final OrderSide side;
+	private OrderSide       side;
 	@Getter
-	private final int       price;
+	private int             price;
 	@Getter
 	@Setter
 	private int             quantity;
 	@Getter
-	private long            timestamp;
+	@Setter
+	private long            sequence;
+	// The instrument, as numbered by a registry of books, see
+	// org.nts.exchange.verifier.core.registry.BookRegistry
+	@Getter
+	@Setter
+	private int             symbolId;
+
+	// Links of the intrusive price level queue holding this order, maintained
+	// by the order book while the order rests.
+	@Getter
+	@Setter
+	private Order           previous;
+	@Getter
+	@Setter
+	private Order           next;
 
 	/**
 	 * Constructs a new Order object with the specified parameters.
@@ -32,11 +70,100 @@ public class Order implements Comparable<Order> {
 	 * @param quantity the quantity of shares in the order
 	 */
 	public Order(String id, OrderSide side, int price, int quantity) {
-		this.id        = id;
+		init(id, side, price, quantity);
+	}
+
+	/**
+	 * Constructs a new Order object with an already encoded id.
+	 * 
+	 * @param idCode   the {@link OrderIdCodec} code of the order id, which must
+	 *                 not be a hash
+	 * @param side     the side of the order (buy or sell)
+	 * @param price    the price of the order
+	 * @param quantity the quantity of shares in the order
+	 * @throws IllegalArgumentException if the code is a hash
+	 */
+	public Order(long idCode, OrderSide side, int price, int quantity) {
+		init(idCode, side, price, quantity);
+	}
+
+	/**
+	 * Re-initialises the order with the specified parameters so that the instance
+	 * can be recycled through an {@link org.nts.exchange.verifier.core.pool.OrderPool}.
+	 * The order must not be resting in a book.
+	 * 
+	 * @param idCode   the {@link OrderIdCodec} code of the order id, which must
+	 *                 not be a hash
+	 * @param side     the side of the order (buy or sell)
+	 * @param price    the price of the order
+	 * @param quantity the quantity of shares in the order
+	 * @return this order
+	 * @throws IllegalArgumentException if the code is a hash
+	 */
+	public Order init(long idCode, OrderSide side, int price, int quantity) {
+		if (OrderIdCodec.isHashed(idCode)) {
+			throw new IllegalArgumentException("The id of order code " + idCode + " is needed as a string");
+		}
+		return init(idCode, null, side, price, quantity);
+	}
+
+	/**
+	 * Re-initialises the order with an id given as a string, see
+	 * {@link #init(long, OrderSide, int, int)}.
+	 * 
+	 * @param id       the unique identifier for the order
+	 * @param side     the side of the order (buy or sell)
+	 * @param price    the price of the order
+	 * @param quantity the quantity of shares in the order
+	 * @return this order
+	 */
+	public Order init(String id, OrderSide side, int price, int quantity) {
+		long idCode = OrderIdCodec.encode(id);
+		return init(idCode, OrderIdCodec.isHashed(idCode) ? id : null, side, price, quantity);
+	}
+
+	private Order init(long idCode, String hashedId, OrderSide side, int price, int quantity) {
+		this.idCode    = idCode;
+		this.hashedId  = hashedId;
 		this.side      = side;
 		this.price     = price;
 		this.quantity  = quantity;
-		this.timestamp = System.nanoTime();
+		this.sequence  = NO_SEQUENCE;
+		this.symbolId  = DEFAULT_SYMBOL_ID;
+		this.previous  = null;
+		this.next      = null;
+		return this;
+	}
+
+	/**
+	 * Returns the order id.
+	 * 
+	 * @return the unique identifier for the order
+	 */
+	public String getId() {
+		return hashedId != null ? hashedId : OrderIdCodec.decode(idCode);
+	}
+
+	/**
+	 * Tells whether the order has an id, comparing the strings only when the code
+	 * is a hash.
+	 * 
+	 * @param idCode the {@link OrderIdCodec} code of the id
+	 * @param id     the id, only read when the code is a hash
+	 * @return true if the order has that id
+	 */
+	public boolean hasId(long idCode, String id) {
+		return this.idCode == idCode && (hashedId == null || hashedId.equals(id));
+	}
+
+	/**
+	 * Tells whether two orders have the same id.
+	 * 
+	 * @param other the other order
+	 * @return true if the orders have the same id
+	 */
+	public boolean hasSameId(Order other) {
+		return hasId(other.idCode, other.hashedId);
 	}
 
 	/**
@@ -68,13 +195,13 @@ public class Order implements Comparable<Order> {
 	 */
 	@Override
 	public String toString() {
-		return String.format("%s %d @ %d time:%d", side, quantity, price, timestamp);
+		return String.format("%s %d @ %d seq:%d", side, quantity, price, sequence);
 	}
 
 	@Override
 	public int compareTo(Order o) {
 		if (this.price == o.price) {
-			return Long.compare(this.timestamp, o.timestamp);
+			return Long.compare(this.sequence, o.sequence);
 		}
 		return Integer.compare(o.price, this.price);
 	}
@@ -1,20 +1,37 @@
 package org.nts.exchange.verifier.core;
 
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * Represents a trade that occurred between two orders in the order book.
+ * 
+ * The order ids are held as their {@link OrderIdCodec} codes, and as strings
+ * too when the codes are hashes. A trade carries
+ * the sequence number of its aggressor order, so the trades of one order share
+ * a sequence number and sort with it.
  */
 public class Trade {
 
 	@Getter
-	private final String aggressorOrderId;
+	private long   aggressorOrderIdCode;
+	@Getter
+	private long   restingOrderIdCode;
+	// The ids whose codes are hashes, null otherwise
+	private String hashedAggressorOrderId;
+	private String hashedRestingOrderId;
 	@Getter
-	private final String restingOrderId;
+	private int    price;
 	@Getter
-	private final int    price;
+	private int    quantity;
 	@Getter
-	private final int    quantity;
+	@Setter
+	private long   sequence;
+
+	private Trade() {
+	}
 
 	/**
 	 * Creates a new instance of a trade.
@@ -25,10 +42,114 @@ public class Trade {
 	 * @param quantity         the quantity that was traded
 	 */
 	public Trade(String aggressorOrderId, String restingOrderId, int price, int quantity) {
-		this.aggressorOrderId = aggressorOrderId;
-		this.restingOrderId   = restingOrderId;
-		this.price            = price;
-		this.quantity         = quantity;
+		long aggressorOrderIdCode = OrderIdCodec.encode(aggressorOrderId);
+		long restingOrderIdCode   = OrderIdCodec.encode(restingOrderId);
+		init(aggressorOrderIdCode, OrderIdCodec.isHashed(aggressorOrderIdCode) ? aggressorOrderId : null,
+				restingOrderIdCode, OrderIdCodec.isHashed(restingOrderIdCode) ? restingOrderId : null, price,
+				quantity);
+	}
+
+	/**
+	 * Creates a new instance of a trade between orders with already encoded ids.
+	 * 
+	 * @param aggressorOrderIdCode the id code of the aggressor order
+	 * @param restingOrderIdCode   the id code of the resting order
+	 * @param price                the price at which the trade occurred
+	 * @param quantity             the quantity that was traded
+	 * @throws IllegalArgumentException if a code is a hash
+	 */
+	public Trade(long aggressorOrderIdCode, long restingOrderIdCode, int price, int quantity) {
+		init(aggressorOrderIdCode, restingOrderIdCode, price, quantity);
+	}
+
+	/**
+	 * Creates a new instance of a trade between two orders.
+	 * 
+	 * @param aggressorOrder the aggressor order
+	 * @param restingOrder   the resting order
+	 * @param price          the price at which the trade occurred
+	 * @param quantity       the quantity that was traded
+	 */
+	public Trade(Order aggressorOrder, Order restingOrder, int price, int quantity) {
+		init(aggressorOrder, restingOrder, price, quantity);
+	}
+
+	/**
+	 * Re-initialises the trade so that the instance can be recycled through a
+	 * {@link org.nts.exchange.verifier.core.pool.TradePool}.
+	 * 
+	 * @param aggressorOrderIdCode the id code of the aggressor order
+	 * @param restingOrderIdCode   the id code of the resting order
+	 * @param price                the price at which the trade occurred
+	 * @param quantity             the quantity that was traded
+	 * @return this trade
+	 * @throws IllegalArgumentException if a code is a hash
+	 */
+	public Trade init(long aggressorOrderIdCode, long restingOrderIdCode, int price, int quantity) {
+		if (OrderIdCodec.isHashed(aggressorOrderIdCode) || OrderIdCodec.isHashed(restingOrderIdCode)) {
+			throw new IllegalArgumentException("The ids of a trade with hashed codes are needed as strings");
+		}
+		return init(aggressorOrderIdCode, null, restingOrderIdCode, null, price, quantity);
+	}
+
+	/**
+	 * Re-initialises the trade with the ids of the orders that matched.
+	 * 
+	 * @param aggressorOrder the aggressor order
+	 * @param restingOrder   the resting order
+	 * @param price          the price at which the trade occurred
+	 * @param quantity       the quantity that was traded
+	 * @return this trade
+	 */
+	public Trade init(Order aggressorOrder, Order restingOrder, int price, int quantity) {
+		long aggressorOrderIdCode = aggressorOrder.getIdCode();
+		long restingOrderIdCode   = restingOrder.getIdCode();
+		return init(aggressorOrderIdCode,
+				OrderIdCodec.isHashed(aggressorOrderIdCode) ? aggressorOrder.getId() : null, restingOrderIdCode,
+				OrderIdCodec.isHashed(restingOrderIdCode) ? restingOrder.getId() : null, price, quantity);
+	}
+
+	private Trade init(long aggressorOrderIdCode, String hashedAggressorOrderId, long restingOrderIdCode,
+			String hashedRestingOrderId, int price, int quantity) {
+		this.aggressorOrderIdCode   = aggressorOrderIdCode;
+		this.hashedAggressorOrderId = hashedAggressorOrderId;
+		this.restingOrderIdCode     = restingOrderIdCode;
+		this.hashedRestingOrderId   = hashedRestingOrderId;
+		this.price                  = price;
+		this.quantity               = quantity;
+		this.sequence               = Order.NO_SEQUENCE;
+		return this;
+	}
+
+	/**
+	 * Returns a new trade with the same values, for keeping a pooled trade beyond
+	 * the callback it was delivered to.
+	 * 
+	 * @return a copy of this trade
+	 */
+	public Trade copy() {
+		Trade copy = new Trade().init(aggressorOrderIdCode, hashedAggressorOrderId, restingOrderIdCode,
+				hashedRestingOrderId, price, quantity);
+		copy.sequence = sequence;
+		return copy;
+	}
+
+	/**
+	 * Returns the id of the aggressor order.
+	 * 
+	 * @return the ID of the aggressor order
+	 */
+	public String getAggressorOrderId() {
+		return hashedAggressorOrderId != null ? hashedAggressorOrderId : OrderIdCodec.decode(aggressorOrderIdCode);
+	}
+
+	/**
+	 * Returns the id of the resting order.
+	 * 
+	 * @return the ID of the resting order
+	 */
+	public String getRestingOrderId() {
+		return hashedRestingOrderId != null ? hashedRestingOrderId : OrderIdCodec.decode(restingOrderIdCode);
 	}
 
 	/**
@@ -38,6 +159,7 @@ public class Trade {
 	 */
 	@Override
 	public String toString() {
-		return String.format("trade %s,%s,%d,%d", aggressorOrderId, restingOrderId, price, quantity);
+		return new StringBuilder(48).append("trade ").append(getAggressorOrderId()).append(',')
+				.append(getRestingOrderId()).append(',').append(price).append(',').append(quantity).toString();
 	}
 }
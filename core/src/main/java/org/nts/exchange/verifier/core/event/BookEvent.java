@@ -0,0 +1,136 @@
+package org.nts.exchange.verifier.core.event;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+import lombok.Getter;
+
+/**
+ * A change to an order book, or a trade, as carried by a {@link BookEventRing}.
+ *
+ * Events are slots of the ring and are overwritten once every consumer has
+ * read past them, so a consumer must copy what it needs before it returns from
+ * {@link BookEventHandler#onEvent(BookEvent, boolean)}.
+ *
+ * The quantity of an order event is the change it makes to the quantity
+ * resting at its price: the quantity of an added order, the quantity taken off
+ * a reduced one and the quantity left on a removed one. A consumer can
+ * therefore keep the depth of a book by adding up the quantities of the order
+ * events, without reading the book.
+ */
+public final class BookEvent {
+
+	/**
+	 * The kinds of event.
+	 */
+	public enum Type {
+		/**
+		 * An order started resting in the book.
+		 */
+		ADDED,
+		/**
+		 * A resting order was partly filled.
+		 */
+		REDUCED,
+		/**
+		 * A resting order left the book, as when completely filled.
+		 */
+		REMOVED,
+		/**
+		 * An aggressive order traded with a resting one.
+		 */
+		TRADE
+	}
+
+	@Getter
+	private long      sequence;
+	@Getter
+	private Type      type;
+	@Getter
+	private long      orderSequence;
+	@Getter
+	private long      orderIdCode;
+	@Getter
+	private long      restingOrderIdCode;
+	// The ids whose codes are hashes, null otherwise
+	private String    hashedOrderId;
+	private String    hashedRestingOrderId;
+	@Getter
+	private OrderSide side;
+	@Getter
+	private int       price;
+	@Getter
+	private int       quantity;
+
+	BookEvent() {
+	}
+
+	/**
+	 * Fills the event with a change to a resting order.
+	 */
+	void set(long sequence, Type type, Order order, int quantity) {
+		this.sequence             = sequence;
+		this.type                 = type;
+		this.orderSequence        = order.getSequence();
+		this.orderIdCode          = order.getIdCode();
+		this.restingOrderIdCode   = OrderIdCodec.NO_CODE;
+		this.hashedOrderId        = OrderIdCodec.isHashed(orderIdCode) ? order.getId() : null;
+		this.hashedRestingOrderId = null;
+		this.side                 = order.getSide();
+		this.price                = order.getPrice();
+		this.quantity             = quantity;
+	}
+
+	/**
+	 * Fills the event with a trade.
+	 */
+	void set(long sequence, Trade trade, OrderSide aggressorSide) {
+		this.sequence             = sequence;
+		this.type                 = Type.TRADE;
+		this.orderSequence        = trade.getSequence();
+		this.orderIdCode          = trade.getAggressorOrderIdCode();
+		this.restingOrderIdCode   = trade.getRestingOrderIdCode();
+		this.hashedOrderId        = OrderIdCodec.isHashed(orderIdCode) ? trade.getAggressorOrderId() : null;
+		this.hashedRestingOrderId = OrderIdCodec.isHashed(restingOrderIdCode) ? trade.getRestingOrderId() : null;
+		this.side                 = aggressorSide;
+		this.price                = trade.getPrice();
+		this.quantity             = trade.getQuantity();
+	}
+
+	/**
+	 * Returns the id of the order, the aggressor of a trade.
+	 *
+	 * @return the order id
+	 */
+	public String getOrderId() {
+		return hashedOrderId != null ? hashedOrderId : OrderIdCodec.decode(orderIdCode);
+	}
+
+	/**
+	 * Returns the id of the resting order of a trade.
+	 *
+	 * @return the resting order id, or null if the event is not a trade
+	 */
+	public String getRestingOrderId() {
+		if (type != Type.TRADE) {
+			return null;
+		}
+		return hashedRestingOrderId != null ? hashedRestingOrderId : OrderIdCodec.decode(restingOrderIdCode);
+	}
+
+	/**
+	 * Returns a string representation of the event.
+	 *
+	 * @return the sequence, type and fields of the event
+	 */
+	@Override
+	public String toString() {
+		String order = getOrderId();
+		if (type == Type.TRADE) {
+			order += " x " + getRestingOrderId();
+		}
+		return sequence + " " + type + " " + order + " " + side + " " + quantity + "@" + price;
+	}
+}
@@ -0,0 +1,60 @@
+package org.nts.exchange.verifier.core.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * The position of one consumer in a {@link BookEventRing}.
+ *
+ * A cursor is read from a single thread, which polls it whenever it is ready for
+ * more events. Until it does, the events wait in the ring, and the producer
+ * only waits for the cursor once the ring is full.
+ */
+public final class BookEventCursor {
+
+	private final BookEventRing ring;
+	private final AtomicLong    sequence;
+
+	BookEventCursor(BookEventRing ring, long sequence) {
+		this.ring     = ring;
+		this.sequence = new AtomicLong(sequence);
+	}
+
+	/**
+	 * Hands every event published since the last poll to the handler, in
+	 * sequence, and then releases them to the producer.
+	 *
+	 * @param handler receives the events
+	 * @return the number of events handled, 0 if none were waiting
+	 */
+	public int poll(BookEventHandler handler) {
+		long current   = sequence.get();
+		long available = ring.getPublishedSequence();
+		for (long next = current + 1; next <= available; next++) {
+			handler.onEvent(ring.eventAt(next), next == available);
+		}
+		if (available > current) {
+			sequence.lazySet(available);
+		}
+		return (int) Math.max(0, available - current);
+	}
+
+	/**
+	 * Returns the sequence of the last event read.
+	 *
+	 * @return the sequence, -1 if the ring had published nothing when the cursor
+	 *         was created and nothing has been read since
+	 */
+	public long getSequence() {
+		return sequence.get();
+	}
+
+	/**
+	 * Returns the number of events published and not yet read.
+	 *
+	 * @return the backlog of the consumer
+	 */
+	public long getBacklog() {
+		return ring.getPublishedSequence() - sequence.get();
+	}
+}
@@ -0,0 +1,18 @@
+package org.nts.exchange.verifier.core.event;
+
+/**
+ * Receives the events read through a {@link BookEventCursor}.
+ */
+@FunctionalInterface
+public interface BookEventHandler {
+
+	/**
+	 * Called for every event, in sequence.
+	 *
+	 * @param event      the event, which is only valid until this call returns
+	 * @param endOfBatch whether this is the last event published so far, as when
+	 *                   the consumer has caught up with the end of a matching
+	 *                   cycle
+	 */
+	void onEvent(BookEvent event, boolean endOfBatch);
+}
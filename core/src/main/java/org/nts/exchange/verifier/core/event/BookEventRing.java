@@ -0,0 +1,201 @@
+package org.nts.exchange.verifier.core.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+/**
+ *
+ * A preallocated ring of {@link BookEvent}s, written by the matching thread and
+ * read by any number of consumers, each through a {@link BookEventCursor} of
+ * its own and at its own pace.
+ *
+ * Every event is given the next sequence number of the ring. The producer fills
+ * the events of a matching cycle and then makes them visible all at once with
+ * {@link #publish()}, so consumers see whole cycles and get them as a batch.
+ * Nothing is allocated per event and no lock is taken: the producer only reads
+ * the sequences of the cursors, and a consumer only reads the published
+ * sequence and writes its own.
+ *
+ * The producer never overwrites an event a cursor has not read yet. When the
+ * ring is full it waits for the slowest cursor, so a consumer that stops
+ * reading must be removed with {@link #removeCursor(BookEventCursor)} or it
+ * stalls matching. A ring without cursors is simply overwritten. Only one
+ * thread may write to the ring.
+ */
+public class BookEventRing {
+
+	/**
+	 * The number of events held by a ring when none is given.
+	 */
+	public static final int            DEFAULT_CAPACITY = 65_536;
+
+	private final BookEvent[]          events;
+	private final int                  mask;
+	private final AtomicLong           published;
+	private long                       claimed;
+	private long                       cachedMinimum;
+	private volatile BookEventCursor[] cursors;
+
+	/**
+	 * Creates a ring of {@link #DEFAULT_CAPACITY} events.
+	 */
+	public BookEventRing() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a ring of the given number of events.
+	 *
+	 * @param capacity the number of events, a power of two
+	 * @throws IllegalArgumentException if the capacity is not a positive power of
+	 *                                  two
+	 */
+	public BookEventRing(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two : " + capacity);
+		}
+		this.events        = new BookEvent[capacity];
+		this.mask          = capacity - 1;
+		this.published     = new AtomicLong(-1);
+		this.claimed       = -1;
+		this.cachedMinimum = -1;
+		this.cursors       = new BookEventCursor[0];
+		for (int i = 0; i < capacity; i++) {
+			events[i] = new BookEvent();
+		}
+	}
+
+	/**
+	 * Adds a consumer, which reads the events published from now on.
+	 *
+	 * @return the cursor of the consumer
+	 */
+	public synchronized BookEventCursor newCursor() {
+		BookEventCursor   cursor  = new BookEventCursor(this, published.get());
+		BookEventCursor[] updated = Arrays.copyOf(cursors, cursors.length + 1);
+		updated[cursors.length] = cursor;
+		cursors                 = updated;
+		return cursor;
+	}
+
+	/**
+	 * Removes a consumer, so that the producer no longer waits for it.
+	 *
+	 * @param cursor the cursor of the consumer
+	 */
+	public synchronized void removeCursor(BookEventCursor cursor) {
+		List<BookEventCursor> updated = new ArrayList<>(Arrays.asList(cursors));
+		updated.remove(cursor);
+		cursors = updated.toArray(new BookEventCursor[updated.size()]);
+	}
+
+	/**
+	 * Records that an order started resting in the book.
+	 *
+	 * @param order the order, with the quantity it rests with
+	 */
+	public void orderAdded(Order order) {
+		long sequence = claim();
+		eventAt(sequence).set(sequence, BookEvent.Type.ADDED, order, order.getQuantity());
+	}
+
+	/**
+	 * Records that a resting order was partly filled.
+	 *
+	 * @param order     the order, once reduced
+	 * @param reducedBy the quantity taken off it
+	 */
+	public void orderReduced(Order order, int reducedBy) {
+		long sequence = claim();
+		eventAt(sequence).set(sequence, BookEvent.Type.REDUCED, order, reducedBy);
+	}
+
+	/**
+	 * Records that an order left the book.
+	 *
+	 * @param order the order, with the quantity it had left
+	 */
+	public void orderRemoved(Order order) {
+		long sequence = claim();
+		eventAt(sequence).set(sequence, BookEvent.Type.REMOVED, order, order.getQuantity());
+	}
+
+	/**
+	 * Records a trade.
+	 *
+	 * @param trade         the trade, which can be recycled once this returns
+	 * @param aggressorSide the side of the aggressive order
+	 */
+	public void trade(Trade trade, OrderSide aggressorSide) {
+		long sequence = claim();
+		eventAt(sequence).set(sequence, trade, aggressorSide);
+	}
+
+	/**
+	 * Makes the events recorded since the last call visible to the consumers, at
+	 * the end of a matching cycle.
+	 */
+	public void publish() {
+		published.set(claimed);
+	}
+
+	/**
+	 * Returns the sequence of the last event visible to the consumers.
+	 *
+	 * @return the published sequence, or -1 if nothing was published yet
+	 */
+	public long getPublishedSequence() {
+		return published.get();
+	}
+
+	/**
+	 * Returns the number of events held by the ring.
+	 *
+	 * @return the capacity of the ring
+	 */
+	public int getCapacity() {
+		return events.length;
+	}
+
+	BookEvent eventAt(long sequence) {
+		return events[(int) sequence & mask];
+	}
+
+	/**
+	 * Claims the next event, waiting for the slowest cursor if that event has not
+	 * been read yet. The events of the current cycle are published before
+	 * waiting, as a cycle larger than the ring could otherwise never be read.
+	 */
+	private long claim() {
+		long sequence  = ++claimed;
+		long wrapPoint = sequence - events.length;
+		if (wrapPoint > cachedMinimum) {
+			long minimum = minimumCursorSequence();
+			if (minimum < wrapPoint) {
+				published.set(sequence - 1);
+				while ((minimum = minimumCursorSequence()) < wrapPoint) {
+					LockSupport.parkNanos(1_000);
+				}
+			}
+			// A cursor added later starts at the published sequence, so the cache
+			// must not run past it
+			cachedMinimum = Math.min(minimum, published.get());
+		}
+		return sequence;
+	}
+
+	private long minimumCursorSequence() {
+		long minimum = Long.MAX_VALUE;
+		for (BookEventCursor cursor : cursors) {
+			minimum = Math.min(minimum, cursor.getSequence());
+		}
+		return minimum;
+	}
+}
@@ -0,0 +1,133 @@
+package org.nts.exchange.verifier.core.generator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+/**
+ *
+ * Generates a synthetic flow of orders following an {@link OrderFlowProfile},
+ * either in process or as an order file.
+ *
+ * Orders are numbered from 1 and buys and sells are equally likely. The flow
+ * only depends on the profile, so the same seed always gives the same orders,
+ * and a file written by {@link #write(Path, long)} holds exactly the orders
+ * {@link #next()} would have returned.
+ *
+ * A generator is not thread safe.
+ */
+public class OrderFlowGenerator {
+
+	private final OrderFlowProfile profile;
+	private final Random           random;
+	private long                   lastId;
+
+	/**
+	 * Creates a generator.
+	 *
+	 * @param profile the flow to generate
+	 * @throws IllegalArgumentException if the profile is invalid
+	 */
+	public OrderFlowGenerator(OrderFlowProfile profile) {
+		profile.validate();
+		this.profile = profile;
+		this.random  = new Random(profile.getSeed());
+	}
+
+	/**
+	 * Returns the next order of the flow.
+	 *
+	 * @return a new order
+	 */
+	public Order next() {
+		OrderSide side       = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+		boolean   aggressive = random.nextDouble() < profile.getAggressiveRatio();
+		int       offset     = nextOffset();
+		// Passive orders rest on their own side of the mid, aggressive ones are
+		// priced as far onto the other side
+		boolean   below      = (side == OrderSide.BUY) != aggressive;
+		int       price      = below ? profile.getMidPrice() - 1 - offset : profile.getMidPrice() + offset;
+		return new Order(Long.toString(++lastId), side, price, nextQuantity());
+	}
+
+	/**
+	 * Returns the next orders of the flow as a stream, generated as it is
+	 * consumed.
+	 *
+	 * @param count the number of orders
+	 * @return the orders
+	 */
+	public Stream<Order> stream(long count) {
+		return Stream.generate(this::next).limit(count);
+	}
+
+	/**
+	 *
+	 * Writes the next orders of the flow as the lines of an order file.
+	 *
+	 * @param writer the writer to write the lines to
+	 * @param count  the number of orders
+	 * @throws IOException if the writer fails
+	 */
+	public void write(Writer writer, long count) throws IOException {
+		for (long i = 0; i < count; i++) {
+			Order order = next();
+			writer.write(order.getId());
+			writer.write(order.getSide() == OrderSide.BUY ? ",B," : ",S,");
+			writer.write(Integer.toString(order.getPrice()));
+			writer.write(',');
+			writer.write(Integer.toString(order.getQuantity()));
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 *
+	 * Writes the next orders of the flow to an order file, replacing it.
+	 *
+	 * @param file  the file to write
+	 * @param count the number of orders
+	 * @throws IOException if the file can not be written
+	 */
+	public void write(Path file, long count) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+			write(writer, count);
+		}
+	}
+
+	/**
+	 * Draws the distance in levels of an order from the mid price, from 0 to one
+	 * less than the depth.
+	 */
+	private int nextOffset() {
+		int depth = profile.getDepth();
+		switch (profile.getPriceDistribution()) {
+		case UNIFORM:
+			return random.nextInt(depth);
+		default:
+			// Three standard deviations span the depth
+			return Math.min(depth - 1, (int) Math.abs(random.nextGaussian() * depth / 3));
+		}
+	}
+
+	private int nextQuantity() {
+		int mean = profile.getMeanQuantity();
+		switch (profile.getQuantityDistribution()) {
+		case FIXED:
+			return mean;
+		case UNIFORM:
+			return 1 + random.nextInt(2 * mean);
+		default:
+			double quantity = -mean * Math.log(1 - random.nextDouble());
+			return (int) Math.max(1, Math.min(OrderFlowProfile.MAX_QUANTITY, Math.round(quantity)));
+		}
+	}
+}
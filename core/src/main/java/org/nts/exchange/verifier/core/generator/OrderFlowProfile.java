@@ -0,0 +1,133 @@
+package org.nts.exchange.verifier.core.generator;
+
+import java.util.List;
+import java.util.Locale;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ *
+ * Describes the synthetic order flow produced by an {@link OrderFlowGenerator}.
+ *
+ * Passive orders rest within {@code depth} price levels of the mid price, on
+ * their own side of it, and aggressive orders are priced the same distance
+ * through it, so that they trade with whatever rests on the other side. Every
+ * setting has a default, so a profile only needs the settings that matter to
+ * the test at hand.
+ */
+@Getter
+@Setter
+public class OrderFlowProfile {
+
+	/**
+	 * How the distance of an order from the mid price is drawn.
+	 */
+	public enum PriceDistribution {
+		/** Every level of the depth is as likely. */
+		UNIFORM,
+		/** Levels near the mid price are more likely, as in a real book. */
+		NORMAL
+	}
+
+	/**
+	 * How the quantity of an order is drawn.
+	 */
+	public enum QuantityDistribution {
+		/** Every order has the mean quantity. */
+		FIXED,
+		/** Quantities are spread evenly from 1 to twice the mean. */
+		UNIFORM,
+		/** Many small orders and a long tail of large ones. */
+		EXPONENTIAL
+	}
+
+	/**
+	 * The largest quantity generated, the largest the input format allows.
+	 */
+	public static final int      MAX_QUANTITY         = 999_999_999;
+
+	/**
+	 * The largest mean quantity accepted. At most one exponential quantity in
+	 * about nine million reaches {@link #MAX_QUANTITY}, and uniform quantities
+	 * never do.
+	 */
+	public static final int      MAX_MEAN_QUANTITY    = MAX_QUANTITY / 16;
+
+	private int                  midPrice             = 10_000;
+	private int                  depth                = 20;
+	private PriceDistribution    priceDistribution    = PriceDistribution.NORMAL;
+	private double               aggressiveRatio      = 0.1;
+	private int                  meanQuantity         = 100;
+	private QuantityDistribution quantityDistribution = QuantityDistribution.EXPONENTIAL;
+	private long                 seed                 = 1;
+
+	/**
+	 *
+	 * Creates a profile from {@code name=value} options, such as
+	 * {@code depth=50} or {@code prices=uniform}, leaving out settings at their
+	 * defaults.
+	 *
+	 * The names are {@code mid}, {@code depth}, {@code prices}, {@code aggressive},
+	 * {@code quantity}, {@code quantities} and {@code seed}.
+	 *
+	 * @param options the options
+	 * @return the profile
+	 * @throws IllegalArgumentException if an option is unknown or its value is
+	 *                                  invalid
+	 */
+	public static OrderFlowProfile parse(List<String> options) {
+		OrderFlowProfile profile = new OrderFlowProfile();
+		for (String option : options) {
+			int separator = option.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected name=value but got " + option);
+			}
+			String value = option.substring(separator + 1);
+			switch (option.substring(0, separator)) {
+			case "mid":
+				profile.setMidPrice(Integer.parseInt(value));
+				break;
+			case "depth":
+				profile.setDepth(Integer.parseInt(value));
+				break;
+			case "prices":
+				profile.setPriceDistribution(PriceDistribution.valueOf(value.toUpperCase(Locale.ROOT)));
+				break;
+			case "aggressive":
+				profile.setAggressiveRatio(Double.parseDouble(value));
+				break;
+			case "quantity":
+				profile.setMeanQuantity(Integer.parseInt(value));
+				break;
+			case "quantities":
+				profile.setQuantityDistribution(QuantityDistribution.valueOf(value.toUpperCase(Locale.ROOT)));
+				break;
+			case "seed":
+				profile.setSeed(Long.parseLong(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown order flow option " + option);
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Checks that the settings describe a flow that can be generated.
+	 *
+	 * @throws IllegalArgumentException if a setting is out of range
+	 */
+	public void validate() {
+		if (depth < 1 || depth > midPrice) {
+			throw new IllegalArgumentException("Depth must be from 1 to the mid price but was " + depth);
+		}
+		if (aggressiveRatio < 0 || aggressiveRatio > 1) {
+			throw new IllegalArgumentException("Aggressive ratio must be from 0 to 1 but was " + aggressiveRatio);
+		}
+		if (meanQuantity < 1 || meanQuantity > MAX_MEAN_QUANTITY) {
+			throw new IllegalArgumentException(
+					"Mean quantity must be from 1 to " + MAX_MEAN_QUANTITY + " but was " + meanQuantity);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package org.nts.exchange.verifier.core.id;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs order ids into a primitive long so that they can be stored, hashed and
+ * compared without touching character data.
+ *
+ * The two top bits of a code tell how the id was packed:
+ * <ul>
+ * <li>{@code 00} a numeric id in canonical form (no sign, no leading zero) of
+ * up to 18 digits, held as its value;</li>
+ * <li>{@code 01} an id of up to 10 characters from {@code [0-9A-Za-z-]}, held
+ * six bits per character;</li>
+ * <li>{@code 10} any other id, held as a 62 bit hash of its characters.</li>
+ * </ul>
+ * Every id has exactly one code. A numeric or packed code is the id itself and
+ * decodes back to it. A hashed code is only a fingerprint: two ids may share
+ * it, so whatever holds a hashed code also holds the id as a string, compares
+ * that string when the codes are equal and prints it instead of decoding. There
+ * is no table of ids, so memory follows the orders and trades alive and codes
+ * are the same in every process.
+ */
+public final class OrderIdCodec {
+
+	/**
+	 * A value that is never the code of an id.
+	 */
+	public static final long    NO_CODE            = -1L;
+
+	private static final int    TAG_SHIFT          = 62;
+	private static final long   TAG_NUMERIC        = 0L;
+	private static final long   TAG_PACKED         = 1L;
+	private static final long   TAG_HASHED         = 2L;
+	private static final long   PAYLOAD_MASK       = (1L << TAG_SHIFT) - 1;
+
+	private static final int    MAX_NUMERIC_DIGITS = 18;
+	private static final int    MAX_PACKED_LENGTH  = 10;
+	private static final int    BITS_PER_CHAR      = 6;
+	private static final String ALPHABET           = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-";
+	private static final byte[] SYMBOLS            = new byte[128];
+
+	static {
+		// Symbol 0 marks the end of a packed id, so characters start at 1
+		for (int i = 0; i < ALPHABET.length(); i++) {
+			SYMBOLS[ALPHABET.charAt(i)] = (byte) (i + 1);
+		}
+	}
+
+	private OrderIdCodec() {
+	}
+
+	/**
+	 * Returns the code of an id, a hash of it if it can not be packed.
+	 *
+	 * @param id the order id
+	 * @return the code of the id
+	 */
+	public static long encode(String id) {
+		long code = pack(id);
+		return code != NO_CODE ? code : hash(id);
+	}
+
+	/**
+	 * Returns the numeric or packed code of an id held as bytes, such as a field
+	 * of a mapped input file, without allocating anything.
+	 *
+	 * @param bytes the buffer holding the id, read with absolute gets
+	 * @param start the index of the first byte of the id
+	 * @param end   the index after the last byte of the id
+	 * @return the code of the id, or {@link #NO_CODE} if the id can not be packed
+	 *         and has to be encoded, and kept, as a string
+	 */
+	public static long pack(ByteBuffer bytes, int start, int end) {
+		int length = end - start;
+		if (isCanonicalNumber(bytes, start, length)) {
+			long value = 0;
+			for (int i = start; i < end; i++) {
+				value = value * 10 + (bytes.get(i) - '0');
+			}
+			return value;
+		}
+		if (length > MAX_PACKED_LENGTH) {
+			return NO_CODE;
+		}
+		long payload = 0;
+		for (int i = 0; i < MAX_PACKED_LENGTH; i++) {
+			int symbol = 0;
+			if (i < length) {
+				byte b = bytes.get(start + i);
+				symbol = b >= 0 ? SYMBOLS[b] : 0;
+				if (symbol == 0) {
+					return NO_CODE;
+				}
+			}
+			payload = (payload << BITS_PER_CHAR) | symbol;
+		}
+		return (TAG_PACKED << TAG_SHIFT) | payload;
+	}
+
+	/**
+	 * Returns whether a code is a hash, which can not be decoded and may be shared
+	 * by other ids.
+	 *
+	 * @param code the code of an id
+	 * @return true if the id has to be kept as a string next to the code
+	 */
+	public static boolean isHashed(long code) {
+		return (code >>> TAG_SHIFT) == TAG_HASHED;
+	}
+
+	/**
+	 * Returns the id a code was made from.
+	 *
+	 * @param code the code of an id
+	 * @return the order id
+	 * @throws IllegalArgumentException if the value is not the code of an id or
+	 *                                  is hashed
+	 */
+	public static String decode(long code) {
+		long tag     = code >>> TAG_SHIFT;
+		long payload = code & PAYLOAD_MASK;
+		if (tag == TAG_NUMERIC) {
+			return Long.toString(payload);
+		}
+		if (tag == TAG_PACKED) {
+			char[] chars  = new char[MAX_PACKED_LENGTH];
+			int    length = 0;
+			for (int shift = (MAX_PACKED_LENGTH - 1) * BITS_PER_CHAR; shift >= 0; shift -= BITS_PER_CHAR) {
+				int symbol = (int) (payload >>> shift) & 0x3F;
+				if (symbol == 0) {
+					break;
+				}
+				chars[length++] = ALPHABET.charAt(symbol - 1);
+			}
+			return new String(chars, 0, length);
+		}
+		throw notDecodable(code);
+	}
+
+	/**
+	 * Returns the number of bytes {@link #decode(long, byte[], int)} writes for a
+	 * code.
+	 *
+	 * @param code the code of an id
+	 * @return the length of the id in bytes
+	 * @throws IllegalArgumentException if the value is not the code of an id or
+	 *                                  is hashed
+	 */
+	public static int decodedLength(long code) {
+		long tag     = code >>> TAG_SHIFT;
+		long payload = code & PAYLOAD_MASK;
+		if (tag == TAG_NUMERIC) {
+			int length = 1;
+			while (payload >= 10) {
+				payload /= 10;
+				length++;
+			}
+			return length;
+		}
+		if (tag == TAG_PACKED) {
+			int length = 0;
+			for (int shift = (MAX_PACKED_LENGTH - 1) * BITS_PER_CHAR; shift >= 0
+					&& ((payload >>> shift) & 0x3F) != 0; shift -= BITS_PER_CHAR) {
+				length++;
+			}
+			return length;
+		}
+		throw notDecodable(code);
+	}
+
+	/**
+	 * Writes the id a code was made from into a byte array, so that numeric and
+	 * packed ids can be printed without creating a string.
+	 *
+	 * @param code   the code of an id
+	 * @param target the array to write to, with room for
+	 *               {@link #decodedLength(long)} bytes from the offset
+	 * @param offset the index to write the first byte at
+	 * @return the index after the last byte written
+	 * @throws IllegalArgumentException if the value is not the code of an id or
+	 *                                  is hashed
+	 */
+	public static int decode(long code, byte[] target, int offset) {
+		long tag     = code >>> TAG_SHIFT;
+		long payload = code & PAYLOAD_MASK;
+		if (tag == TAG_NUMERIC) {
+			int end = offset + decodedLength(code);
+			for (int i = end - 1; i >= offset; i--) {
+				target[i] = (byte) ('0' + payload % 10);
+				payload /= 10;
+			}
+			return end;
+		}
+		if (tag == TAG_PACKED) {
+			int position = offset;
+			for (int shift = (MAX_PACKED_LENGTH - 1) * BITS_PER_CHAR; shift >= 0; shift -= BITS_PER_CHAR) {
+				int symbol = (int) (payload >>> shift) & 0x3F;
+				if (symbol == 0) {
+					break;
+				}
+				target[position++] = (byte) ALPHABET.charAt(symbol - 1);
+			}
+			return position;
+		}
+		throw notDecodable(code);
+	}
+
+	private static IllegalArgumentException notDecodable(long code) {
+		if (isHashed(code)) {
+			return new IllegalArgumentException("Order id code " + code + " is a hash, its id is held as a string");
+		}
+		return new IllegalArgumentException("Not an order id code: " + code);
+	}
+
+	/**
+	 * Packs an id into a numeric or a packed code.
+	 *
+	 * @return the code, or {@link #NO_CODE} if the id has to be hashed
+	 */
+	private static long pack(String id) {
+		int length = id.length();
+		if (isCanonicalNumber(id, length)) {
+			return Long.parseLong(id);
+		}
+		if (length > MAX_PACKED_LENGTH) {
+			return NO_CODE;
+		}
+		long payload = 0;
+		for (int i = 0; i < MAX_PACKED_LENGTH; i++) {
+			int symbol = 0;
+			if (i < length) {
+				char c = id.charAt(i);
+				symbol = c < SYMBOLS.length ? SYMBOLS[c] : 0;
+				if (symbol == 0) {
+					return NO_CODE;
+				}
+			}
+			payload = (payload << BITS_PER_CHAR) | symbol;
+		}
+		return (TAG_PACKED << TAG_SHIFT) | payload;
+	}
+
+	private static boolean isCanonicalNumber(ByteBuffer bytes, int start, int length) {
+		if (length == 0 || length > MAX_NUMERIC_DIGITS || (length > 1 && bytes.get(start) == '0')) {
+			return false;
+		}
+		for (int i = start; i < start + length; i++) {
+			byte b = bytes.get(i);
+			if (b < '0' || b > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isCanonicalNumber(String id, int length) {
+		if (length == 0 || length > MAX_NUMERIC_DIGITS || (length > 1 && id.charAt(0) == '0')) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the characters of an id with 64 bit FNV-1a, mixed down to the 62 bits
+	 * of the payload.
+	 */
+	private static long hash(String id) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < id.length(); i++) {
+			hash ^= id.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		return (TAG_HASHED << TAG_SHIFT) | (hash & PAYLOAD_MASK);
+	}
+}
@@ -0,0 +1,217 @@
+package org.nts.exchange.verifier.core.marketdata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.nts.exchange.verifier.core.event.BookEvent;
+import org.nts.exchange.verifier.core.event.BookEventCursor;
+import org.nts.exchange.verifier.core.event.BookEventRing;
+import org.nts.exchange.verifier.core.orderbook.DepthLevel;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * Publishes the depth of a book to readers that must never slow matching down,
+ * such as dashboards.
+ *
+ * The publisher keeps a depth view of its own, built from the events a matching
+ * engine writes to a {@link BookEventRing}, and at most once per interval turns
+ * the best levels of that view into a {@link DepthSnapshot} held in an
+ * {@link AtomicReference}. Readers only ever see the latest snapshot: one that
+ * reads rarely skips the states in between instead of queueing them, and no
+ * reader is ever called back, so the matching thread neither waits for nor
+ * touches the readers. The publisher reads the ring on a thread of its own and
+ * only ever holds the engine back if that thread falls a whole ring behind.
+ *
+ * A reader tells new snapshots from ones it has seen by their sequence, the
+ * sequence of the last event they include, see {@link #getLatestAfter(long)}.
+ */
+@Log4j2
+public class ConflatingDepthPublisher implements AutoCloseable {
+
+	private final BookEventRing                  ring;
+	private final BookEventCursor                cursor;
+	private final int                            levels;
+	private final long                           intervalNanos;
+	private final NavigableMap<Integer, Level>   buyLevels;
+	private final NavigableMap<Integer, Level>   sellLevels;
+	private final AtomicReference<DepthSnapshot> latest;
+	private final Thread                         thread;
+	private long                                 lastSequence;
+	private long                                 nextSampleNanos;
+	private volatile boolean                     running;
+
+	/**
+	 * The total quantity and number of orders at one price of the view.
+	 */
+	private static final class Level {
+		private long quantity;
+		private int  orderCount;
+	}
+
+	/**
+	 * Creates a publisher starting from the current depth of a book and following
+	 * the events written to a ring from then on.
+	 *
+	 * The book is read once, here, so this must be called from the matching
+	 * thread or before matching starts.
+	 *
+	 * @param orderBook the book whose depth is published
+	 * @param ring      the ring the engine matching against the book writes to
+	 * @param levels    the number of levels of each side in a snapshot
+	 * @param interval  the shortest time between snapshots, 0 to publish after
+	 *                  every batch of events
+	 * @param unit      the unit of the interval
+	 * @throws IllegalArgumentException if the number of levels is not positive or
+	 *                                  the interval is negative
+	 */
+	public ConflatingDepthPublisher(OrderBook orderBook, BookEventRing ring, int levels, long interval,
+			TimeUnit unit) {
+		if (levels <= 0 || interval < 0) {
+			throw new IllegalArgumentException("Levels must be positive and the interval not negative");
+		}
+		this.ring            = ring;
+		this.cursor          = ring.newCursor();
+		this.levels          = levels;
+		this.intervalNanos   = unit.toNanos(interval);
+		this.buyLevels       = new TreeMap<>();
+		this.sellLevels      = new TreeMap<>();
+		this.latest          = new AtomicReference<>();
+		this.thread          = new Thread(this::run, "depth-publisher");
+		this.lastSequence    = cursor.getSequence();
+		this.nextSampleNanos = System.nanoTime();
+		this.thread.setDaemon(true);
+		seed(buyLevels, orderBook.getDepth(OrderSide.BUY, Integer.MAX_VALUE));
+		seed(sellLevels, orderBook.getDepth(OrderSide.SELL, Integer.MAX_VALUE));
+		latest.set(snapshot());
+	}
+
+	private static void seed(NavigableMap<Integer, Level> side, List<DepthLevel> depth) {
+		for (DepthLevel depthLevel : depth) {
+			Level level = new Level();
+			level.quantity   = depthLevel.getQuantity();
+			level.orderCount = depthLevel.getOrderCount();
+			side.put(depthLevel.getPrice(), level);
+		}
+	}
+
+	/**
+	 * Starts the thread that reads the ring and publishes the snapshots.
+	 */
+	public void start() {
+		running = true;
+		thread.start();
+	}
+
+	/**
+	 * Returns the latest snapshot.
+	 *
+	 * @return the latest snapshot, never null
+	 */
+	public DepthSnapshot getLatest() {
+		return latest.get();
+	}
+
+	/**
+	 * Returns the latest snapshot if it is newer than the one a reader has.
+	 *
+	 * @param sequence the sequence of the snapshot the reader has
+	 * @return the latest snapshot, or null if it is not newer
+	 */
+	public DepthSnapshot getLatestAfter(long sequence) {
+		DepthSnapshot snapshot = latest.get();
+		return snapshot.getSequence() > sequence ? snapshot : null;
+	}
+
+	/**
+	 * Applies the events waiting in the ring to the view and publishes a snapshot
+	 * if the view changed and one is due. The publisher thread calls this in a
+	 * loop, and it can be called directly instead of starting the thread, but
+	 * only ever from one thread.
+	 *
+	 * @return the number of events applied
+	 */
+	public int update() {
+		int applied = cursor.poll(this::apply);
+		if (lastSequence != latest.get().getSequence()) {
+			long now = System.nanoTime();
+			if (intervalNanos == 0 || now - nextSampleNanos >= 0) {
+				latest.set(snapshot());
+				nextSampleNanos = now + intervalNanos;
+			}
+		}
+		return applied;
+	}
+
+	private void apply(BookEvent event, boolean endOfBatch) {
+		lastSequence = event.getSequence();
+		if (event.getType() == BookEvent.Type.TRADE) {
+			return;
+		}
+		NavigableMap<Integer, Level> side  = event.getSide() == OrderSide.BUY ? buyLevels : sellLevels;
+		Level                        level = side.computeIfAbsent(event.getPrice(), price -> new Level());
+		if (event.getType() == BookEvent.Type.ADDED) {
+			level.quantity += event.getQuantity();
+			level.orderCount++;
+		} else {
+			level.quantity -= event.getQuantity();
+			if (event.getType() == BookEvent.Type.REMOVED) {
+				level.orderCount--;
+			}
+		}
+		if (level.orderCount == 0) {
+			side.remove(event.getPrice());
+		}
+	}
+
+	private DepthSnapshot snapshot() {
+		return new DepthSnapshot(lastSequence, System.currentTimeMillis(), topOf(buyLevels.descendingMap()),
+				topOf(sellLevels));
+	}
+
+	private List<DepthLevel> topOf(NavigableMap<Integer, Level> side) {
+		List<DepthLevel> depth = new ArrayList<>(Math.min(levels, side.size()));
+		for (Entry<Integer, Level> level : side.entrySet()) {
+			if (depth.size() == levels) {
+				break;
+			}
+			depth.add(new DepthLevel(level.getKey(), level.getValue().quantity, level.getValue().orderCount));
+		}
+		return depth;
+	}
+
+	private void run() {
+		while (running) {
+			if (update() == 0) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+			}
+		}
+	}
+
+	/**
+	 * Stops the publisher thread, publishes what it had not yet published and
+	 * stops following the ring, so that the engine no longer waits for it.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while stopping the depth publisher");
+			Thread.currentThread().interrupt();
+		}
+		nextSampleNanos = System.nanoTime();
+		update();
+		ring.removeCursor(cursor);
+	}
+}
@@ -0,0 +1,77 @@
+package org.nts.exchange.verifier.core.marketdata;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.nts.exchange.verifier.core.orderbook.DepthLevel;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+
+import lombok.Getter;
+
+/**
+ * An immutable picture of the best levels of both sides of a book, as
+ * published by a {@link ConflatingDepthPublisher}.
+ */
+public final class DepthSnapshot {
+
+	@Getter
+	private final long             sequence;
+	@Getter
+	private final long             timeMillis;
+	@Getter
+	private final List<DepthLevel> bids;
+	@Getter
+	private final List<DepthLevel> asks;
+
+	/**
+	 * Creates a snapshot.
+	 *
+	 * @param sequence   the sequence of the last book event included
+	 * @param timeMillis when the snapshot was taken
+	 * @param bids       the buy levels, best first
+	 * @param asks       the sell levels, best first
+	 */
+	public DepthSnapshot(long sequence, long timeMillis, List<DepthLevel> bids, List<DepthLevel> asks) {
+		this.sequence   = sequence;
+		this.timeMillis = timeMillis;
+		this.bids       = Collections.unmodifiableList(bids);
+		this.asks       = Collections.unmodifiableList(asks);
+	}
+
+	/**
+	 * Returns the highest buy price.
+	 *
+	 * @return the best bid, or {@link OrderBook#NO_PRICE} if there are no bids
+	 */
+	public int getBestBidPrice() {
+		return bids.isEmpty() ? OrderBook.NO_PRICE : bids.get(0).getPrice();
+	}
+
+	/**
+	 * Returns the lowest sell price.
+	 *
+	 * @return the best ask, or {@link OrderBook#NO_PRICE} if there are no asks
+	 */
+	public int getBestAskPrice() {
+		return asks.isEmpty() ? OrderBook.NO_PRICE : asks.get(0).getPrice();
+	}
+
+	/**
+	 * Returns the gap between the best ask and the best bid.
+	 *
+	 * @return the spread, or {@link OrderBook#NO_PRICE} if either side is empty
+	 */
+	public int getSpread() {
+		return bids.isEmpty() || asks.isEmpty() ? OrderBook.NO_PRICE : getBestAskPrice() - getBestBidPrice();
+	}
+
+	/**
+	 * Returns a string representation of the snapshot.
+	 *
+	 * @return the sequence and both sides, best levels first
+	 */
+	@Override
+	public String toString() {
+		return sequence + " bids " + bids + " asks " + asks;
+	}
+}
@@ -0,0 +1,49 @@
+package org.nts.exchange.verifier.core.matchingengine;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+
+/**
+ * Receives the results published by a {@link SequencedMatchingEngine}.
+ *
+ * All callbacks are made on the matching thread, in the order the results were
+ * produced, so an implementation must return quickly and must not block.
+ */
+public interface MatchingEngineListener {
+
+	/**
+	 * Called for every trade, in the order the trades happen.
+	 *
+	 * @param trade the trade
+	 */
+	void onTrade(Trade trade);
+
+	/**
+	 * Called when an order is taken up for matching, once it has its sequence
+	 * number and before any of its trades. The order still carries the quantity
+	 * it was submitted with, so the orders seen here, in this order, are enough to
+	 * replay the session.
+	 *
+	 * @param order the accepted order
+	 */
+	default void onOrderAccepted(Order order) {
+	}
+
+	/**
+	 * Called once an order has been fully processed, after the trades it
+	 * generated. The order carries its remaining quantity, which is zero if it
+	 * was completely filled and otherwise rests in the book.
+	 *
+	 * @param order the processed order
+	 */
+	default void onOrderProcessed(Order order) {
+	}
+
+	/**
+	 * Called when the matching thread has processed every order submitted so far
+	 * and is about to wait for the next one, which makes it the place to flush
+	 * anything held back for a later order.
+	 */
+	default void onIdle() {
+	}
+}
@@ -2,15 +2,19 @@ package org.nts.exchange.verifier.core.matchingengine;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 import org.nts.exchange.verifier.core.Order;
 import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.event.BookEventRing;
 import org.nts.exchange.verifier.core.matchingengine.exception.InvalidQuantityException;
 import org.nts.exchange.verifier.core.matchingengine.exception.MatchingEngineException;
+import org.nts.exchange.verifier.core.metrics.EngineMetrics;
 import org.nts.exchange.verifier.core.orderbook.OrderBook;
 import org.nts.exchange.verifier.core.orderbook.OrderBookListener;
 import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.pool.TradePool;
 import org.nts.exchange.verifier.core.tradestore.TradeStore;
 
 import lombok.extern.log4j.Log4j2;
@@ -35,11 +39,26 @@ import lombok.extern.log4j.Log4j2;
  * 
  * method, which attempts to match the new order with existing orders in the
  * order book and creates trades if any matching orders are found.
+ * 
+ * Trades can also be delivered one at a time to a callback through
+ * {@link #match(Order, Consumer)}. When the engine is given an
+ * {@link OrderPool} and a {@link TradePool} that path allocates nothing in
+ * steady state: trades come from the trade pool and go back to it as soon as
+ * the trade store and the callback have seen them, and resting orders go back
+ * to the order pool once they are completely filled.
+ * 
+ * Given a {@link BookEventRing}, the engine also records every order it rests,
+ * reduces and removes and every trade it makes, and publishes the events of
+ * each order matched as one batch.
  */
 @Log4j2
 public class PriceTimePriorityMatchingEngine implements MatchingEngine, OrderBookListener {
 	private final OrderBook  orderBook;  // The order book to match orders against
 	private final TradeStore tradeStore; // The trade store to store trades in
+	private final OrderPool  orderPool;  // Where filled resting orders are recycled, or null
+	private final TradePool  tradePool;  // Where consumed trades are recycled, or null
+	private EngineMetrics    metrics;    // Where matching is counted and timed, or null
+	private BookEventRing    events;     // Where changes to the book are published, or null
 
 	/**
 	 * 
@@ -49,9 +68,57 @@ public class PriceTimePriorityMatchingEngine implements MatchingEngine, OrderBoo
 	 * @param tradeStore the trade store to store trades in
 	 */
 	public PriceTimePriorityMatchingEngine(OrderBook orderBook, TradeStore tradeStore) {
+		this(orderBook, tradeStore, true);
+	}
+
+	/**
+	 * 
+	 * Constructs a new PriceTimePriorityMatchingEngine instance that optionally
+	 * does not subscribe to the order book.
+	 * 
+	 * An engine that does not subscribe only matches orders passed to
+	 * {@link #match(Order)}, which makes it usable as the matcher of a
+	 * {@link SequencedMatchingEngine} where orders are matched before they reach
+	 * the book instead of from inside {@link OrderBook#addOrder(Order)}.
+	 * 
+	 * @param orderBook            the order book to match orders against
+	 * @param tradeStore           the trade store to store trades in
+	 * @param subscribeToOrderBook whether to match every order added to the book
+	 */
+	public PriceTimePriorityMatchingEngine(OrderBook orderBook, TradeStore tradeStore, boolean subscribeToOrderBook) {
+		this(orderBook, tradeStore, subscribeToOrderBook, null, null);
+	}
+
+	/**
+	 * 
+	 * Constructs a new PriceTimePriorityMatchingEngine instance that recycles
+	 * orders and trades through the given pools.
+	 * 
+	 * As pooled trades are reused once consumed, the trade store must not keep
+	 * references to them.
+	 * 
+	 * @param orderBook            the order book to match orders against
+	 * @param tradeStore           the trade store to store trades in
+	 * @param subscribeToOrderBook whether to match every order added to the book
+	 * @param orderPool            the pool filled resting orders are released to,
+	 *                             or null to leave them to the garbage collector
+	 * @param tradePool            the pool trades are acquired from, or null to
+	 *                             allocate a new trade per fill
+	 * @throws IllegalArgumentException if trades are pooled and the trade store
+	 *                                  retains them
+	 */
+	public PriceTimePriorityMatchingEngine(OrderBook orderBook, TradeStore tradeStore, boolean subscribeToOrderBook,
+			OrderPool orderPool, TradePool tradePool) {
+		if (tradePool != null && tradeStore.retainsTrades()) {
+			throw new IllegalArgumentException("Pooled trades cannot be kept by " + tradeStore.getClass().getSimpleName());
+		}
 		this.orderBook  = orderBook;
 		this.tradeStore = tradeStore;
-		this.orderBook.addListener(this);
+		this.orderPool  = orderPool;
+		this.tradePool  = tradePool;
+		if (subscribeToOrderBook) {
+			this.orderBook.addListener(this);
+		}
 	}
 
 	/**
@@ -75,6 +142,31 @@ public class PriceTimePriorityMatchingEngine implements MatchingEngine, OrderBoo
 
 	}
 
+	/**
+	 * 
+	 * Counts and times every order matched from now on in the given metrics, or
+	 * stops doing so when given null. Must be set before matching starts, or from
+	 * the matching thread.
+	 * 
+	 * @param metrics the metrics to update, or null
+	 */
+	public void setMetrics(EngineMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * 
+	 * Records the changes the engine makes to the book, and its trades, in the
+	 * given ring from now on, or stops doing so when given null. Must be set
+	 * before matching starts, or from the matching thread, and the engine must be
+	 * the only writer to the ring.
+	 * 
+	 * @param events the ring to publish to, or null
+	 */
+	public void setEventRing(BookEventRing events) {
+		this.events = events;
+	}
+
 	/**
 	 * 
 	 * Returns the order book being used by this matching engine.
@@ -107,147 +199,249 @@ public class PriceTimePriorityMatchingEngine implements MatchingEngine, OrderBoo
 	@Override
 	public Trade[] match(Order newOrder) throws MatchingEngineException {
 		List<Trade> trades = new ArrayList<>();
+		// Pooled trades are recycled once consumed, so the array gets copies
+		match(newOrder, trade -> trades.add(tradePool == null ? trade : trade.copy()));
+
+		return trades.toArray(new Trade[trades.size()]);
+	}
+
+	/**
+	 * 
+	 * Attempts to match the specified new order with existing orders in the order
+	 * book, handing every trade to the given consumer as it happens.
+	 * 
+	 * The order is first given its sequence number by the order book, unless it
+	 * already has one, so its time priority is the order in which it was matched.
+	 * 
+	 * Each trade is stored in the trade store and then passed to the consumer. If
+	 * the engine pools trades, the trade is recycled as soon as the consumer
+	 * returns and must not be kept.
+	 * 
+	 * @param newOrder      the new order to match
+	 * @param tradeConsumer receives the trades, in the order they happen
+	 * 
+	 * @return the number of trades created
+	 * 
+	 * @throws MatchingEngineException if an error occurs while attempting to create
+	 *                                 a trade
+	 */
+	public int match(Order newOrder, Consumer<Trade> tradeConsumer) throws MatchingEngineException {
+		long start = metrics != null ? System.nanoTime() : 0;
 		try {
+			orderBook.assignSequence(newOrder);
+			int tradeCount;
 			if (newOrder.getSide() == OrderSide.BUY) {
-				trades.addAll(matchBuyOrder(orderBook, newOrder));
+				tradeCount = matchBuyOrder(orderBook, newOrder, tradeConsumer);
 			} else {
-				trades.addAll(matchSellOrder(orderBook, newOrder));
+				tradeCount = matchSellOrder(orderBook, newOrder, tradeConsumer);
+			}
+			if (metrics != null) {
+				metrics.onMatched(tradeCount, System.nanoTime() - start);
+				metrics.updateDepth(orderBook);
 			}
+			if (events != null) {
+				events.publish();
+			}
+			return tradeCount;
 		} catch (Exception e) {
 			throw new MatchingEngineException("Error creating match", e);
 		}
+	}
 
-		// Add all trades to Trade store
-		tradeStore.storeTrades(trades);
-		if (log.isDebugEnabled() & !trades.isEmpty()) {
-			log.debug("Trades happened... ");
-			trades.forEach(log::debug);
-		}
+	/**
+	 * Creates a trade stamped with the sequence number of its aggressor, taking it
+	 * from the trade pool if there is one.
+	 */
+	private Trade newTrade(Order aggressorOrder, Order restingOrder, int price, int quantity) {
+		Trade trade = tradePool == null ? new Trade(aggressorOrder, restingOrder, price, quantity)
+				: tradePool.acquire(aggressorOrder, restingOrder, price, quantity);
+		trade.setSequence(aggressorOrder.getSequence());
+		return trade;
+	}
 
-		return trades.toArray(new Trade[trades.size()]);
+	/**
+	 * Stores a trade, hands it to the consumer and recycles it if it is pooled.
+	 */
+	private void emit(Trade trade, OrderSide aggressorSide, Consumer<Trade> tradeConsumer) {
+		tradeStore.storeTrade(trade);
+		if (events != null) {
+			events.trade(trade, aggressorSide);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Trade happened {}", trade);
+		}
+		tradeConsumer.accept(trade);
+		if (tradePool != null) {
+			tradePool.release(trade);
+		}
 	}
-	
+
 	/**
-	 * Returns a list of all sell orders at the specified price level.
-	 *
-	 * @param price the price level to get sell orders for
-	 * @return a list of all sell orders at the specified price level
+	 * Adds the unfilled rest of an order to the book, timing it if the engine
+	 * has metrics.
 	 */
-	public List<Order> getSellOrdersAtPrice(int price) {
+	private void rest(OrderBook orderBook, Order order) {
+		if (metrics == null) {
+			orderBook.addOrder(order);
+		} else {
+			long start = System.nanoTime();
+			orderBook.addOrder(order);
+			metrics.onAdded(System.nanoTime() - start);
+		}
+		if (events != null) {
+			events.orderAdded(order);
+		}
+	}
 
-		return orderBook.getSellOrders().stream().filter(order -> order.getPrice() == price)
-				.collect(Collectors.toList());
+	/**
+	 * Takes a filled quantity off a resting order.
+	 */
+	private void reduce(OrderBook orderBook, Order order, int quantity) throws InvalidQuantityException {
+		orderBook.reduceOrder(order, quantity);
+		if (events != null) {
+			events.orderReduced(order, quantity);
+		}
 	}
 
 	/**
-	 * Matches a sell order against buy orders in the specified order book.
+	 * Removes a completely filled resting order from the book and recycles it if
+	 * the engine pools orders.
+	 */
+	private void removeFilledOrder(OrderBook orderBook, Order order) {
+		orderBook.removeOrder(order);
+		if (events != null) {
+			events.orderRemoved(order);
+		}
+		if (orderPool != null) {
+			orderPool.release(order);
+		}
+	}
+	
+	/**
+	 * Takes the filled quantity off an aggressor and rests what is left of it, or
+	 * takes it out of the book once it is filled.
 	 * 
-	 * @param orderBook the order book to match against
-	 * @param sellOrder the sell order to match
-	 * @return a list of trades resulting from the match, or an empty list if no
-	 *         trades occurred
-	 * @throws InvalidQuantityException
+	 * When the book matches orders as they are added, the aggressor already rests
+	 * in its level while it is matched, so it is reduced through the book to keep
+	 * the level totals in step.
 	 */
-	private List<Trade> matchSellOrder(OrderBook orderBook, Order sellOrder) throws InvalidQuantityException {
-		List<Trade> trades           = new ArrayList<>();
-
-		// Get all buy orders at the specified price level
-		List<Order> buyOrdersAtPrice = orderBook.getBuyOrdersAtPrice(sellOrder.getPrice());
-
-		if (log.isDebugEnabled()) {
-
-			if (!buyOrdersAtPrice.isEmpty()) {
-				buyOrdersAtPrice.forEach(log::debug);
-
+	private void settleAggressor(OrderBook orderBook, Order order, int filled) throws InvalidQuantityException {
+		boolean resting = orderBook.isResting(order);
+		if (filled > 0) {
+			if (resting) {
+				orderBook.reduceOrder(order, filled);
 			} else {
-				log.debug("Buy side orders at {} not found ", sellOrder.getPrice());
+				order.subtractQuantity(filled);
 			}
 		}
+		if (order.getQuantity() > 0) {
+			rest(orderBook, order);
+		} else if (resting) {
+			orderBook.removeOrder(order);
+		}
+	}
 
-		// Match the sell order against the buy orders
-		int totalQuantityMatched = 0;
-		for (Order buyOrder : buyOrdersAtPrice) {
-			if (totalQuantityMatched == sellOrder.getQuantity()) {
-				break; // We've matched the entire sell order
-			}
-			// Calculate the quantity to match between the sell and buy orders
+	/**
+	 * Matches a sell order against buy orders in the specified order book.
+	 * 
+	 * The buy side is walked lazily from the best price outwards, one resting
+	 * order at a time, and the walk stops as soon as the sell order is filled or
+	 * the best remaining buy price is below its limit. The work done is therefore
+	 * proportional to the number of fills and not to the size of the book.
+	 * 
+	 * @param orderBook     the order book to match against
+	 * @param sellOrder     the sell order to match
+	 * @param tradeConsumer receives the trades, in the order they happen
+	 * @return the number of trades resulting from the match
+	 * @throws InvalidQuantityException
+	 */
+	private int matchSellOrder(OrderBook orderBook, Order sellOrder, Consumer<Trade> tradeConsumer)
+			throws InvalidQuantityException {
+		int         tradeCount           = 0;
+
+		// Match the sell order against the best buy order until it is filled or no
+		// longer crosses
+		int         totalQuantityMatched = 0;
+		Order       buyOrder             = orderBook.getBestBuyOrder();
+		while (buyOrder != null && buyOrder.getPrice() >= sellOrder.getPrice()
+				&& totalQuantityMatched < sellOrder.getQuantity()) {
+			// Calculate the quantity to match between the buy and sell orders
 			int quantityToMatch = Math.min(buyOrder.getQuantity(), sellOrder.getQuantity() - totalQuantityMatched);
 			if (quantityToMatch > 0) {
 				// Update the quantities of the orders and add the trade to the list
 				totalQuantityMatched += quantityToMatch;
-				buyOrder.subtractQuantity(quantityToMatch);
-				if (buyOrder.getQuantity() == 0) {
-					orderBook.removeOrder(buyOrder.getId()); // Remove the buy order from the book if it's been
-																// completely filled
-				}
-				trades.add(new Trade(sellOrder.getId(), buyOrder.getId(), buyOrder.getPrice(), quantityToMatch));
-				//sellOrder.setQuantity(quantityToMatch);
+				reduce(orderBook, buyOrder, quantityToMatch);
+				tradeCount++;
+				emit(newTrade(sellOrder, buyOrder, buyOrder.getPrice(), quantityToMatch), OrderSide.SELL,
+						tradeConsumer);
 			}
-		}
-
-		// If the sell order hasn't been completely matched, add it to the book
-		if (totalQuantityMatched < sellOrder.getQuantity()) {
-			if(totalQuantityMatched>0) {
-				sellOrder.subtractQuantity(totalQuantityMatched);
+			if (buyOrder.getQuantity() == 0) {
+				removeFilledOrder(orderBook, buyOrder); // Remove the buy order from the book if it's been
+															// completely filled
 			}
-			orderBook.addOrder(sellOrder);
+			buyOrder = orderBook.getBestBuyOrder();
 		}
-		// If the sell order has been completely matched, remove it from the book
-		else{
-			orderBook.removeOrder(sellOrder.getId());
+
+		if (log.isDebugEnabled() && tradeCount == 0) {
+			log.debug("Buy side orders at {} not found ", sellOrder.getPrice());
 		}
 
-		return trades;
+		// Leave the sell order with its remaining quantity and, if it hasn't been
+		// completely matched, add it to the book
+		settleAggressor(orderBook, sellOrder, totalQuantityMatched);
+
+		return tradeCount;
 	}
 
 	/**
 	 * Matches a buy order against sell orders in the specified order book.
 	 * 
-	 * @param orderBook the order book to match against
-	 * @param buyOrder  the buy order to match
-	 * @return a list of trades resulting from the match, or an empty list if no
-	 *         trades occurred
+	 * The sell side is walked lazily from the best price outwards, one resting
+	 * order at a time, and the walk stops as soon as the buy order is filled or
+	 * the best remaining sell price is above its limit.
+	 * 
+	 * @param orderBook     the order book to match against
+	 * @param buyOrder      the buy order to match
+	 * @param tradeConsumer receives the trades, in the order they happen
+	 * @return the number of trades resulting from the match
 	 * @throws InvalidQuantityException
 	 */
-	private List<Trade> matchBuyOrder(OrderBook orderBook, Order buyOrder) throws InvalidQuantityException {
-		List<Trade> trades               = new ArrayList<>();
+	private int matchBuyOrder(OrderBook orderBook, Order buyOrder, Consumer<Trade> tradeConsumer)
+			throws InvalidQuantityException {
+		int         tradeCount           = 0;
 
-		// Get all sell orders at the specified price level.
-		List<Order> sellOrdersAtPrice    = orderBook.getSellOrdersAtPrice(buyOrder.getPrice());
-
-		// Match the buy order against the sell orders
+		// Match the buy order against the best sell order until it is filled or no
+		// longer crosses
 		int         totalQuantityMatched = 0;
-		for (Order sellOrder : sellOrdersAtPrice) {
-			if (totalQuantityMatched == buyOrder.getQuantity()) {
-				break; // We've matched the entire buy order
-			}
+		Order       sellOrder            = orderBook.getBestSellOrder();
+		while (sellOrder != null && sellOrder.getPrice() <= buyOrder.getPrice()
+				&& totalQuantityMatched < buyOrder.getQuantity()) {
 			// Calculate the quantity to match between the buy and sell orders
 			int quantityToMatch = Math.min(sellOrder.getQuantity(), buyOrder.getQuantity() - totalQuantityMatched);
 			if (quantityToMatch > 0) {
 				// Update the quantities of the orders and add the trade to the list
 				totalQuantityMatched += quantityToMatch;
-				sellOrder.subtractQuantity(quantityToMatch);
-				if (sellOrder.getQuantity() == 0) {
-					orderBook.removeOrder(sellOrder.getId()); // Remove the sell order from the book if it's been
-																// completely filled
-				}
-				trades.add(new Trade(buyOrder.getId(), sellOrder.getId(), sellOrder.getPrice(), quantityToMatch));
-				//buyOrder.setQuantity(quantityToMatch);
+				reduce(orderBook, sellOrder, quantityToMatch);
+				tradeCount++;
+				emit(newTrade(buyOrder, sellOrder, sellOrder.getPrice(), quantityToMatch), OrderSide.BUY,
+						tradeConsumer);
 			}
-		}
-
-		// If the buy order hasn't been completely matched, add it to the book
-		if (totalQuantityMatched < buyOrder.getQuantity()) {
-			if(totalQuantityMatched>0) {
-				buyOrder.subtractQuantity(totalQuantityMatched);
+			if (sellOrder.getQuantity() == 0) {
+				removeFilledOrder(orderBook, sellOrder); // Remove the sell order from the book if it's been
+															// completely filled
 			}
-			orderBook.addOrder(buyOrder);
+			sellOrder = orderBook.getBestSellOrder();
 		}
-		else {
-			orderBook.removeOrder(buyOrder.getId());
+
+		if (log.isDebugEnabled() && tradeCount == 0) {
+			log.debug("Sell side orders at {} not found ", buyOrder.getPrice());
 		}
 
-		return trades;
+		// Leave the buy order with its remaining quantity and, if it hasn't been
+		// completely matched, add it to the book
+		settleAggressor(orderBook, buyOrder, totalQuantityMatched);
+
+		return tradeCount;
 	}
 
 	@Override
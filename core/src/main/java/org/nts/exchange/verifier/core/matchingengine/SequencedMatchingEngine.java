@@ -0,0 +1,405 @@
+package org.nts.exchange.verifier.core.matchingengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.event.BookEventRing;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.exception.MatchingEngineException;
+import org.nts.exchange.verifier.core.metrics.EngineMetrics;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.pool.TradePool;
+import org.nts.exchange.verifier.core.tradestore.TradeStore;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * A {@link MatchingEngine} front door that sequences every order through a
+ * single matching thread.
+ *
+ * Producers call {@link #submit(Order)}, which places the order on a bounded
+ * queue and returns. The matching thread takes orders off the queue one at a
+ * time, matches each against the book with a
+ * {@link PriceTimePriorityMatchingEngine} that is not subscribed to the book,
+ * and publishes the accepted order, its trades and the processed order to the
+ * registered {@link MatchingEngineListener}s, which are also told whenever the
+ * queue runs empty.
+ *
+ * As orders are matched before they rest, the book is never re-entered from one
+ * of its own listeners, and as the matching thread is its only writer the book
+ * needs no locks, see {@link org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook}.
+ * The order book and trade store must only be read from a listener or once the
+ * engine has been closed.
+ *
+ * Each order is given its sequence number, its time priority, when the
+ * matching thread takes it off the queue, so priority follows the order of
+ * acceptance rather than the time the order object was created. The same input
+ * therefore always produces the same trades and book, and
+ * {@link #replay(Iterable)} reproduces a run on the calling thread without the
+ * queue hand-off.
+ *
+ * The matching thread is created by the given {@link ThreadFactory}, which is
+ * the place to give it a name, a priority or an affinity to a dedicated core.
+ *
+ * Given an {@link OrderPool} and a {@link TradePool}, the matching thread
+ * allocates nothing in steady state: trades are handed to the listeners
+ * straight from the trade pool and recycled when they return, and orders,
+ * resting or aggressing, go back to the order pool once completely filled.
+ * Producers should then acquire their orders from the same order pool, and
+ * listeners must copy anything they want to keep from a trade.
+ *
+ * An order whose matching or publishing throws stops the matching thread, as
+ * the book may be left part way through the match: no further order is
+ * matched, and {@link #submit(Order)} and {@link #close()} fail with the cause
+ * instead of waiting on a queue that is no longer drained.
+ */
+@Log4j2
+public class SequencedMatchingEngine implements MatchingEngine, AutoCloseable {
+
+	/**
+	 * The capacity of the inbound queue used when none is specified.
+	 */
+	public static final int                       DEFAULT_QUEUE_CAPACITY = 65_536;
+
+	// How long a producer waits for space on the queue before checking that the
+	// matching thread is still running
+	private static final long                     OFFER_WAIT_MILLIS      = 100;
+
+	// Marks the end of the inbound queue once the engine is closed
+	private static final Order                    END_OF_INPUT           = new Order(OrderIdCodec.NO_CODE, OrderSide.BUY,
+			0, 0);
+
+	private final PriceTimePriorityMatchingEngine matcher;
+	private final OrderPool                       orderPool;
+	private final BlockingQueue<Order>            inbound;
+	private final Consumer<Trade>                 tradePublisher;
+	private final Thread                          matchingThread;
+	// Held to submit, and exclusively to stop accepting, so that no order is
+	// queued behind the end of input
+	private final ReadWriteLock                   submitLock;
+	// Replaced on every change so that publishing iterates a plain array
+	private volatile MatchingEngineListener[]     listeners;
+	private volatile boolean                      accepting;
+	private volatile Throwable                    failure;
+
+	/**
+	 *
+	 * Constructs a new SequencedMatchingEngine with a default queue capacity and
+	 * a default matching thread.
+	 *
+	 * @param orderBook  the order book to match orders against
+	 * @param tradeStore the trade store to store trades in
+	 */
+	public SequencedMatchingEngine(OrderBook orderBook, TradeStore tradeStore) {
+		this(orderBook, tradeStore, DEFAULT_QUEUE_CAPACITY, runnable -> new Thread(runnable, "matching-engine"));
+	}
+
+	/**
+	 *
+	 * Constructs a new SequencedMatchingEngine.
+	 *
+	 * @param orderBook     the order book to match orders against
+	 * @param tradeStore    the trade store to store trades in
+	 * @param queueCapacity the number of orders that can wait to be matched before
+	 *                      {@link #submit(Order)} blocks
+	 * @param threadFactory the factory creating the matching thread
+	 */
+	public SequencedMatchingEngine(OrderBook orderBook, TradeStore tradeStore, int queueCapacity,
+			ThreadFactory threadFactory) {
+		this(orderBook, tradeStore, queueCapacity, threadFactory, null, null);
+	}
+
+	/**
+	 *
+	 * Constructs a new SequencedMatchingEngine that recycles orders and trades
+	 * through the given pools.
+	 *
+	 * @param orderBook     the order book to match orders against
+	 * @param tradeStore    the trade store to store trades in, which must not
+	 *                      retain trades if they are pooled
+	 * @param queueCapacity the number of orders that can wait to be matched before
+	 *                      {@link #submit(Order)} blocks
+	 * @param threadFactory the factory creating the matching thread
+	 * @param orderPool     the pool filled orders are released to, or null
+	 * @param tradePool     the pool trades are acquired from, or null
+	 */
+	public SequencedMatchingEngine(OrderBook orderBook, TradeStore tradeStore, int queueCapacity,
+			ThreadFactory threadFactory, OrderPool orderPool, TradePool tradePool) {
+		this.matcher        = new PriceTimePriorityMatchingEngine(orderBook, tradeStore, false, orderPool, tradePool);
+		this.orderPool      = orderPool;
+		this.inbound        = new ArrayBlockingQueue<>(queueCapacity);
+		this.tradePublisher = this::publish;
+		this.matchingThread = threadFactory.newThread(this::run);
+		this.listeners      = new MatchingEngineListener[0];
+		this.submitLock     = new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * Adds a listener that will receive the trades and processed orders.
+	 *
+	 * @param listener the listener to add
+	 */
+	public synchronized void addListener(MatchingEngineListener listener) {
+		MatchingEngineListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+		updated[listeners.length] = listener;
+		listeners                 = updated;
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public synchronized void removeListener(MatchingEngineListener listener) {
+		List<MatchingEngineListener> updated = new ArrayList<>(Arrays.asList(listeners));
+		updated.remove(listener);
+		listeners = updated.toArray(new MatchingEngineListener[updated.size()]);
+	}
+
+	/**
+	 * Counts and times every order matched in the given metrics. Must be set
+	 * before the engine is started.
+	 *
+	 * @param metrics the metrics to update, or null
+	 */
+	public void setMetrics(EngineMetrics metrics) {
+		matcher.setMetrics(metrics);
+	}
+
+	/**
+	 * Publishes the changes made to the book, and the trades, in the given ring.
+	 * Must be set before the engine is started.
+	 *
+	 * @param events the ring to publish to, or null
+	 */
+	public void setEventRing(BookEventRing events) {
+		matcher.setEventRing(events);
+	}
+
+	/**
+	 * Starts the matching thread, after which orders can be submitted.
+	 */
+	public void start() {
+		accepting = true;
+		matchingThread.start();
+	}
+
+	/**
+	 *
+	 * Submits an order to be matched on the matching thread, waiting for space on
+	 * the queue if it is full.
+	 *
+	 * @param order the order to match
+	 * @throws MatchingEngineException if the engine is closed, the matching
+	 *                                 thread has stopped or the calling thread is
+	 *                                 interrupted while waiting
+	 */
+	public void submit(Order order) throws MatchingEngineException {
+		submitLock.readLock().lock();
+		try {
+			if (!accepting) {
+				throw new MatchingEngineException("Matching engine is not accepting orders");
+			}
+			if (failure != null) {
+				throw new MatchingEngineException("The matching thread has stopped", failure);
+			}
+			enqueue(order);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MatchingEngineException("Interrupted while submitting order " + order.getId(), e);
+		} finally {
+			submitLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Waits for space on the queue for as long as the matching thread runs.
+	 */
+	private void enqueue(Order order) throws InterruptedException {
+		while (!inbound.offer(order, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+			if (!matchingThread.isAlive()) {
+				throw new MatchingEngineException("The matching thread has stopped", failure);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Matches an order synchronously and publishes the result to the listeners.
+	 *
+	 * While the engine is running this may only be called from the matching
+	 * thread, otherwise there would be a second writer to the book. Before the
+	 * engine is started, or after it is closed, the caller is the single writer.
+	 *
+	 * @param order the order to match
+	 * @return the generated trades
+	 * @throws MatchingEngineException if called from another thread while the
+	 *                                 engine is running, or if matching fails
+	 */
+	@Override
+	public Trade[] match(Order order) throws MatchingEngineException {
+		if (matchingThread.isAlive() && Thread.currentThread() != matchingThread) {
+			throw new MatchingEngineException("Orders must be submitted while the matching engine is running");
+		}
+		accepted(order);
+		List<Trade> trades = new ArrayList<>();
+		// Pooled trades are recycled once consumed, so the array gets copies
+		matcher.match(order, trade -> {
+			publish(trade);
+			trades.add(trade.copy());
+		});
+		completed(order);
+		return trades.toArray(new Trade[trades.size()]);
+	}
+
+	/**
+	 *
+	 * Replays a recorded stream of orders on the calling thread, in the order
+	 * given, and publishes the results to the listeners exactly as the matching
+	 * thread would.
+	 *
+	 * As sequence numbers are assigned in the order orders are processed, a replay
+	 * of the same input reproduces the trades and the book of the original run.
+	 * Skipping the queue and the thread hand-off makes it the fastest way to
+	 * re-run a session. The engine must not be running.
+	 *
+	 * @param orders the orders to replay
+	 * @return the number of trades generated
+	 * @throws MatchingEngineException if the engine is running, or if matching
+	 *                                 fails
+	 */
+	public long replay(Iterable<Order> orders) throws MatchingEngineException {
+		if (matchingThread.isAlive()) {
+			throw new MatchingEngineException("Orders can not be replayed while the matching engine is running");
+		}
+		long tradeCount = 0;
+		for (Order order : orders) {
+			tradeCount += process(order);
+		}
+		return tradeCount;
+	}
+
+	private int process(Order order) {
+		accepted(order);
+		int tradeCount = matcher.match(order, tradePublisher);
+		completed(order);
+		return tradeCount;
+	}
+
+	private void accepted(Order order) {
+		matcher.getOrderBook().assignSequence(order);
+		MatchingEngineListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onOrderAccepted(order);
+		}
+	}
+
+	private void publish(Trade trade) {
+		MatchingEngineListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onTrade(trade);
+		}
+	}
+
+	private void completed(Order order) {
+		MatchingEngineListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].onOrderProcessed(order);
+		}
+		if (orderPool != null && order.getQuantity() == 0) {
+			orderPool.release(order);
+		}
+	}
+
+	/**
+	 * Takes the next order off the queue, telling the listeners first if there is
+	 * none waiting.
+	 */
+	private Order next() throws InterruptedException {
+		Order order = inbound.poll();
+		if (order == null) {
+			MatchingEngineListener[] current = listeners;
+			for (int i = 0; i < current.length; i++) {
+				current[i].onIdle();
+			}
+			order = inbound.take();
+		}
+		return order;
+	}
+
+	private void run() {
+		Order order = null;
+		try {
+			order = next();
+			while (order != END_OF_INPUT) {
+				process(order);
+				order = next();
+			}
+		} catch (InterruptedException e) {
+			log.warn("Matching thread interrupted, {} orders left unmatched", inbound.size());
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException | Error e) {
+			// The book may be part way through the match, so nothing more is matched on it
+			failure = e;
+			log.error("Matching thread failed on order {}, {} orders left unmatched", order, inbound.size(), e);
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting orders, waits for the matching thread to process every
+	 * order already submitted and stops it.
+	 *
+	 * @throws MatchingEngineException if the matching thread stopped before it
+	 *                                 had processed every order, or the calling
+	 *                                 thread is interrupted while waiting
+	 */
+	@Override
+	public void close() {
+		submitLock.writeLock().lock();
+		try {
+			if (!accepting) {
+				return;
+			}
+			accepting = false;
+		} finally {
+			submitLock.writeLock().unlock();
+		}
+		try {
+			enqueue(END_OF_INPUT);
+			matchingThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MatchingEngineException("Interrupted while closing the matching engine", e);
+		}
+		if (failure != null || !inbound.isEmpty()) {
+			throw new MatchingEngineException(
+					"The matching thread stopped with " + (inbound.size() - 1) + " orders left unmatched", failure);
+		}
+	}
+
+	@Override
+	public OrderBook getOrderBook() {
+		return matcher.getOrderBook();
+	}
+
+	@Override
+	public TradeStore getTradeStore() {
+		return matcher.getTradeStore();
+	}
+}
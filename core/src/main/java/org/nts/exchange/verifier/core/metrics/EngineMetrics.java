@@ -0,0 +1,232 @@
+package org.nts.exchange.verifier.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+/**
+ *
+ * Counts what a matching engine does and times its hot paths, for operations
+ * to watch live over JMX.
+ *
+ * The engine calls {@link #onMatched(int, long)}, {@link #onAdded(long)} and
+ * {@link #updateDepth(OrderBook)} as it matches. Counters are
+ * {@link LongAdder}s, which threads update on cells of their own, latencies go
+ * to {@link LatencyRecorder}s and the depth of the book is copied into volatile
+ * fields, so none of these calls takes a lock or allocates. Reading is left to
+ * the JMX getters, which do the summing and the percentiles on the reader's
+ * thread.
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+
+	/**
+	 * The domain of the names the metrics are registered under.
+	 */
+	public static final String    DOMAIN = "org.nts.exchange.verifier";
+
+	private final LongAdder       ordersAccepted;
+	private final LongAdder       trades;
+	private final LongAdder       aggressorOrders;
+	private final LatencyRecorder matchLatency;
+	private final LatencyRecorder addOrderLatency;
+	private volatile int          buyOrderCount;
+	private volatile int          sellOrderCount;
+	private volatile int          buyLevelCount;
+	private volatile int          sellLevelCount;
+	private ObjectName            objectName;
+
+	/**
+	 * Creates metrics with every count at zero.
+	 */
+	public EngineMetrics() {
+		this.ordersAccepted  = new LongAdder();
+		this.trades          = new LongAdder();
+		this.aggressorOrders = new LongAdder();
+		this.matchLatency    = new LatencyRecorder();
+		this.addOrderLatency = new LatencyRecorder();
+	}
+
+	/**
+	 * Counts an order matched.
+	 *
+	 * @param tradeCount the number of trades the order made
+	 * @param nanos      the time taken to match it
+	 */
+	public void onMatched(int tradeCount, long nanos) {
+		ordersAccepted.increment();
+		if (tradeCount > 0) {
+			trades.add(tradeCount);
+			aggressorOrders.increment();
+		}
+		matchLatency.record(nanos);
+	}
+
+	/**
+	 * Times an order added to the book.
+	 *
+	 * @param nanos the time taken to add it
+	 */
+	public void onAdded(long nanos) {
+		addOrderLatency.record(nanos);
+	}
+
+	/**
+	 * Copies the depth of a book, from the thread that changes it.
+	 *
+	 * @param orderBook the book the engine matches against
+	 */
+	public void updateDepth(OrderBook orderBook) {
+		buyOrderCount  = orderBook.getOrderCount(OrderSide.BUY);
+		sellOrderCount = orderBook.getOrderCount(OrderSide.SELL);
+		buyLevelCount  = orderBook.getLevelCount(OrderSide.BUY);
+		sellLevelCount = orderBook.getLevelCount(OrderSide.SELL);
+	}
+
+	/**
+	 *
+	 * Publishes the metrics on the platform MBean server, under
+	 * {@code org.nts.exchange.verifier:type=EngineMetrics,name=<name>}.
+	 *
+	 * @param name the name of the engine, unique within the JVM
+	 * @return the name registered under
+	 * @throws IllegalStateException if the metrics can not be registered, as when
+	 *                               the name is taken
+	 */
+	public synchronized ObjectName register(String name) {
+		try {
+			ObjectName registered = new ObjectName(DOMAIN + ":type=EngineMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, registered);
+			objectName = registered;
+			return registered;
+		} catch (JMException e) {
+			throw new IllegalStateException("Can not register engine metrics " + name, e);
+		}
+	}
+
+	/**
+	 * Withdraws the metrics from the platform MBean server, if they were
+	 * registered.
+	 */
+	public synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new IllegalStateException("Can not unregister engine metrics " + objectName, e);
+		} finally {
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Returns the latencies of matching recorded so far.
+	 *
+	 * @return a snapshot of the latencies, in nanoseconds
+	 */
+	public LatencyHistogram getMatchLatency() {
+		return matchLatency.snapshot();
+	}
+
+	/**
+	 * Returns the latencies of adding orders to the book recorded so far.
+	 *
+	 * @return a snapshot of the latencies, in nanoseconds
+	 */
+	public LatencyHistogram getAddOrderLatency() {
+		return addOrderLatency.snapshot();
+	}
+
+	@Override
+	public long getOrdersAccepted() {
+		return ordersAccepted.sum();
+	}
+
+	@Override
+	public long getTrades() {
+		return trades.sum();
+	}
+
+	@Override
+	public long getAggressorOrders() {
+		return aggressorOrders.sum();
+	}
+
+	@Override
+	public double getFillsPerAggressor() {
+		long aggressors = aggressorOrders.sum();
+		return aggressors == 0 ? 0 : (double) trades.sum() / aggressors;
+	}
+
+	@Override
+	public int getBuyOrderCount() {
+		return buyOrderCount;
+	}
+
+	@Override
+	public int getSellOrderCount() {
+		return sellOrderCount;
+	}
+
+	@Override
+	public int getBuyLevelCount() {
+		return buyLevelCount;
+	}
+
+	@Override
+	public int getSellLevelCount() {
+		return sellLevelCount;
+	}
+
+	@Override
+	public long getMatchLatencyP50() {
+		return matchLatency.snapshot().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getMatchLatencyP99() {
+		return matchLatency.snapshot().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getMatchLatencyP999() {
+		return matchLatency.snapshot().getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getMatchLatencyMax() {
+		return matchLatency.snapshot().getMax();
+	}
+
+	@Override
+	public long getAddOrderLatencyP50() {
+		return addOrderLatency.snapshot().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getAddOrderLatencyP99() {
+		return addOrderLatency.snapshot().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getAddOrderLatencyP999() {
+		return addOrderLatency.snapshot().getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getAddOrderLatencyMax() {
+		return addOrderLatency.snapshot().getMax();
+	}
+
+	@Override
+	public void resetLatencies() {
+		matchLatency.reset();
+		addOrderLatency.reset();
+	}
+}
@@ -0,0 +1,95 @@
+package org.nts.exchange.verifier.core.metrics;
+
+/**
+ * The management interface of {@link EngineMetrics}, as published over JMX.
+ *
+ * Latencies are in nanoseconds, over every order matched since the start or
+ * the last {@link #resetLatencies()}.
+ */
+public interface EngineMetricsMXBean {
+
+	/**
+	 * @return the number of orders matched
+	 */
+	long getOrdersAccepted();
+
+	/**
+	 * @return the number of trades
+	 */
+	long getTrades();
+
+	/**
+	 * @return the number of orders that traded on arrival
+	 */
+	long getAggressorOrders();
+
+	/**
+	 * @return the mean number of fills of an order that traded on arrival
+	 */
+	double getFillsPerAggressor();
+
+	/**
+	 * @return the number of orders resting on the buy side
+	 */
+	int getBuyOrderCount();
+
+	/**
+	 * @return the number of orders resting on the sell side
+	 */
+	int getSellOrderCount();
+
+	/**
+	 * @return the number of price levels on the buy side
+	 */
+	int getBuyLevelCount();
+
+	/**
+	 * @return the number of price levels on the sell side
+	 */
+	int getSellLevelCount();
+
+	/**
+	 * @return the median latency of matching an order
+	 */
+	long getMatchLatencyP50();
+
+	/**
+	 * @return the 99th percentile latency of matching an order
+	 */
+	long getMatchLatencyP99();
+
+	/**
+	 * @return the 99.9th percentile latency of matching an order
+	 */
+	long getMatchLatencyP999();
+
+	/**
+	 * @return the highest latency of matching an order
+	 */
+	long getMatchLatencyMax();
+
+	/**
+	 * @return the median latency of adding an order to the book
+	 */
+	long getAddOrderLatencyP50();
+
+	/**
+	 * @return the 99th percentile latency of adding an order to the book
+	 */
+	long getAddOrderLatencyP99();
+
+	/**
+	 * @return the 99.9th percentile latency of adding an order to the book
+	 */
+	long getAddOrderLatencyP999();
+
+	/**
+	 * @return the highest latency of adding an order to the book
+	 */
+	long getAddOrderLatencyMax();
+
+	/**
+	 * Forgets the latencies recorded so far, as at the start of a session.
+	 */
+	void resetLatencies();
+}
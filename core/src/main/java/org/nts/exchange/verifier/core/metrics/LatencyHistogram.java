@@ -0,0 +1,209 @@
+package org.nts.exchange.verifier.core.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Records latencies into log-linear buckets, in the manner of an HDR histogram,
+ * so that percentiles far out in the tail are reported with a bounded relative
+ * error and the memory used does not depend on the number of values recorded.
+ *
+ * Values below 2048 are counted exactly. Above that, every power of two is
+ * split into 1024 buckets, so a value is reported to within one part in 1024
+ * of what was recorded, that is to three significant digits. Any non-negative
+ * long can be recorded.
+ *
+ * A histogram is meant to be recorded into by a single thread; histograms
+ * recorded on several threads are combined with {@link #add(LatencyHistogram)}.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS  = 11;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_COUNT       = SUB_BUCKET_COUNT / 2;
+	// Exponents from 1, for values of 2048 and up, to 52, for the largest longs
+	static final int         BUCKET_COUNT     = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * HALF_COUNT;
+
+	private final long[]     counts;
+	private long             totalCount;
+	private long             min;
+	private long             max;
+	private double           sum;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+		this.counts = new long[BUCKET_COUNT];
+		reset();
+	}
+
+	/**
+	 * Creates a histogram holding counts gathered elsewhere, bucketed the same
+	 * way.
+	 */
+	LatencyHistogram(long[] counts, long min, long max, double sum) {
+		this.counts = counts;
+		for (long count : counts) {
+			totalCount += count;
+		}
+		this.min = min;
+		this.max = max;
+		this.sum = sum;
+	}
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value the value, usually a latency in nanoseconds
+	 * @throws IllegalArgumentException if the value is negative
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Can not record a negative latency " + value);
+		}
+		counts[indexOf(value)]++;
+		totalCount++;
+		sum += value;
+		min  = Math.min(min, value);
+		max  = Math.max(max, value);
+	}
+
+	/**
+	 * Adds every value recorded by another histogram to this one.
+	 *
+	 * @param other the histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		sum        += other.sum;
+		min         = Math.min(min, other.min);
+		max         = Math.max(max, other.max);
+	}
+
+	/**
+	 * Forgets every value recorded.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		sum        = 0;
+		min        = Long.MAX_VALUE;
+		max        = 0;
+	}
+
+	/**
+	 * Returns the number of values recorded.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns the smallest value recorded.
+	 *
+	 * @return the minimum, or 0 if nothing was recorded
+	 */
+	public long getMin() {
+		return totalCount == 0 ? 0 : min;
+	}
+
+	/**
+	 * Returns the largest value recorded, exactly.
+	 *
+	 * @return the maximum, or 0 if nothing was recorded
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the mean of the values recorded.
+	 *
+	 * @return the mean, or NaN if nothing was recorded
+	 */
+	public double getMean() {
+		return totalCount == 0 ? Double.NaN : sum / totalCount;
+	}
+
+	/**
+	 *
+	 * Returns the value below or at which a given percentage of the values
+	 * recorded fall, rounded up to the end of its bucket and never above the
+	 * maximum.
+	 *
+	 * @param percentile the percentage, from 0 to 100
+	 * @return the value at the percentile, or 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long rank    = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+		long counted = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counted += counts[i];
+			if (counted >= rank) {
+				return Math.min(max, highestValueOf(i));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 *
+	 * Formats the count and the usual percentiles of the values, taken as
+	 * nanoseconds, in a unit of time.
+	 *
+	 * @param unit the unit to report the values in
+	 * @return a line such as
+	 *         {@code count=1000 p50=12.3us p99=40.1us p99.9=88.0us max=120.5us}
+	 */
+	public String summary(TimeUnit unit) {
+		return String.format(Locale.ROOT, "count=%d p50=%s p99=%s p99.9=%s max=%s", totalCount,
+				format(getValueAtPercentile(50), unit), format(getValueAtPercentile(99), unit),
+				format(getValueAtPercentile(99.9), unit), format(getMax(), unit));
+	}
+
+	private static String format(long nanos, TimeUnit unit) {
+		return String.format(Locale.ROOT, "%.1f%s", (double) nanos / unit.toNanos(1), symbolOf(unit));
+	}
+
+	private static String symbolOf(TimeUnit unit) {
+		switch (unit) {
+		case NANOSECONDS:
+			return "ns";
+		case MICROSECONDS:
+			return "us";
+		case MILLISECONDS:
+			return "ms";
+		default:
+			return "s";
+		}
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int sub      = (int) (value >>> exponent);
+		return SUB_BUCKET_COUNT + (exponent - 1) * HALF_COUNT + (sub - HALF_COUNT);
+	}
+
+	private static long highestValueOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int  exponent = (index - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+		long sub      = (index - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+		return ((sub + 1) << exponent) - 1;
+	}
+}
@@ -0,0 +1,73 @@
+package org.nts.exchange.verifier.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ *
+ * Records latencies from any number of threads, to be read while they are being
+ * recorded.
+ *
+ * Values go into the same buckets as a {@link LatencyHistogram}, held in an
+ * atomic array, so recording takes no lock and allocates nothing, and readers
+ * take a {@link #snapshot()} without stopping the writers. A snapshot taken
+ * while values are being recorded may miss the latest of them.
+ */
+public class LatencyRecorder {
+
+	private final AtomicLongArray counts;
+	private final LongAccumulator min;
+	private final LongAccumulator max;
+	private final DoubleAdder     sum;
+
+	/**
+	 * Creates an empty recorder.
+	 */
+	public LatencyRecorder() {
+		this.counts = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+		this.min    = new LongAccumulator(Math::min, Long.MAX_VALUE);
+		this.max    = new LongAccumulator(Math::max, 0);
+		this.sum    = new DoubleAdder();
+	}
+
+	/**
+	 * Records a value.
+	 *
+	 * @param nanos the latency, in nanoseconds; negative values, as given by a
+	 *              clock going backwards, are recorded as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(LatencyHistogram.indexOf(value));
+		min.accumulate(value);
+		max.accumulate(value);
+		sum.add(value);
+	}
+
+	/**
+	 * Copies the values recorded so far into a histogram.
+	 *
+	 * @return a new histogram, independent of this recorder
+	 */
+	public LatencyHistogram snapshot() {
+		long[] copy = new long[counts.length()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new LatencyHistogram(copy, min.get(), max.get(), sum.sum());
+	}
+
+	/**
+	 * Forgets every value recorded. Values recorded while resetting may be
+	 * partly kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		min.reset();
+		max.reset();
+		sum.reset();
+	}
+}
@@ -0,0 +1,73 @@
+package org.nts.exchange.verifier.core.orderbook;
+
+import java.util.List;
+
+import org.nts.exchange.verifier.core.Order;
+
+/**
+ * Checks the orders given to {@link OrderBook#loadOrders(List, List)} before a
+ * book touches any of its state, so that a rejected load leaves the book as it
+ * was.
+ */
+final class BulkLoadValidator {
+
+	private BulkLoadValidator() {
+	}
+
+	/**
+	 * Checks that each side is on the right side and in price time priority, that
+	 * every order has a positive quantity and a price within range, and that the
+	 * best buy price is below the best sell price.
+	 *
+	 * Within a price level, an order given a sequence number must come after the
+	 * order ahead of it, and may not follow an order without one, which will be
+	 * numbered after every order given a number.
+	 *
+	 * @param buyOrders  the buy orders, highest price first
+	 * @param sellOrders the sell orders, lowest price first
+	 * @param maxPrice   the highest price the book can hold
+	 * @return the highest sequence number given, or {@link Order#NO_SEQUENCE}
+	 * @throws IllegalArgumentException if a check fails
+	 */
+	static long validate(List<Order> buyOrders, List<Order> sellOrders, int maxPrice) {
+		long highestSequence = Math.max(validateSide(buyOrders, OrderSide.BUY, maxPrice),
+				validateSide(sellOrders, OrderSide.SELL, maxPrice));
+		if (!buyOrders.isEmpty() && !sellOrders.isEmpty()
+				&& buyOrders.get(0).getPrice() >= sellOrders.get(0).getPrice()) {
+			throw new IllegalArgumentException("Orders cross: best buy " + buyOrders.get(0) + " is at or above best sell "
+					+ sellOrders.get(0));
+		}
+		return highestSequence;
+	}
+
+	private static long validateSide(List<Order> orders, OrderSide side, int maxPrice) {
+		long  highestSequence = Order.NO_SEQUENCE;
+		Order previous        = null;
+		for (Order order : orders) {
+			if (order.getSide() != side) {
+				throw new IllegalArgumentException("Order " + order + " is not a " + side + " order");
+			}
+			if (order.getPrice() < 0 || order.getPrice() > maxPrice) {
+				throw new IllegalArgumentException("Order " + order + " is priced outside of the range 0 - " + maxPrice);
+			}
+			if (order.getQuantity() <= 0) {
+				throw new IllegalArgumentException("Order " + order + " has no quantity left to rest");
+			}
+			if (previous != null) {
+				int priceStep = order.getPrice() - previous.getPrice();
+				if (side == OrderSide.BUY ? priceStep > 0 : priceStep < 0) {
+					throw new IllegalArgumentException(
+							"Order " + order + " is out of price priority after " + previous);
+				}
+				if (priceStep == 0 && order.getSequence() != Order.NO_SEQUENCE
+						&& (previous.getSequence() == Order.NO_SEQUENCE
+								|| order.getSequence() <= previous.getSequence())) {
+					throw new IllegalArgumentException("Order " + order + " is out of time priority after " + previous);
+				}
+			}
+			highestSequence = Math.max(highestSequence, order.getSequence());
+			previous        = order;
+		}
+		return highestSequence;
+	}
+}
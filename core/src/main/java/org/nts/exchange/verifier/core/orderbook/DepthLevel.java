@@ -0,0 +1,41 @@
+package org.nts.exchange.verifier.core.orderbook;
+
+import lombok.Getter;
+
+/**
+ * The aggregate of one price level of an order book, as returned by
+ * {@link OrderBook#getDepth(OrderSide, int)}: the price, the total quantity
+ * resting at it and the number of orders making it up.
+ */
+public final class DepthLevel {
+
+	@Getter
+	private final int  price;
+	@Getter
+	private final long quantity;
+	@Getter
+	private final int  orderCount;
+
+	/**
+	 * Creates a new depth level.
+	 *
+	 * @param price      the price of the level
+	 * @param quantity   the total quantity of the orders at the price
+	 * @param orderCount the number of orders at the price
+	 */
+	public DepthLevel(int price, long quantity, int orderCount) {
+		this.price      = price;
+		this.quantity   = quantity;
+		this.orderCount = orderCount;
+	}
+
+	/**
+	 * Returns a string representation of the level.
+	 *
+	 * @return the price, quantity and order count, as {@code quantity@price (n)}
+	 */
+	@Override
+	public String toString() {
+		return quantity + "@" + price + " (" + orderCount + ")";
+	}
+}
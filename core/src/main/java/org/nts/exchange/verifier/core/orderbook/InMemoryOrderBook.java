@@ -1,45 +1,80 @@
 package org.nts.exchange.verifier.core.orderbook;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.NavigableSet;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.exception.InvalidQuantityException;
 
 import lombok.extern.log4j.Log4j2;
 
 /**
  * Represents the order book for a trading instrument where orders are stored in
  * memory.
+ * 
+ * The id index is a {@link LongOrderMap} keyed by the code of the order id and
+ * is only touched under the write lock, as are the counts of orders and levels
+ * of each side and the best prices, which are volatile so that they can be read
+ * without it.
+ * 
+ * The total quantity and number of orders of each level are kept alongside the
+ * level sets, as counting a concurrent set walks all of it. They are changed
+ * under the write lock and read under the read lock, so a depth snapshot is
+ * consistent and costs the number of levels it returns.
  */
 @Log4j2
 public class InMemoryOrderBook implements OrderBook {
 
-	private final Map<String, Order>                orders;
-	private final Map<Integer, NavigableSet<Order>> buySide;
-	private final Map<Integer, NavigableSet<Order>> sellSide;
-	private final ReentrantReadWriteLock            lock;
-	private List<OrderBookListener>                 listeners;
-	private ConcurrentLinkedQueue<Order>            newOrders;
+	private final LongOrderMap                               orders;
+	private final NavigableMap<Integer, NavigableSet<Order>> buySide;
+	private final NavigableMap<Integer, NavigableSet<Order>> sellSide;
+	private final NavigableMap<Integer, LevelTotal>          buyTotals;
+	private final NavigableMap<Integer, LevelTotal>          sellTotals;
+	private final ReentrantReadWriteLock                     lock;
+	private final AtomicLong                                 lastSequence;
+	private List<OrderBookListener>                          listeners;
+	private ConcurrentLinkedQueue<Order>                     newOrders;
+	private volatile int                                     buyOrderCount;
+	private volatile int                                     sellOrderCount;
+	private volatile int                                     buyLevelCount;
+	private volatile int                                     sellLevelCount;
+	private volatile int                                     bestBid;
+	private volatile int                                     bestAsk;
+
+	/**
+	 * The total quantity and number of orders at one price.
+	 */
+	private static final class LevelTotal {
+		private long quantity;
+		private int  orderCount;
+	}
 
 	/**
 	 * Creates a new instance of the order book
 	 */
 	public InMemoryOrderBook() {
-		this.orders    = new ConcurrentHashMap<>();
-		this.buySide   = new ConcurrentSkipListMap<>();
-		this.sellSide  = new ConcurrentSkipListMap<>();
-		this.lock      = new ReentrantReadWriteLock(true);
-		this.listeners = new ArrayList<>();
-		this.newOrders = new ConcurrentLinkedQueue<>();
+		this.orders       = new LongOrderMap();
+		this.buySide      = new ConcurrentSkipListMap<>();
+		this.sellSide     = new ConcurrentSkipListMap<>();
+		this.buyTotals    = new TreeMap<>();
+		this.sellTotals   = new TreeMap<>();
+		this.lock         = new ReentrantReadWriteLock(true);
+		this.lastSequence = new AtomicLong();
+		this.listeners    = new ArrayList<>();
+		this.newOrders    = new ConcurrentLinkedQueue<>();
+		this.bestBid      = NO_PRICE;
+		this.bestAsk      = NO_PRICE;
 	}
 
 	@Override
@@ -80,9 +115,10 @@ public class InMemoryOrderBook implements OrderBook {
 	public void addOrder(Order newOrder) {
 		lock.writeLock().lock();
 		try {
-			Order existingOrder = orders.get(newOrder.getId());
+			Order existingOrder = orders.find(newOrder);
 			if (existingOrder == null || existingOrder.getQuantity() != newOrder.getQuantity()) {
-				orders.put(newOrder.getId(), newOrder);
+				assignSequence(newOrder);
+				orders.put(newOrder);
 				if (newOrder.getSide() == OrderSide.BUY) {
 					if (log.isDebugEnabled()) {
 						log.debug("New Buy Order received {}", newOrder);
@@ -105,6 +141,103 @@ public class InMemoryOrderBook implements OrderBook {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The write lock is taken once for the whole load, and each level set is
+	 * filled in priority order before it is put in its side.
+	 */
+	@Override
+	public void loadOrders(List<Order> buyOrders, List<Order> sellOrders) {
+		lock.writeLock().lock();
+		try {
+			if (orders.size() > 0) {
+				throw new IllegalStateException("Orders can only be bulk loaded into an empty book");
+			}
+			long highestSequence = BulkLoadValidator.validate(buyOrders, sellOrders, Integer.MAX_VALUE);
+			indexOrders(buyOrders);
+			indexOrders(sellOrders);
+
+			lastSequence.accumulateAndGet(highestSequence, Math::max);
+			loadSide(buySide, buyTotals, buyOrders);
+			loadSide(sellSide, sellTotals, sellOrders);
+			buyOrderCount  = buyOrders.size();
+			sellOrderCount = sellOrders.size();
+			buyLevelCount  = buySide.size();
+			sellLevelCount = sellSide.size();
+			updateBestPrices();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds orders to the id index, emptying it again if an id is repeated so that
+	 * a rejected load leaves the book empty.
+	 */
+	private void indexOrders(List<Order> sideOrders) {
+		for (Order order : sideOrders) {
+			if (orders.put(order) != null) {
+				orders.clear();
+				throw new IllegalArgumentException("Order id " + order.getId() + " is loaded more than once");
+			}
+		}
+	}
+
+	private void loadSide(NavigableMap<Integer, NavigableSet<Order>> side, NavigableMap<Integer, LevelTotal> totals,
+			List<Order> sideOrders) {
+		NavigableSet<Order> ordersAtPrice = null;
+		LevelTotal          total         = null;
+		for (Order order : sideOrders) {
+			assignSequence(order);
+			if (ordersAtPrice == null || ordersAtPrice.first().getPrice() != order.getPrice()) {
+				ordersAtPrice = new ConcurrentSkipListSet<>();
+				total         = new LevelTotal();
+				side.put(order.getPrice(), ordersAtPrice);
+				totals.put(order.getPrice(), total);
+			}
+			ordersAtPrice.add(order);
+			total.quantity += order.getQuantity();
+			total.orderCount++;
+		}
+	}
+
+	/**
+	 * Refreshes the cached best prices from the sides, after a level has been
+	 * created or emptied.
+	 */
+	private void updateBestPrices() {
+		bestBid = buySide.isEmpty() ? NO_PRICE : buySide.lastKey();
+		bestAsk = sellSide.isEmpty() ? NO_PRICE : sellSide.firstKey();
+	}
+
+	private static void addToTotal(NavigableMap<Integer, LevelTotal> totals, Order order) {
+		LevelTotal total = totals.computeIfAbsent(order.getPrice(), k -> new LevelTotal());
+		total.quantity += order.getQuantity();
+		total.orderCount++;
+	}
+
+	private static void removeFromTotal(NavigableMap<Integer, LevelTotal> totals, Order order) {
+		LevelTotal total = totals.get(order.getPrice());
+		total.quantity -= order.getQuantity();
+		if (--total.orderCount == 0) {
+			totals.remove(order.getPrice());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long assignSequence(Order order) {
+		if (order.getSequence() == Order.NO_SEQUENCE) {
+			order.setSequence(lastSequence.incrementAndGet());
+		} else {
+			lastSequence.accumulateAndGet(order.getSequence(), Math::max);
+		}
+		return order.getSequence();
+	}
+
 	/**
 	 * Adds an order to the buy side of the order book.
 	 * 
@@ -113,7 +246,17 @@ public class InMemoryOrderBook implements OrderBook {
 	private void addOrderToBuySide(Order order) {
 		NavigableSet<Order> ordersAtPrice = buySide.computeIfAbsent(order.getPrice(),
 				k -> new ConcurrentSkipListSet<>());
-		ordersAtPrice.add(order);
+		boolean             newLevel      = ordersAtPrice.isEmpty();
+		if (newLevel) {
+			buyLevelCount++;
+		}
+		if (ordersAtPrice.add(order)) {
+			buyOrderCount++;
+			addToTotal(buyTotals, order);
+		}
+		if (newLevel) {
+			updateBestPrices();
+		}
 	}
 
 	/**
@@ -124,7 +267,17 @@ public class InMemoryOrderBook implements OrderBook {
 	private void addOrderToSellSide(Order order) {
 		NavigableSet<Order> ordersAtPrice = sellSide.computeIfAbsent(order.getPrice(),
 				k -> new ConcurrentSkipListSet<>());
-		ordersAtPrice.add(order);
+		boolean             newLevel      = ordersAtPrice.isEmpty();
+		if (newLevel) {
+			sellLevelCount++;
+		}
+		if (ordersAtPrice.add(order)) {
+			sellOrderCount++;
+			addToTotal(sellTotals, order);
+		}
+		if (newLevel) {
+			updateBestPrices();
+		}
 	}
 
 	/**
@@ -132,11 +285,22 @@ public class InMemoryOrderBook implements OrderBook {
 	 */
 	@Override
 	public void removeOrder(String orderId) {
+		removeOrder(OrderIdCodec.encode(orderId), orderId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeOrder(long idCode) {
+		removeOrder(idCode, null);
+	}
+
+	private void removeOrder(long idCode, String orderId) {
 		lock.writeLock().lock();
 		try {
-			Order order = orders.get(orderId);
+			Order order = orders.remove(idCode, orderId);
 			if (order != null) {
-				orders.remove(orderId);
 				if (order.getSide() == OrderSide.BUY) {
 					removeOrderFromBuySide(order);
 				} else {
@@ -148,6 +312,46 @@ public class InMemoryOrderBook implements OrderBook {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeOrder(Order order) {
+		lock.writeLock().lock();
+		try {
+			if (!isRestingUnlocked(order)) {
+				return;
+			}
+			orders.remove(order);
+			if (order.getSide() == OrderSide.BUY) {
+				removeOrderFromBuySide(order);
+			} else {
+				removeOrderFromSellSide(order);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isResting(Order order) {
+		lock.readLock().lock();
+		try {
+			return isRestingUnlocked(order);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private boolean isRestingUnlocked(Order order) {
+		NavigableSet<Order> ordersAtPrice = (order.getSide() == OrderSide.BUY ? buySide : sellSide)
+				.get(order.getPrice());
+		return ordersAtPrice != null && ordersAtPrice.contains(order);
+	}
+
 	/**
 	 * Removes an order from the order book. The order is removed from either the
 	 * buy side or the sell side, depending on its side (BUY or SELL) and the price
@@ -157,9 +361,14 @@ public class InMemoryOrderBook implements OrderBook {
 	 */
 	private void removeOrderFromBuySide(Order order) {
 		NavigableSet<Order> ordersAtPrice = buySide.get(order.getPrice());
-		ordersAtPrice.remove(order);
+		if (ordersAtPrice.remove(order)) {
+			buyOrderCount--;
+			removeFromTotal(buyTotals, order);
+		}
 		if (ordersAtPrice.isEmpty()) {
 			buySide.remove(order.getPrice());
+			buyLevelCount--;
+			updateBestPrices();
 		}
 	}
 
@@ -172,9 +381,14 @@ public class InMemoryOrderBook implements OrderBook {
 	 */
 	private void removeOrderFromSellSide(Order order) {
 		NavigableSet<Order> ordersAtPrice = sellSide.get(order.getPrice());
-		ordersAtPrice.remove(order);
+		if (ordersAtPrice.remove(order)) {
+			sellOrderCount--;
+			removeFromTotal(sellTotals, order);
+		}
 		if (ordersAtPrice.isEmpty()) {
 			sellSide.remove(order.getPrice());
+			sellLevelCount--;
+			updateBestPrices();
 		}
 	}
 
@@ -193,29 +407,26 @@ public class InMemoryOrderBook implements OrderBook {
 	}
 
 	/**
-	 * Returns all the orders in the order book, in no particular order.
+	 * Returns the sell orders in price time priority, lowest price first.
 	 *
-	 * @return a collection of all orders in the book
+	 * @return a collection of all sell orders in the book
 	 */
 	@Override
 	public List<Order> getSellOrders() {
-
-		return sellSide.values().stream().flatMap(NavigableSet::stream)
-				.sorted(Comparator.comparing(Order::getPrice).thenComparing(Order::getTimestamp))
-				.collect(Collectors.toList());
+		// The levels are kept in price order and each level in time priority, so
+		// they only need to be concatenated
+		return sellSide.values().stream().flatMap(NavigableSet::stream).collect(Collectors.toList());
 	}
 
 	/**
-	 * Returns all the orders in the order book, in no particular order.
+	 * Returns the buy orders in price time priority, highest price first.
 	 *
-	 * @return a collection of all orders in the book
+	 * @return a collection of all buy orders in the book
 	 */
 	@Override
 	public List<Order> getBuyOrders() {
-		return buySide.values().stream().flatMap(NavigableSet::stream)
-				.sorted(Comparator.comparing(Order::getPrice).reversed().thenComparing(Order::getTimestamp))
+		return buySide.descendingMap().values().stream().flatMap(NavigableSet::stream)
 				.collect(Collectors.toList());
-
 	}
 
 	/**
@@ -231,12 +442,9 @@ public class InMemoryOrderBook implements OrderBook {
 			log.debug("Searching for Orders selling under {}", price);
 		}
 
-		List<Integer> eligibleKeys = sellSide.keySet().stream().filter(key -> key.compareTo(price) <= 0)
-				.collect(Collectors.toList());
-
-		return sellSide.entrySet().stream().filter(entry -> eligibleKeys.contains(entry.getKey()))
-				.map(Map.Entry::getValue).flatMap(NavigableSet::stream)
-				.sorted(Comparator.comparing(Order::getPrice).thenComparing(Order::getTimestamp))
+		// Levels come out of the head map lowest price first and each level is
+		// already in time priority, so no re-sorting is needed
+		return sellSide.headMap(price, true).values().stream().flatMap(NavigableSet::stream)
 				.collect(Collectors.toList());
 
 	}
@@ -252,12 +460,108 @@ public class InMemoryOrderBook implements OrderBook {
 			log.debug("Searching for Orders buying over {}", price);
 		}
 
-		List<Integer> eligibleKeys = buySide.keySet().stream().filter(key -> key.compareTo(price) >= 0)
+		return buySide.tailMap(price, true).descendingMap().values().stream().flatMap(NavigableSet::stream)
 				.collect(Collectors.toList());
+	}
 
-		return buySide.entrySet().stream().filter(entry -> eligibleKeys.contains(entry.getKey()))
-				.map(Map.Entry::getValue).flatMap(NavigableSet::stream)
-				.sorted(Comparator.comparing(Order::getPrice).reversed().thenComparing(Order::getTimestamp))
-				.collect(Collectors.toList());
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getOrderCount(OrderSide side) {
+		return side == OrderSide.BUY ? buyOrderCount : sellOrderCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLevelCount(OrderSide side) {
+		return side == OrderSide.BUY ? buyLevelCount : sellLevelCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reduceOrder(Order order, int quantity) throws InvalidQuantityException {
+		lock.writeLock().lock();
+		try {
+			order.subtractQuantity(quantity);
+			NavigableMap<Integer, LevelTotal> totals = order.getSide() == OrderSide.BUY ? buyTotals : sellTotals;
+			totals.get(order.getPrice()).quantity -= quantity;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBestBidPrice() {
+		return bestBid;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBestAskPrice() {
+		return bestAsk;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<DepthLevel> getDepth(OrderSide side, int levels) {
+		lock.readLock().lock();
+		try {
+			NavigableMap<Integer, LevelTotal> totals = side == OrderSide.BUY ? buyTotals.descendingMap() : sellTotals;
+			List<DepthLevel>                  depth  = new ArrayList<>(Math.min(levels, totals.size()));
+			for (Entry<Integer, LevelTotal> level : totals.entrySet()) {
+				if (depth.size() == levels) {
+					break;
+				}
+				depth.add(new DepthLevel(level.getKey(), level.getValue().quantity, level.getValue().orderCount));
+			}
+			return depth;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Order getBestBuyOrder() {
+		lock.readLock().lock();
+		try {
+			return firstOrderOf(buySide.lastEntry());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Order getBestSellOrder() {
+		lock.readLock().lock();
+		try {
+			return firstOrderOf(sellSide.firstEntry());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Order firstOrderOf(Entry<Integer, NavigableSet<Order>> level) {
+		if (level == null || level.getValue().isEmpty()) {
+			return null;
+		}
+		return level.getValue().first();
 	}
 }
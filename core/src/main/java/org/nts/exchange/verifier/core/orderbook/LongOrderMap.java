@@ -0,0 +1,228 @@
+package org.nts.exchange.verifier.core.orderbook;
+
+import java.util.Arrays;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
+/**
+ * A map from primitive order id codes to orders, using open addressing with
+ * linear probing over two parallel arrays.
+ *
+ * A hashed {@link OrderIdCodec} code may be shared by several ids, so such a
+ * code can have several entries in the same probe run, told apart by the id
+ * string their orders hold.
+ *
+ * Keys are never boxed and entries need no node objects, so a resting order
+ * costs one long and one reference in the index. Removal shifts the following
+ * entries of the probe run back instead of leaving tombstones, so lookups stay
+ * short however many orders come and go. The table doubles when it is half
+ * full. This class is not thread-safe.
+ */
+public class LongOrderMap {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private long[]           keys;
+	private Order[]          values;
+	private int              mask;
+	private int              size;
+
+	/**
+	 * Creates a map with a default initial capacity.
+	 */
+	public LongOrderMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a map sized to hold the given number of orders without growing.
+	 *
+	 * @param expectedSize the number of orders expected in the map
+	 */
+	public LongOrderMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		this.keys   = new long[capacity];
+		this.values = new Order[capacity];
+		this.mask   = capacity - 1;
+	}
+
+	private static int hash(long key) {
+		// Fibonacci hashing spreads sequential ids across the table
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	/**
+	 * Returns the order mapped to a code that is not a hash.
+	 *
+	 * @param key the order id code
+	 * @return the order, or null if there is none
+	 */
+	public Order get(long key) {
+		return get(key, null);
+	}
+
+	/**
+	 * Returns the order mapped to an id.
+	 *
+	 * @param key the order id code
+	 * @param id  the order id, only compared when the code is a hash
+	 * @return the order, or null if there is none
+	 */
+	public Order get(long key, String id) {
+		for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key && values[i].hasId(key, id)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the order mapped to the id of another order.
+	 *
+	 * @param order the order whose id is looked up
+	 * @return the order, or null if there is none
+	 */
+	public Order find(Order order) {
+		long key = order.getIdCode();
+		for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key && values[i].hasSameId(order)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Maps the id of an order to it, replacing any previous mapping of the id.
+	 *
+	 * @param order the order
+	 * @return the previously mapped order, or null if there was none
+	 */
+	public Order put(Order order) {
+		long key = order.getIdCode();
+		int  i   = hash(key) & mask;
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key && values[i].hasSameId(order)) {
+				Order previous = values[i];
+				values[i] = order;
+				return previous;
+			}
+		}
+		keys[i]   = key;
+		values[i] = order;
+		if (++size * 2 > values.length) {
+			resize(values.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the mapping of a code that is not a hash.
+	 *
+	 * @param key the order id code
+	 * @return the removed order, or null if there was none
+	 */
+	public Order remove(long key) {
+		return remove(key, null);
+	}
+
+	/**
+	 * Removes the mapping of an id.
+	 *
+	 * @param key the order id code
+	 * @param id  the order id, only compared when the code is a hash
+	 * @return the removed order, or null if there was none
+	 */
+	public Order remove(long key, String id) {
+		int i = hash(key) & mask;
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key && values[i].hasId(key, id)) {
+				Order removed = values[i];
+				shiftBack(i);
+				size--;
+				return removed;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the mapping of the id of an order if it maps to that very order,
+	 * and not to another order with the same id.
+	 *
+	 * @param order the order
+	 * @return true if the mapping was removed
+	 */
+	public boolean remove(Order order) {
+		long key = order.getIdCode();
+		int  i   = hash(key) & mask;
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (values[i] == order) {
+				shiftBack(i);
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Closes the gap left at a slot by moving back every following entry of the
+	 * probe run that would otherwise no longer be reachable from its home slot.
+	 */
+	private void shiftBack(int gap) {
+		int i = gap;
+		while (true) {
+			i = (i + 1) & mask;
+			if (values[i] == null) {
+				break;
+			}
+			int home = hash(keys[i]) & mask;
+			// Move the entry if its home slot is not within (gap, i]
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				keys[gap]   = keys[i];
+				values[gap] = values[i];
+				gap         = i;
+			}
+		}
+		values[gap] = null;
+	}
+
+	private void resize(int capacity) {
+		long[]  oldKeys   = keys;
+		Order[] oldValues = values;
+		keys   = new long[capacity];
+		values = new Order[capacity];
+		mask   = capacity - 1;
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = hash(oldKeys[j]) & mask;
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i]   = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of orders in the map.
+	 *
+	 * @return the number of orders
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every mapping.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+}
@@ -3,12 +3,20 @@ package org.nts.exchange.verifier.core.orderbook;
 import java.util.List;
 
 import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.exception.InvalidQuantityException;
 
 /**
  * Defines the interface for an order book for a trading instrument.
  */
 public interface OrderBook {
 
+	/**
+	 * The value returned by the best price and spread accessors when a side is
+	 * empty.
+	 */
+	int NO_PRICE = -1;
+
 	/**
 	 * Adds a new order to the order book.
 	 * 
@@ -16,6 +24,39 @@ public interface OrderBook {
 	 */
 	void addOrder(Order order);
 
+	/**
+	 * Loads resting orders into an empty book in a single pass, as when seeding it
+	 * from a backup, a snapshot or a fixture.
+	 *
+	 * The orders are checked once up front and then placed straight into their
+	 * levels, without going through {@link #addOrder(Order)}: listeners are not
+	 * notified and nothing is matched, as orders that do not cross have nothing
+	 * to match. Orders keep the sequence numbers they carry, and those without
+	 * one are numbered in the order given, after every number given.
+	 *
+	 * @param buyOrders  the buy orders in price time priority, highest price first
+	 * @param sellOrders the sell orders in price time priority, lowest price first
+	 * @throws IllegalStateException    if the book is not empty
+	 * @throws IllegalArgumentException if an order is on the wrong side, out of
+	 *                                  priority, has no quantity or repeats an id,
+	 *                                  or if the best buy is at or above the best
+	 *                                  sell; nothing is loaded
+	 */
+	void loadOrders(List<Order> buyOrders, List<Order> sellOrders);
+
+	/**
+	 * Stamps an order with the next sequence number of the book, unless it already
+	 * has one, in which case the book carries on numbering after it.
+	 * 
+	 * The sequence number is the time priority of the order. Adding an order
+	 * assigns it one, and a matching engine assigns it one before matching, so
+	 * that priority follows the order in which orders are accepted.
+	 * 
+	 * @param order the order to stamp
+	 * @return the sequence number of the order
+	 */
+	long assignSequence(Order order);
+
 	/**
 	 * Removes an existing order from the order book.
 	 * 
@@ -23,6 +64,53 @@ public interface OrderBook {
 	 */
 	void removeOrder(String orderId);
 
+	/**
+	 * Removes an existing order from the order book by the code of its id. A
+	 * hashed code does not name an id on its own, so an order whose id is hashed
+	 * is only removed by {@link #removeOrder(String)}.
+	 * 
+	 * @param idCode the {@link OrderIdCodec} code of the ID of the order to remove
+	 */
+	default void removeOrder(long idCode) {
+		if (!OrderIdCodec.isHashed(idCode)) {
+			removeOrder(OrderIdCodec.decode(idCode));
+		}
+	}
+
+	/**
+	 * Removes a given order from the order book, as when it has been filled.
+	 * 
+	 * Unlike removing by id, this never touches another order that was added
+	 * with the same id. An order that is not resting in the book is ignored.
+	 * 
+	 * @param order the order to remove
+	 */
+	void removeOrder(Order order);
+
+	/**
+	 * Tells whether an order is resting in the book, as an aggressor already is
+	 * when the book matches orders as they are added.
+	 * 
+	 * @param order the order to look for
+	 * @return true if this very order rests in the book
+	 */
+	boolean isResting(Order order);
+
+	/**
+	 * Takes a quantity off an order resting in the book, as when it is partly
+	 * filled, keeping the aggregate quantity of its level in step. An order
+	 * reduced to nothing stays in the book until it is removed.
+	 * 
+	 * Resting orders must only be reduced through the book, never through
+	 * {@link Order#subtractQuantity(int)} directly.
+	 * 
+	 * @param order    an order resting in this book
+	 * @param quantity the quantity to take off
+	 * @throws InvalidQuantityException if the quantity is not positive or exceeds
+	 *                                  that of the order
+	 */
+	void reduceOrder(Order order, int quantity) throws InvalidQuantityException;
+
 	/**
 	 * Gets all the orders in the order book.
 	 * 
@@ -69,6 +157,84 @@ public interface OrderBook {
 	 */
 	List<Order> getBuyOrdersAtPrice(int price);
 
+	/**
+	 * 
+	 * Gets the number of orders resting on a side of the book, without listing
+	 * them.
+	 * 
+	 * @param side the side to count
+	 * @return the number of orders on the side
+	 */
+	int getOrderCount(OrderSide side);
+
+	/**
+	 * 
+	 * Gets the number of distinct prices holding orders on a side of the book.
+	 * 
+	 * @param side the side to count
+	 * @return the number of price levels on the side
+	 */
+	int getLevelCount(OrderSide side);
+
+	/**
+	 * 
+	 * Gets the highest price on the buy side.
+	 * 
+	 * @return the best bid, or {@link #NO_PRICE} if the buy side is empty
+	 */
+	int getBestBidPrice();
+
+	/**
+	 * 
+	 * Gets the lowest price on the sell side.
+	 * 
+	 * @return the best ask, or {@link #NO_PRICE} if the sell side is empty
+	 */
+	int getBestAskPrice();
+
+	/**
+	 * 
+	 * Gets the gap between the best ask and the best bid.
+	 * 
+	 * @return the spread, or {@link #NO_PRICE} if either side is empty
+	 */
+	default int getSpread() {
+		int bestBid = getBestBidPrice();
+		int bestAsk = getBestAskPrice();
+		return bestBid == NO_PRICE || bestAsk == NO_PRICE ? NO_PRICE : bestAsk - bestBid;
+	}
+
+	/**
+	 * 
+	 * Gets the aggregate quantity and order count of the best price levels of a
+	 * side, best first. The aggregates are kept up to date as orders are added,
+	 * reduced and removed, so the cost depends on the number of levels asked for
+	 * and not on the number of orders in the book.
+	 * 
+	 * @param side   the side to look at
+	 * @param levels the most levels to return
+	 * @return up to the given number of levels, best price first
+	 */
+	List<DepthLevel> getDepth(OrderSide side, int levels);
+
+	/**
+	 * 
+	 * Gets the buy order with the highest price time priority, that is the oldest
+	 * order at the highest buy price.
+	 * 
+	 * @return the best buy order, or null if the buy side is empty
+	 */
+	Order getBestBuyOrder();
+
+	/**
+	 * 
+	 * Gets the sell order with the highest price time priority, that is the oldest
+	 * order at the lowest sell price.
+	 * 
+	 * @return the best sell order, or null if the sell side is empty
+	 */
+	Order getBestSellOrder();
+
 	/**
 	 * 
 	 * Adds a listener to the order book that will be notified whenever there is a
@@ -0,0 +1,99 @@
+package org.nts.exchange.verifier.core.orderbook;
+
+/**
+ * One side of a {@link PriceLadderOrderBook}: the price levels of a window of
+ * prices, indexed by the distance of the price from the lowest one of the
+ * window.
+ *
+ * The window starts small around the first price used and at least doubles,
+ * towards the price that fell outside it, whenever a level is created beyond
+ * either end, up to the whole range 0 to {@link PriceLadderOrderBook#MAX_PRICE}.
+ * A book therefore holds as many level slots as the spread of the prices it has
+ * seen, not one per possible price, which is what lets thousands of books live
+ * side by side. Reading a price outside the window finds no level and never
+ * grows it. This class is not thread-safe, the owning book is responsible for
+ * guarding it.
+ */
+final class PriceLadder {
+
+	private static final int PRICE_COUNT  = PriceLadderOrderBook.MAX_PRICE + 1;
+	private static final int INITIAL_SIZE = 64;
+
+	private PriceLevel[]     levels;
+	// The price of the first slot of the window
+	private int              lowest;
+
+	PriceLadder() {
+		this.levels = new PriceLevel[0];
+	}
+
+	/**
+	 * Returns the level of a price.
+	 *
+	 * @param price the price
+	 * @return the level, or null if the price was never used
+	 */
+	PriceLevel get(int price) {
+		int index = price - lowest;
+		return index >= 0 && index < levels.length ? levels[index] : null;
+	}
+
+	/**
+	 * Returns the level of a price, creating it, and widening the window to
+	 * reach it, the first time the price is used.
+	 *
+	 * @param price a price between 0 and {@link PriceLadderOrderBook#MAX_PRICE}
+	 * @return the level
+	 */
+	PriceLevel levelAt(int price) {
+		int index = price - lowest;
+		if (index < 0 || index >= levels.length) {
+			grow(price);
+			index = price - lowest;
+		}
+		PriceLevel level = levels[index];
+		if (level == null) {
+			level         = new PriceLevel(price);
+			levels[index] = level;
+		}
+		return level;
+	}
+
+	/**
+	 * Tells whether a price has orders resting at it.
+	 *
+	 * @param price the price
+	 * @return true if the level of the price holds at least one order
+	 */
+	boolean isOccupied(int price) {
+		PriceLevel level = get(price);
+		return level != null && !level.isEmpty();
+	}
+
+	/**
+	 * Returns the number of level slots the window holds.
+	 *
+	 * @return the size of the window
+	 */
+	int capacity() {
+		return levels.length;
+	}
+
+	private void grow(int price) {
+		if (levels.length == 0) {
+			levels = new PriceLevel[INITIAL_SIZE];
+			lowest = Math.max(0, Math.min(price - INITIAL_SIZE / 2, PRICE_COUNT - INITIAL_SIZE));
+			return;
+		}
+		int highest = Math.max(lowest + levels.length - 1, price);
+		int low     = Math.min(lowest, price);
+		int size    = Math.min(PRICE_COUNT, Math.max(levels.length * 2, highest - low + 1));
+		// The new room goes to the end the price fell beyond, within the price range
+		int start   = price < lowest ? Math.max(0, highest + 1 - size) : Math.min(low, PRICE_COUNT - size);
+
+		PriceLevel[] grown = new PriceLevel[size];
+		System.arraycopy(levels, 0, grown, lowest - start, levels.length);
+		levels = grown;
+		lowest = start;
+	}
+}
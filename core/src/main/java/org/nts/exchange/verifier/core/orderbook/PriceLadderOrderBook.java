@@ -0,0 +1,578 @@
+package org.nts.exchange.verifier.core.orderbook;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.exception.InvalidQuantityException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Represents the order book for a trading instrument where each side is kept as
+ * a dense ladder of price levels indexed directly by price.
+ *
+ * Prices are bounded to the range 0 to {@link #MAX_PRICE}, so a level is
+ * reached by a plain array access instead of a tree lookup on a boxed key. Each
+ * side is a {@link PriceLadder} that only spans the prices the book has used,
+ * growing as wider ones arrive, so an idle or narrow book stays small. The
+ * best bid and best ask are cached and moved incrementally as levels are
+ * created and emptied, which makes best price access O(1). When the best level
+ * empties the next one is found by scanning towards the worst occupied price of
+ * that side, so the scan never leaves the occupied range.
+ *
+ * Each level is a {@link PriceLevel}, an intrusive FIFO queue threaded through
+ * the orders themselves, and the id index points straight at the order. The
+ * index is a {@link LongOrderMap} keyed by the {@link OrderIdCodec} code of the
+ * id, so looking an order up neither hashes a string nor boxes a key. Appending,
+ * filling from the head and cancelling by id are therefore O(1) and allocate no
+ * nodes. Level objects are created the first time a price is used and are kept
+ * for reuse once they empty. Each level keeps the total quantity and number of
+ * its orders, so a depth snapshot of the best N levels only visits those levels
+ * and the empty prices between them, never the orders.
+ *
+ * The book takes no locks and is not thread-safe. It is meant to have a single
+ * writer, either one thread driving it directly or the matching thread of a
+ * {@link org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine},
+ * and must only be read from that thread or once the writer has stopped. New
+ * orders are only queued for {@link #getNewOrders()} while at least one
+ * listener is registered, as nothing else drains them.
+ */
+@Log4j2
+public class PriceLadderOrderBook implements OrderBook {
+
+	/**
+	 * The highest price that can be held in the ladder.
+	 */
+	public static final int                MAX_PRICE = 999_999;
+
+	private final LongOrderMap             orders;
+	private final PriceLadder              buyLevels;
+	private final PriceLadder              sellLevels;
+	private List<OrderBookListener>        listeners;
+	private Queue<Order>                   newOrders;
+
+	private long                           lastSequence;
+
+	private int                            buyOrderCount;
+	private int                            sellOrderCount;
+	private int                            buyLevelCount;
+	private int                            sellLevelCount;
+
+	private int                            bestBid;
+	private int                            worstBid;
+	private int                            bestAsk;
+	private int                            worstAsk;
+
+	/**
+	 * Creates a new, empty instance of the order book
+	 */
+	public PriceLadderOrderBook() {
+		this.orders     = new LongOrderMap();
+		this.buyLevels  = new PriceLadder();
+		this.sellLevels = new PriceLadder();
+		this.listeners  = new ArrayList<>();
+		this.newOrders  = new ArrayDeque<>();
+		this.bestBid    = NO_PRICE;
+		this.worstBid   = NO_PRICE;
+		this.bestAsk    = NO_PRICE;
+		this.worstAsk   = NO_PRICE;
+	}
+
+	@Override
+	public void addListener(OrderBookListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(OrderBookListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void notifyListeners() {
+		for (OrderBookListener listener : listeners) {
+			listener.onOrderBookChange();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Order> getNewOrders() {
+		List<Order> orders = new ArrayList<>();
+		while (!newOrders.isEmpty()) {
+			Order order = newOrders.poll();
+			if (order != null) {
+				orders.add(order);
+			}
+		}
+		return orders;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Orders priced outside the range 0 to {@link #MAX_PRICE} are rejected and
+	 * logged. An order whose id is already in the book with a different quantity
+	 * rests alongside the earlier order, which is left as it is, and the id then
+	 * refers to the new order.
+	 */
+	@Override
+	public void addOrder(Order newOrder) {
+		if (newOrder.getPrice() < 0 || newOrder.getPrice() > MAX_PRICE) {
+			log.error("Rejecting order {} : price outside of the range 0 - {}", newOrder, MAX_PRICE);
+			return;
+		}
+		try {
+			Order existingOrder = orders.find(newOrder);
+			if (existingOrder == null || existingOrder.getQuantity() != newOrder.getQuantity()) {
+				assignSequence(newOrder);
+				orders.put(newOrder);
+				if (log.isDebugEnabled()) {
+					log.debug("New {} Order received {}", newOrder.getSide(), newOrder);
+				}
+				if (newOrder.getSide() == OrderSide.BUY) {
+					addOrderToBuySide(newOrder);
+				} else {
+					addOrderToSellSide(newOrder);
+				}
+				if (!listeners.isEmpty()) {
+					newOrders.offer(newOrder);
+					notifyListeners();
+				}
+			}
+		} catch (Exception e) {
+			log.error("Error adding order {} : {}", newOrder, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Each order is appended straight to its level, and the best and worst prices
+	 * of each side are taken from the ends of the lists.
+	 */
+	@Override
+	public void loadOrders(List<Order> buyOrders, List<Order> sellOrders) {
+		if (orders.size() > 0) {
+			throw new IllegalStateException("Orders can only be bulk loaded into an empty book");
+		}
+		long highestSequence = BulkLoadValidator.validate(buyOrders, sellOrders, MAX_PRICE);
+		indexOrders(buyOrders);
+		indexOrders(sellOrders);
+
+		lastSequence = Math.max(lastSequence, highestSequence);
+		for (Order order : buyOrders) {
+			assignSequence(order);
+			buyLevels.levelAt(order.getPrice()).append(order);
+		}
+		for (Order order : sellOrders) {
+			assignSequence(order);
+			sellLevels.levelAt(order.getPrice()).append(order);
+		}
+		buyOrderCount  = buyOrders.size();
+		sellOrderCount = sellOrders.size();
+		buyLevelCount  = countLevels(buyOrders);
+		sellLevelCount = countLevels(sellOrders);
+		if (!buyOrders.isEmpty()) {
+			bestBid  = buyOrders.get(0).getPrice();
+			worstBid = buyOrders.get(buyOrders.size() - 1).getPrice();
+		}
+		if (!sellOrders.isEmpty()) {
+			bestAsk  = sellOrders.get(0).getPrice();
+			worstAsk = sellOrders.get(sellOrders.size() - 1).getPrice();
+		}
+	}
+
+	private static int countLevels(List<Order> sideOrders) {
+		int levels = 0;
+		for (int i = 0; i < sideOrders.size(); i++) {
+			if (i == 0 || sideOrders.get(i).getPrice() != sideOrders.get(i - 1).getPrice()) {
+				levels++;
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * Adds orders to the id index, emptying it again if an id is repeated so that
+	 * a rejected load leaves the book empty.
+	 */
+	private void indexOrders(List<Order> sideOrders) {
+		for (Order order : sideOrders) {
+			if (orders.put(order) != null) {
+				orders.clear();
+				throw new IllegalArgumentException("Order id " + order.getId() + " is loaded more than once");
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long assignSequence(Order order) {
+		if (order.getSequence() == Order.NO_SEQUENCE) {
+			order.setSequence(++lastSequence);
+		} else if (order.getSequence() > lastSequence) {
+			lastSequence = order.getSequence();
+		}
+		return order.getSequence();
+	}
+
+	/**
+	 * Adds an order to its level on the buy side, widening the occupied range of
+	 * the side when the price is a new best or worst bid.
+	 *
+	 * @param order the order to add
+	 */
+	private void addOrderToBuySide(Order order) {
+		int        price         = order.getPrice();
+		PriceLevel ordersAtPrice = buyLevels.levelAt(price);
+		if (ordersAtPrice.isEmpty()) {
+			buyLevelCount++;
+			if (bestBid == NO_PRICE || price > bestBid) {
+				bestBid = price;
+			}
+			if (worstBid == NO_PRICE || price < worstBid) {
+				worstBid = price;
+			}
+		}
+		ordersAtPrice.append(order);
+		buyOrderCount++;
+	}
+
+	/**
+	 * Adds an order to its level on the sell side, widening the occupied range of
+	 * the side when the price is a new best or worst ask.
+	 *
+	 * @param order the order to add
+	 */
+	private void addOrderToSellSide(Order order) {
+		int        price         = order.getPrice();
+		PriceLevel ordersAtPrice = sellLevels.levelAt(price);
+		if (ordersAtPrice.isEmpty()) {
+			sellLevelCount++;
+			if (bestAsk == NO_PRICE || price < bestAsk) {
+				bestAsk = price;
+			}
+			if (worstAsk == NO_PRICE || price > worstAsk) {
+				worstAsk = price;
+			}
+		}
+		ordersAtPrice.append(order);
+		sellOrderCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeOrder(String orderId) {
+		Order order = orders.remove(OrderIdCodec.encode(orderId), orderId);
+		if (order != null) {
+			removeFromLevel(order);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeOrder(long idCode) {
+		Order order = orders.remove(idCode);
+		if (order != null) {
+			removeFromLevel(order);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The order is unlinked from its level, and dropped from the id index only if
+	 * the id still refers to it.
+	 */
+	@Override
+	public void removeOrder(Order order) {
+		if (!isResting(order)) {
+			return;
+		}
+		orders.remove(order);
+		removeFromLevel(order);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * An order rests when it is linked to a neighbour in its level or is the only
+	 * order of the level.
+	 */
+	@Override
+	public boolean isResting(Order order) {
+		if (order.getPrevious() != null || order.getNext() != null) {
+			return true;
+		}
+		if (order.getPrice() < 0 || order.getPrice() > MAX_PRICE) {
+			return false;
+		}
+		PriceLevel level = (order.getSide() == OrderSide.BUY ? buyLevels : sellLevels).get(order.getPrice());
+		return level != null && level.peek() == order;
+	}
+
+	private void removeFromLevel(Order order) {
+		if (order.getSide() == OrderSide.BUY) {
+			removeOrderFromBuySide(order);
+		} else {
+			removeOrderFromSellSide(order);
+		}
+	}
+
+	/**
+	 * Removes an order from its buy level. When the level empties and it was at
+	 * either end of the occupied range, the cached best or worst bid is moved to
+	 * the next occupied level.
+	 *
+	 * @param order the order to remove from the book
+	 */
+	private void removeOrderFromBuySide(Order order) {
+		int        price         = order.getPrice();
+		PriceLevel ordersAtPrice = buyLevels.get(price);
+		ordersAtPrice.remove(order);
+		buyOrderCount--;
+		if (!ordersAtPrice.isEmpty()) {
+			return;
+		}
+		buyLevelCount--;
+		if (bestBid == worstBid) {
+			bestBid  = NO_PRICE;
+			worstBid = NO_PRICE;
+		} else if (price == bestBid) {
+			bestBid = nextOccupiedDown(buyLevels, price - 1, worstBid);
+		} else if (price == worstBid) {
+			worstBid = nextOccupiedUp(buyLevels, price + 1, bestBid);
+		}
+	}
+
+	/**
+	 * Removes an order from its sell level. When the level empties and it was at
+	 * either end of the occupied range, the cached best or worst ask is moved to
+	 * the next occupied level.
+	 *
+	 * @param order the order to remove from the book
+	 */
+	private void removeOrderFromSellSide(Order order) {
+		int        price         = order.getPrice();
+		PriceLevel ordersAtPrice = sellLevels.get(price);
+		ordersAtPrice.remove(order);
+		sellOrderCount--;
+		if (!ordersAtPrice.isEmpty()) {
+			return;
+		}
+		sellLevelCount--;
+		if (bestAsk == worstAsk) {
+			bestAsk  = NO_PRICE;
+			worstAsk = NO_PRICE;
+		} else if (price == bestAsk) {
+			bestAsk = nextOccupiedUp(sellLevels, price + 1, worstAsk);
+		} else if (price == worstAsk) {
+			worstAsk = nextOccupiedDown(sellLevels, price - 1, bestAsk);
+		}
+	}
+
+	private static int nextOccupiedDown(PriceLadder levels, int from, int limit) {
+		for (int price = from; price >= limit; price--) {
+			if (levels.isOccupied(price)) {
+				return price;
+			}
+		}
+		return NO_PRICE;
+	}
+
+	private static int nextOccupiedUp(PriceLadder levels, int from, int limit) {
+		for (int price = from; price <= limit; price++) {
+			if (levels.isOccupied(price)) {
+				return price;
+			}
+		}
+		return NO_PRICE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reduceOrder(Order order, int quantity) throws InvalidQuantityException {
+		order.subtractQuantity(quantity);
+		PriceLadder levels = order.getSide() == OrderSide.BUY ? buyLevels : sellLevels;
+		levels.get(order.getPrice()).reduce(quantity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBestBidPrice() {
+		return bestBid;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBestAskPrice() {
+		return bestAsk;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The ladder is walked from the best price of the side towards its worst one
+	 * and stops once enough occupied levels are found.
+	 */
+	@Override
+	public List<DepthLevel> getDepth(OrderSide side, int levels) {
+		List<DepthLevel> depth = new ArrayList<>(Math.min(levels, getLevelCount(side)));
+		if (side == OrderSide.BUY) {
+			for (int price = bestBid; price != NO_PRICE && price >= worstBid && depth.size() < levels; price--) {
+				addDepth(depth, buyLevels, price);
+			}
+		} else {
+			for (int price = bestAsk; price != NO_PRICE && price <= worstAsk && depth.size() < levels; price++) {
+				addDepth(depth, sellLevels, price);
+			}
+		}
+		return depth;
+	}
+
+	private static void addDepth(List<DepthLevel> depth, PriceLadder levels, int price) {
+		if (levels.isOccupied(price)) {
+			PriceLevel level = levels.get(price);
+			depth.add(new DepthLevel(price, level.getQuantity(), level.getSize()));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getOrderCount(OrderSide side) {
+		return side == OrderSide.BUY ? buyOrderCount : sellOrderCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLevelCount(OrderSide side) {
+		return side == OrderSide.BUY ? buyLevelCount : sellLevelCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Order getBestBuyOrder() {
+		return bestBid == NO_PRICE ? null : buyLevels.get(bestBid).peek();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Order getBestSellOrder() {
+		return bestAsk == NO_PRICE ? null : sellLevels.get(bestAsk).peek();
+	}
+
+	/**
+	 * Returns all the orders in the order book, sell side first.
+	 *
+	 * @return a collection of all orders in the book
+	 */
+	@Override
+	public List<Order> getOrders() {
+		List<Order> allOrders = new ArrayList<>();
+		allOrders.addAll(getSellOrders());
+		allOrders.addAll(getBuyOrders());
+
+		return allOrders;
+	}
+
+	/**
+	 * Returns the sell orders in price time priority, lowest price first.
+	 *
+	 * @return a collection of all sell orders in the book
+	 */
+	@Override
+	public List<Order> getSellOrders() {
+		return collectUp(sellLevels, bestAsk, worstAsk);
+	}
+
+	/**
+	 * Returns the buy orders in price time priority, highest price first.
+	 *
+	 * @return a collection of all buy orders in the book
+	 */
+	@Override
+	public List<Order> getBuyOrders() {
+		return collectDown(buyLevels, bestBid, worstBid);
+	}
+
+	/**
+	 * Returns the sell orders priced at or below the specified price, in price
+	 * time priority.
+	 *
+	 * @param price the price level to look up
+	 * @return a list of sell orders at or below the specified price, or an empty
+	 *         list if none exist
+	 */
+	@Override
+	public List<Order> getSellOrdersAtPrice(int price) {
+		if (log.isDebugEnabled()) {
+			log.debug("Searching for Orders selling under {}", price);
+		}
+		return collectUp(sellLevels, bestAsk, Math.min(price, worstAsk));
+	}
+
+	/**
+	 * Returns the buy orders priced at or above the specified price, in price
+	 * time priority.
+	 *
+	 * @param price the price to retrieve the buy orders for
+	 * @return a list of buy orders at or above the specified price
+	 */
+	@Override
+	public List<Order> getBuyOrdersAtPrice(int price) {
+		if (log.isDebugEnabled()) {
+			log.debug("Searching for Orders buying over {}", price);
+		}
+		return collectDown(buyLevels, bestBid, Math.max(price, worstBid));
+	}
+
+	private static List<Order> collectUp(PriceLadder levels, int from, int to) {
+		List<Order> result = new ArrayList<>();
+		if (from != NO_PRICE) {
+			for (int price = from; price <= to; price++) {
+				if (levels.isOccupied(price)) {
+					levels.get(price).addTo(result);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static List<Order> collectDown(PriceLadder levels, int from, int to) {
+		List<Order> result = new ArrayList<>();
+		if (from != NO_PRICE) {
+			for (int price = from; price >= to; price--) {
+				if (levels.isOccupied(price)) {
+					levels.get(price).addTo(result);
+				}
+			}
+		}
+		return result;
+	}
+}
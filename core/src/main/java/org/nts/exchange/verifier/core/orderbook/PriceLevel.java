@@ -0,0 +1,112 @@
+package org.nts.exchange.verifier.core.orderbook;
+
+import java.util.List;
+
+import org.nts.exchange.verifier.core.Order;
+
+import lombok.Getter;
+
+/**
+ * A price level of an order book, holding the resting orders at one price as an
+ * intrusive doubly linked FIFO queue.
+ *
+ * The orders themselves are the nodes of the queue, so appending, removing the
+ * head and unlinking an order from the middle are all O(1) and allocate
+ * nothing. An order can be linked into at most one level at a time. The level
+ * also keeps the total quantity of its orders, so that depth can be read without
+ * walking them, which holds as long as the orders are only reduced through
+ * {@link #reduce(int)}. This class is not thread-safe, the owning book is
+ * responsible for guarding it.
+ */
+final class PriceLevel {
+
+	@Getter
+	private final int price;
+	private Order     head;
+	private Order     tail;
+	@Getter
+	private int       size;
+	@Getter
+	private long      quantity;
+
+	PriceLevel(int price) {
+		this.price = price;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the oldest order of the level.
+	 *
+	 * @return the head of the queue, or null if the level is empty
+	 */
+	Order peek() {
+		return head;
+	}
+
+	/**
+	 * Appends an order at the tail of the queue, giving it the lowest time
+	 * priority of the level.
+	 *
+	 * @param order the order to append
+	 */
+	void append(Order order) {
+		order.setPrevious(tail);
+		order.setNext(null);
+		if (tail == null) {
+			head = order;
+		} else {
+			tail.setNext(order);
+		}
+		tail = order;
+		size++;
+		quantity += order.getQuantity();
+	}
+
+	/**
+	 * Unlinks an order that is held by this level.
+	 *
+	 * @param order the order to unlink
+	 */
+	void remove(Order order) {
+		Order previous = order.getPrevious();
+		Order next     = order.getNext();
+		if (previous == null) {
+			head = next;
+		} else {
+			previous.setNext(next);
+		}
+		if (next == null) {
+			tail = previous;
+		} else {
+			next.setPrevious(previous);
+		}
+		order.setPrevious(null);
+		order.setNext(null);
+		size--;
+		quantity -= order.getQuantity();
+	}
+
+	/**
+	 * Takes a quantity off the total of the level, once it has been taken off one
+	 * of its orders.
+	 *
+	 * @param reducedBy the quantity taken off the order
+	 */
+	void reduce(int reducedBy) {
+		quantity -= reducedBy;
+	}
+
+	/**
+	 * Adds the orders of the level, oldest first, to the given list.
+	 *
+	 * @param orders the list to add the orders to
+	 */
+	void addTo(List<Order> orders) {
+		for (Order order = head; order != null; order = order.getNext()) {
+			orders.add(order);
+		}
+	}
+}
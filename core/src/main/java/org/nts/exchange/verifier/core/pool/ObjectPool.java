@@ -0,0 +1,64 @@
+package org.nts.exchange.verifier.core.pool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable instances.
+ *
+ * The free instances are kept in a preallocated array queue, so acquiring and
+ * releasing allocate nothing once the pool is warm. Acquiring from an empty
+ * pool creates a new instance rather than blocking, and releasing into a full
+ * pool drops the instance, so the pool never stalls its callers. Instances can
+ * be acquired on one thread and released on another.
+ *
+ * @param <T> the type of the pooled instances
+ */
+public class ObjectPool<T> {
+
+	private final BlockingQueue<T> free;
+	private final Supplier<T>      factory;
+
+	/**
+	 * Creates a pool filled with the given number of instances.
+	 *
+	 * @param capacity the number of free instances the pool can hold
+	 * @param factory  creates instances when the pool is empty
+	 */
+	public ObjectPool(int capacity, Supplier<T> factory) {
+		this.free    = new ArrayBlockingQueue<>(capacity);
+		this.factory = factory;
+		for (int i = 0; i < capacity; i++) {
+			free.offer(factory.get());
+		}
+	}
+
+	/**
+	 * Takes a free instance from the pool, or creates one if the pool is empty.
+	 *
+	 * @return an instance that is no longer in use
+	 */
+	protected T take() {
+		T instance = free.poll();
+		return instance != null ? instance : factory.get();
+	}
+
+	/**
+	 * Returns an instance to the pool. The caller must not use it afterwards.
+	 *
+	 * @param instance the instance to return
+	 */
+	public void release(T instance) {
+		free.offer(instance);
+	}
+
+	/**
+	 * Returns the number of free instances in the pool.
+	 *
+	 * @return the number of free instances
+	 */
+	public int available() {
+		return free.size();
+	}
+}
@@ -0,0 +1,53 @@
+package org.nts.exchange.verifier.core.pool;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+/**
+ * A pool of recycled {@link Order} instances.
+ *
+ * Orders are released by the matching engine once they are completely filled,
+ * whether they were resting or aggressing, so a producer acquiring its orders
+ * from the pool allocates none in steady state.
+ */
+public class OrderPool extends ObjectPool<Order> {
+
+	/**
+	 * Creates a pool filled with the given number of orders.
+	 *
+	 * @param capacity the number of free orders the pool can hold
+	 */
+	public OrderPool(int capacity) {
+		super(capacity, () -> new Order(OrderIdCodec.NO_CODE, OrderSide.BUY, 0, 0));
+	}
+
+	/**
+	 * Acquires an order from the pool and initialises it.
+	 *
+	 * @param id       the unique identifier for the order
+	 * @param side     the side of the order (buy or sell)
+	 * @param price    the price of the order
+	 * @param quantity the quantity of shares in the order
+	 * @return the initialised order
+	 */
+	public Order acquire(String id, OrderSide side, int price, int quantity) {
+		return take().init(id, side, price, quantity);
+	}
+
+	/**
+	 * Acquires an order from the pool and initialises it with an already encoded
+	 * id.
+	 *
+	 * @param idCode   the {@link OrderIdCodec} code of the order id, which must
+	 *                 not be a hash
+	 * @param side     the side of the order (buy or sell)
+	 * @param price    the price of the order
+	 * @param quantity the quantity of shares in the order
+	 * @return the initialised order
+	 * @throws IllegalArgumentException if the code is a hash
+	 */
+	public Order acquire(long idCode, OrderSide side, int price, int quantity) {
+		return take().init(idCode, side, price, quantity);
+	}
+}
@@ -0,0 +1,52 @@
+package org.nts.exchange.verifier.core.pool;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
+/**
+ * A pool of recycled {@link Trade} instances.
+ *
+ * A matching engine using a trade pool hands each trade to its consumers and
+ * releases it as soon as they return, so a pooled trade is only valid for the
+ * duration of the callback it was delivered to.
+ */
+public class TradePool extends ObjectPool<Trade> {
+
+	/**
+	 * Creates a pool filled with the given number of trades.
+	 *
+	 * @param capacity the number of free trades the pool can hold
+	 */
+	public TradePool(int capacity) {
+		super(capacity, () -> new Trade(OrderIdCodec.NO_CODE, OrderIdCodec.NO_CODE, 0, 0));
+	}
+
+	/**
+	 * Acquires a trade from the pool and initialises it.
+	 *
+	 * @param aggressorOrderIdCode the id code of the aggressor order
+	 * @param restingOrderIdCode   the id code of the resting order
+	 * @param price                the price at which the trade occurred
+	 * @param quantity             the quantity that was traded
+	 * @return the initialised trade
+	 * @throws IllegalArgumentException if a code is a hash
+	 */
+	public Trade acquire(long aggressorOrderIdCode, long restingOrderIdCode, int price, int quantity) {
+		return take().init(aggressorOrderIdCode, restingOrderIdCode, price, quantity);
+	}
+
+	/**
+	 * Acquires a trade from the pool and initialises it with the ids of the orders
+	 * that matched.
+	 *
+	 * @param aggressorOrder the aggressor order
+	 * @param restingOrder   the resting order
+	 * @param price          the price at which the trade occurred
+	 * @param quantity       the quantity that was traded
+	 * @return the initialised trade
+	 */
+	public Trade acquire(Order aggressorOrder, Order restingOrder, int price, int quantity) {
+		return take().init(aggressorOrder, restingOrder, price, quantity);
+	}
+}
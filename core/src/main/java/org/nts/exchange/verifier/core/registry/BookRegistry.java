@@ -0,0 +1,350 @@
+package org.nts.exchange.verifier.core.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.exception.MatchingEngineException;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.tradestore.TradeStore;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ *
+ * Keeps one order book and trade store per symbol and partitions the symbols
+ * across a fixed number of shards, each with its own matching thread and
+ * inbound queue.
+ *
+ * A symbol is given a numeric id the first time it is seen, which producers
+ * put on their orders with {@link Order#setSymbolId(int)}, and is assigned to a
+ * shard by the hash of its name, so it always lands on the same shard. A shard
+ * is the only thread to touch the books and trade stores of its symbols, which
+ * therefore need no locks, and as each symbol is fed through a single queue
+ * its orders are matched in the order submitted. Matching the same input
+ * always gives the same trades and books per symbol, while symbols on
+ * different shards are matched in parallel.
+ *
+ * An order whose matching throws stops its shard, as the book may be left part
+ * way through the match, and fails the registry: {@link #submit(Order)} and
+ * {@link #close()} then throw with the cause instead of waiting on a queue that
+ * is no longer drained.
+ *
+ * The books and trade stores must only be read once the registry has been
+ * closed. Symbol ids are handed out under a lock, so several producers can
+ * register symbols, but orders of the same symbol must come from one producer
+ * for their order to be defined.
+ */
+@Log4j2
+public class BookRegistry implements AutoCloseable {
+
+	/**
+	 * The symbol of orders that name no instrument, registered with the id
+	 * {@link Order#DEFAULT_SYMBOL_ID}.
+	 */
+	public static final String            DEFAULT_SYMBOL         = "";
+
+	/**
+	 * The capacity of the inbound queue of each shard when none is specified.
+	 */
+	public static final int               DEFAULT_QUEUE_CAPACITY = 16_384;
+
+	// How long a producer waits for space on a queue before checking that the
+	// shard thread is still running
+	private static final long             OFFER_WAIT_MILLIS      = 100;
+
+	// Marks the end of a shard's queue once the registry is closed
+	private static final Order            END_OF_INPUT           = new Order(OrderIdCodec.NO_CODE, OrderSide.BUY,
+			0, 0);
+	// Trades are kept by the trade store of the symbol
+	private static final Consumer<Trade>  IGNORE_TRADE           = trade -> {
+	};
+
+	private final Supplier<OrderBook>     orderBookFactory;
+	private final Supplier<TradeStore>    tradeStoreFactory;
+	private final Shard[]                 shards;
+	private final Map<String, Integer>    symbolIds;
+	// Replaced on every registration, so that shards read it without locking
+	private volatile SymbolBook[]         books;
+	private volatile boolean              accepting;
+	private volatile Throwable            failure;
+
+	/**
+	 *
+	 * Creates a registry with the default queue capacity and threads named after
+	 * their shard.
+	 *
+	 * @param shardCount        the number of matching threads
+	 * @param orderBookFactory  creates the order book of a new symbol
+	 * @param tradeStoreFactory creates the trade store of a new symbol
+	 */
+	public BookRegistry(int shardCount, Supplier<OrderBook> orderBookFactory, Supplier<TradeStore> tradeStoreFactory) {
+		this(shardCount, orderBookFactory, tradeStoreFactory, DEFAULT_QUEUE_CAPACITY, null);
+	}
+
+	/**
+	 *
+	 * Creates a registry.
+	 *
+	 * @param shardCount        the number of matching threads
+	 * @param orderBookFactory  creates the order book of a new symbol
+	 * @param tradeStoreFactory creates the trade store of a new symbol
+	 * @param queueCapacity     the number of orders that can wait on a shard
+	 *                          before {@link #submit(Order)} blocks
+	 * @param threadFactory     the factory creating the matching threads, or null
+	 *                          for threads named {@code shard-0} onwards
+	 */
+	public BookRegistry(int shardCount, Supplier<OrderBook> orderBookFactory, Supplier<TradeStore> tradeStoreFactory,
+			int queueCapacity, ThreadFactory threadFactory) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("A registry needs at least one shard");
+		}
+		this.orderBookFactory  = orderBookFactory;
+		this.tradeStoreFactory = tradeStoreFactory;
+		this.shards            = new Shard[shardCount];
+		this.symbolIds         = new HashMap<>();
+		this.books             = new SymbolBook[0];
+		for (int i = 0; i < shardCount; i++) {
+			Shard shard = new Shard(queueCapacity);
+			shard.thread = threadFactory != null ? threadFactory.newThread(shard::run)
+					: new Thread(shard::run, "shard-" + i);
+			shards[i]    = shard;
+		}
+		symbolId(DEFAULT_SYMBOL);
+	}
+
+	/**
+	 *
+	 * Returns the id of a symbol, registering it the first time it is seen. The
+	 * book and trade store of a symbol are only created once an order of the
+	 * symbol is matched, so the default symbol costs nothing unless some order
+	 * names no instrument.
+	 *
+	 * @param symbol the symbol
+	 * @return the id to put on the orders of the symbol
+	 */
+	public synchronized int symbolId(String symbol) {
+		Integer id = symbolIds.get(symbol);
+		if (id == null) {
+			id = books.length;
+			SymbolBook[] updated = Arrays.copyOf(books, id + 1);
+			updated[id] = new SymbolBook(symbol, Math.floorMod(symbol.hashCode(), shards.length));
+			books       = updated;
+			symbolIds.put(symbol, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns every symbol registered, in the order they were first seen.
+	 *
+	 * @return the symbols, the default one first
+	 */
+	public List<String> getSymbols() {
+		SymbolBook[] current = books;
+		List<String> symbols = new ArrayList<>(current.length);
+		for (SymbolBook book : current) {
+			symbols.add(book.symbol);
+		}
+		return symbols;
+	}
+
+	/**
+	 * Returns the shard matching the orders of a symbol.
+	 *
+	 * @param symbol a registered symbol
+	 * @return the index of the shard, from 0
+	 */
+	public int getShard(String symbol) {
+		return bookOf(symbol).shard;
+	}
+
+	/**
+	 * Returns the order book of a symbol.
+	 *
+	 * @param symbol a registered symbol
+	 * @return the order book
+	 */
+	public OrderBook getOrderBook(String symbol) {
+		return bookOf(symbol).matcher().getOrderBook();
+	}
+
+	/**
+	 * Returns the trade store of a symbol.
+	 *
+	 * @param symbol a registered symbol
+	 * @return the trade store
+	 */
+	public TradeStore getTradeStore(String symbol) {
+		return bookOf(symbol).matcher().getTradeStore();
+	}
+
+	private synchronized SymbolBook bookOf(String symbol) {
+		Integer id = symbolIds.get(symbol);
+		if (id == null) {
+			throw new IllegalArgumentException("Unknown symbol " + symbol);
+		}
+		return books[id];
+	}
+
+	/**
+	 * Starts the matching threads, after which orders can be submitted.
+	 */
+	public void start() {
+		accepting = true;
+		for (Shard shard : shards) {
+			shard.thread.start();
+		}
+	}
+
+	/**
+	 *
+	 * Submits an order to the shard of its symbol, waiting for space on the
+	 * shard's queue if it is full.
+	 *
+	 * @param order the order to match, carrying a registered symbol id
+	 * @throws MatchingEngineException if the registry is closed, a shard has
+	 *                                 failed or the calling thread is interrupted
+	 *                                 while waiting
+	 */
+	public void submit(Order order) throws MatchingEngineException {
+		if (failure != null) {
+			throw new MatchingEngineException("A shard of the book registry has stopped", failure);
+		}
+		if (!accepting) {
+			throw new MatchingEngineException("Book registry is not accepting orders");
+		}
+		try {
+			if (!enqueue(shards[books[order.getSymbolId()].shard], order)) {
+				throw new MatchingEngineException("A shard of the book registry has stopped", failure);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MatchingEngineException("Interrupted while submitting order " + order.getId(), e);
+		}
+	}
+
+	/**
+	 * Places an order on the queue of a shard, waiting for space as long as the
+	 * shard thread runs.
+	 *
+	 * @return false if the shard thread has stopped
+	 */
+	private static boolean enqueue(Shard shard, Order order) throws InterruptedException {
+		while (!shard.inbound.offer(order, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+			if (!shard.thread.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops accepting orders, waits for every shard to match the orders already
+	 * submitted and stops the matching threads.
+	 *
+	 * @throws MatchingEngineException if a shard stopped before it had matched
+	 *                                 every order, or the calling thread is
+	 *                                 interrupted while waiting
+	 */
+	@Override
+	public void close() {
+		if (!accepting) {
+			return;
+		}
+		accepting = false;
+		int unmatched = 0;
+		try {
+			for (Shard shard : shards) {
+				enqueue(shard, END_OF_INPUT);
+			}
+			for (Shard shard : shards) {
+				shard.thread.join();
+				// A shard that stopped early leaves its end of input behind the orders
+				shard.inbound.remove(END_OF_INPUT);
+				unmatched += shard.inbound.size();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MatchingEngineException("Interrupted while closing the book registry", e);
+		}
+		if (failure != null || unmatched > 0) {
+			throw new MatchingEngineException(
+					"The book registry stopped with " + unmatched + " orders left unmatched", failure);
+		}
+	}
+
+	/**
+	 * The book of one symbol and the shard it belongs to.
+	 */
+	private final class SymbolBook {
+
+		private final String                    symbol;
+		private final int                       shard;
+		private PriceTimePriorityMatchingEngine matcher;
+
+		SymbolBook(String symbol, int shard) {
+			this.symbol = symbol;
+			this.shard  = shard;
+		}
+
+		/**
+		 * Returns the matcher of the symbol, creating its book and trade store on
+		 * the first order, from the shard thread, or on the first read once the
+		 * registry is closed.
+		 */
+		PriceTimePriorityMatchingEngine matcher() {
+			if (matcher == null) {
+				matcher = new PriceTimePriorityMatchingEngine(orderBookFactory.get(), tradeStoreFactory.get(), false);
+			}
+			return matcher;
+		}
+	}
+
+	/**
+	 * A matching thread and its inbound queue.
+	 */
+	private final class Shard {
+
+		private final BlockingQueue<Order> inbound;
+		private Thread                     thread;
+
+		Shard(int queueCapacity) {
+			this.inbound = new ArrayBlockingQueue<>(queueCapacity);
+		}
+
+		void run() {
+			Order order = null;
+			try {
+				order = inbound.take();
+				while (order != END_OF_INPUT) {
+					books[order.getSymbolId()].matcher().match(order, IGNORE_TRADE);
+					order = inbound.take();
+				}
+			} catch (InterruptedException e) {
+				log.warn("Shard thread interrupted, {} orders left unmatched", inbound.size());
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException | Error e) {
+				// The book may be part way through the match, so nothing more is matched on it
+				failure = e;
+				log.error("Shard thread failed on order {}, {} orders left unmatched", order, inbound.size(), e);
+				if (e instanceof Error) {
+					throw (Error) e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package org.nts.exchange.verifier.core.tradestore;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
+/**
+ * An implementation of the {@link TradeStore} interface that stores trades
+ * column by column in growable primitive arrays: the aggressor and resting
+ * order id codes, the price, the quantity and the sequence number. Ids whose
+ * {@link OrderIdCodec} codes are hashes are kept in two more columns, only
+ * created once the first such id is stored.
+ *
+ * The aggregate queries scan those arrays directly instead of walking a list
+ * of trade objects. The store copies the trades it is given, so it can be used
+ * with pooled trades, and {@link #getTrades()} is a lazy view that builds a new
+ * {@link Trade} each time one is read. This implementation is not thread-safe.
+ */
+public class ColumnarTradeStore implements TradeStore {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private long[]           aggressorOrderIdCodes;
+	private long[]           restingOrderIdCodes;
+	private String[]         hashedAggressorOrderIds;
+	private String[]         hashedRestingOrderIds;
+	private int[]            prices;
+	private int[]            quantities;
+	private long[]           sequences;
+	private int              size;
+
+	/**
+	 * Creates an empty store.
+	 */
+	public ColumnarTradeStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty store with room for a number of trades before it grows.
+	 *
+	 * @param capacity the initial number of trades
+	 */
+	public ColumnarTradeStore(int capacity) {
+		int initial = Math.max(capacity, 1);
+		aggressorOrderIdCodes = new long[initial];
+		restingOrderIdCodes   = new long[initial];
+		prices                = new int[initial];
+		quantities            = new int[initial];
+		sequences             = new long[initial];
+	}
+
+	/**
+	 * Appends a trade to the columns.
+	 *
+	 * @param trade The trade to store.
+	 */
+	@Override
+	public void storeTrade(Trade trade) {
+		if (size == prices.length) {
+			grow(size + 1);
+		}
+		aggressorOrderIdCodes[size] = trade.getAggressorOrderIdCode();
+		restingOrderIdCodes[size]   = trade.getRestingOrderIdCode();
+		if (OrderIdCodec.isHashed(aggressorOrderIdCodes[size]) || OrderIdCodec.isHashed(restingOrderIdCodes[size])) {
+			if (hashedAggressorOrderIds == null) {
+				hashedAggressorOrderIds = new String[prices.length];
+				hashedRestingOrderIds   = new String[prices.length];
+			}
+			hashedAggressorOrderIds[size] = trade.getAggressorOrderId();
+			hashedRestingOrderIds[size]   = trade.getRestingOrderId();
+		}
+		prices[size]                = trade.getPrice();
+		quantities[size]            = trade.getQuantity();
+		sequences[size]             = trade.getSequence();
+		size++;
+	}
+
+	/**
+	 * Appends a list of trades to the columns.
+	 *
+	 * @param trades The trades to store.
+	 */
+	@Override
+	public void storeTrades(List<Trade> trades) {
+		if (size + trades.size() > prices.length) {
+			grow(size + trades.size());
+		}
+		for (Trade trade : trades) {
+			storeTrade(trade);
+		}
+	}
+
+	private void grow(int minimum) {
+		int capacity = Math.max(prices.length * 2, minimum);
+		aggressorOrderIdCodes = Arrays.copyOf(aggressorOrderIdCodes, capacity);
+		restingOrderIdCodes   = Arrays.copyOf(restingOrderIdCodes, capacity);
+		prices                = Arrays.copyOf(prices, capacity);
+		quantities            = Arrays.copyOf(quantities, capacity);
+		sequences             = Arrays.copyOf(sequences, capacity);
+		if (hashedAggressorOrderIds != null) {
+			hashedAggressorOrderIds = Arrays.copyOf(hashedAggressorOrderIds, capacity);
+			hashedRestingOrderIds   = Arrays.copyOf(hashedRestingOrderIds, capacity);
+		}
+	}
+
+	/**
+	 * Returns a read-only view of the stored trades. Each read builds a new trade,
+	 * and the view grows as trades are stored.
+	 *
+	 * @return a view of every stored trade
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		return new AbstractList<Trade>() {
+			@Override
+			public Trade get(int index) {
+				return getTrade(index);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Builds one of the stored trades.
+	 *
+	 * @param index the position of the trade, from 0
+	 * @return a new trade holding the columns at the position
+	 * @throws IndexOutOfBoundsException if there is no trade at the position
+	 */
+	public Trade getTrade(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Trade " + index + " of " + size);
+		}
+		Trade trade = hashedAggressorOrderIds != null && hashedAggressorOrderIds[index] != null
+				? new Trade(hashedAggressorOrderIds[index], hashedRestingOrderIds[index], prices[index],
+						quantities[index])
+				: new Trade(aggressorOrderIdCodes[index], restingOrderIdCodes[index], prices[index],
+						quantities[index]);
+		trade.setSequence(sequences[index]);
+		return trade;
+	}
+
+	/**
+	 * Returns the number of stored trades.
+	 *
+	 * @return the number of trades
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The store keeps no reference to the trades it is given.
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean retainsTrades() {
+		return false;
+	}
+
+	/**
+	 * Returns the total quantity traded.
+	 *
+	 * @return the sum of the quantities of every trade
+	 */
+	public long totalVolume() {
+		long volume = 0;
+		for (int i = 0; i < size; i++) {
+			volume += quantities[i];
+		}
+		return volume;
+	}
+
+	/**
+	 * Returns the volume-weighted average price of the trades. The notional is
+	 * summed as a double, as a long overflows after three trades at the largest
+	 * price and quantity.
+	 *
+	 * @return the average price weighted by quantity, or {@link Double#NaN} if
+	 *         nothing was traded
+	 */
+	public double vwap() {
+		long   volume   = 0;
+		double notional = 0;
+		for (int i = 0; i < size; i++) {
+			volume   += quantities[i];
+			notional += (double) prices[i] * quantities[i];
+		}
+		return volume == 0 ? Double.NaN : notional / volume;
+	}
+
+	/**
+	 * Returns the quantity traded at every price.
+	 *
+	 * @return the traded quantity keyed by price, in ascending price order
+	 */
+	public SortedMap<Integer, Long> volumeByPrice() {
+		SortedMap<Integer, Long> volumes = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			volumes.merge(prices[i], (long) quantities[i], Long::sum);
+		}
+		return volumes;
+	}
+
+	/**
+	 * Returns the trades whose sequence number lies in a range.
+	 *
+	 * @param fromSequence the lowest sequence number, inclusive
+	 * @param toSequence   the highest sequence number, inclusive
+	 * @return new trades for every match, in the order they were stored
+	 */
+	public List<Trade> tradesInSequenceRange(long fromSequence, long toSequence) {
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			if (sequences[i] >= fromSequence && sequences[i] <= toSequence) {
+				trades.add(getTrade(i));
+			}
+		}
+		return trades;
+	}
+}
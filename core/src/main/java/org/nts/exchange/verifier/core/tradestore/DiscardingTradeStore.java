@@ -0,0 +1,37 @@
+package org.nts.exchange.verifier.core.tradestore;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.nts.exchange.verifier.core.Trade;
+
+/**
+ * An implementation of the {@link TradeStore} interface that keeps nothing.
+ * It is meant for engines that deliver their trades to listeners only, for
+ * instance when trades are pooled and no copy of them should be made.
+ */
+public class DiscardingTradeStore implements TradeStore {
+
+	@Override
+	public void storeTrade(Trade trade) {
+	}
+
+	/**
+	 * Returns an empty list, as no trade is kept.
+	 *
+	 * @return an empty list
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void storeTrades(List<Trade> trades) {
+	}
+
+	@Override
+	public boolean retainsTrades() {
+		return false;
+	}
+}
@@ -0,0 +1,365 @@
+package org.nts.exchange.verifier.core.tradestore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * An implementation of the {@link TradeStore} interface that appends trades to
+ * memory-mapped journal segments on disk.
+ *
+ * Each trade is a fixed-width record of {@link #RECORD_SIZE} bytes holding the
+ * {@link OrderIdCodec} codes of its orders, its sequence number, its price and
+ * its quantity. Segments are files of a fixed number of records, named
+ * {@code trades-00000000.journal} onwards, and a new one is mapped when the
+ * current one fills up. Appending a trade is therefore a handful of writes to
+ * mapped memory, the trades live outside the heap, and as the operating system
+ * owns the mapped pages, every stored trade survives a crash of the process.
+ * {@link #flush()} forces them to the disk as well.
+ *
+ * A trade always has a positive quantity, so its quantity is written last and
+ * a zero quantity marks the end of the journal. Opening a directory that
+ * already holds segments carries on after the last complete record.
+ *
+ * An order id is written as its {@link OrderIdCodec} code when the code is not
+ * a hash, which makes it positive. An id that the codec can only hash is
+ * appended once, as its length and UTF-8 bytes, to {@code ids.journal} in the
+ * same directory, before any record that refers to it, and the record holds
+ * minus one minus its position in that file. The ids file is read back when
+ * the journal is opened, and every id in it is held while the journal is.
+ *
+ * The store copies the trades it is given, so it can be used with pooled
+ * trades. {@link #getTrades()} is a lazy view that decodes a record into a new
+ * {@link Trade} each time one is read. This implementation is not thread-safe.
+ */
+@Log4j2
+public class MappedTradeJournal implements TradeStore, Closeable {
+
+	/**
+	 * The size in bytes of one trade record.
+	 */
+	public static final int              RECORD_SIZE                 = 32;
+
+	/**
+	 * The number of records in a segment when none is specified.
+	 */
+	public static final int              DEFAULT_RECORDS_PER_SEGMENT = 1 << 21;
+
+	/**
+	 * The largest number of records in a segment, whose byte offsets must fit in
+	 * an int.
+	 */
+	public static final int              MAX_RECORDS_PER_SEGMENT     = Integer.MAX_VALUE / RECORD_SIZE;
+
+	private static final int             AGGRESSOR_OFFSET            = 0;
+	private static final int             RESTING_OFFSET              = 8;
+	private static final int             SEQUENCE_OFFSET             = 16;
+	private static final int             PRICE_OFFSET                = 24;
+	private static final int             QUANTITY_OFFSET             = 28;
+	private static final String          IDS_FILE                    = "ids.journal";
+
+	private final Path                   directory;
+	private final int                    recordsPerSegment;
+	private final List<MappedByteBuffer> segments;
+	// The ids of ids.journal, by position, and their positions
+	private final List<String>           hashedIds;
+	private final Map<String, Integer>   hashedIdPositions;
+	private final FileChannel            ids;
+	private MappedByteBuffer             current;
+	private int                          currentRecords;
+	private long                         tradeCount;
+
+	/**
+	 * Opens the journal in a directory with the default segment size, creating
+	 * the directory if needed.
+	 *
+	 * @param directory the directory holding the segments
+	 * @throws IOException if the directory or a segment can not be opened
+	 */
+	public MappedTradeJournal(Path directory) throws IOException {
+		this(directory, DEFAULT_RECORDS_PER_SEGMENT);
+	}
+
+	/**
+	 * Opens the journal in a directory, creating the directory if needed. An
+	 * existing journal must have been written with the same segment size.
+	 *
+	 * @param directory         the directory holding the segments
+	 * @param recordsPerSegment the number of trade records in a segment, from 1
+	 *                          to {@link #MAX_RECORDS_PER_SEGMENT}
+	 * @throws IOException              if the directory or a segment can not be
+	 *                                  opened
+	 * @throws IllegalArgumentException if the segment size is out of range
+	 */
+	public MappedTradeJournal(Path directory, int recordsPerSegment) throws IOException {
+		if (recordsPerSegment < 1 || recordsPerSegment > MAX_RECORDS_PER_SEGMENT) {
+			throw new IllegalArgumentException("Records per segment must be from 1 to " + MAX_RECORDS_PER_SEGMENT
+					+ " but was " + recordsPerSegment);
+		}
+		this.directory         = Files.createDirectories(directory);
+		this.recordsPerSegment = recordsPerSegment;
+		this.segments          = new ArrayList<>();
+		this.hashedIds         = new ArrayList<>();
+		this.hashedIdPositions = new HashMap<>();
+		this.ids               = FileChannel.open(directory.resolve(IDS_FILE), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		recoverIds();
+		recover();
+	}
+
+	/**
+	 * Reads the ids written by earlier runs, cutting off an id whose write was
+	 * interrupted, which no record can refer to.
+	 */
+	private void recoverIds() throws IOException {
+		ByteBuffer bytes = ids.map(MapMode.READ_ONLY, 0, ids.size());
+		while (bytes.remaining() >= Integer.BYTES) {
+			int length = bytes.getInt(bytes.position());
+			if (length < 0 || bytes.remaining() - Integer.BYTES < length) {
+				break;
+			}
+			bytes.position(bytes.position() + Integer.BYTES);
+			byte[] id = new byte[length];
+			bytes.get(id);
+			String hashedId = new String(id, StandardCharsets.UTF_8);
+			hashedIdPositions.put(hashedId, hashedIds.size());
+			hashedIds.add(hashedId);
+		}
+		ids.truncate(bytes.position());
+		ids.position(bytes.position());
+	}
+
+	/**
+	 * Maps every existing segment and finds the end of the journal in the last
+	 * one, or maps a first segment if there are none.
+	 */
+	private void recover() throws IOException {
+		for (Path segment = segmentPath(0); Files.exists(segment); segment = segmentPath(segments.size())) {
+			segments.add(map(segment));
+		}
+		if (segments.isEmpty()) {
+			roll();
+			return;
+		}
+		current        = segments.get(segments.size() - 1);
+		// Records are written in order, so the complete ones are a prefix
+		int low  = 0;
+		int high = recordsPerSegment;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (current.getInt(middle * RECORD_SIZE + QUANTITY_OFFSET) > 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		currentRecords = low;
+		tradeCount     = (long) (segments.size() - 1) * recordsPerSegment + currentRecords;
+		if (log.isDebugEnabled()) {
+			log.debug("Recovered {} trades from {} segments in {}", tradeCount, segments.size(), directory);
+		}
+	}
+
+	private Path segmentPath(int index) {
+		return directory.resolve(String.format("trades-%08d.journal", index));
+	}
+
+	private MappedByteBuffer map(Path segment) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			// The mapping stays valid once the channel is closed
+			return channel.map(MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+		}
+	}
+
+	private void roll() throws IOException {
+		if (current != null) {
+			current.force();
+		}
+		current        = map(segmentPath(segments.size()));
+		currentRecords = 0;
+		segments.add(current);
+	}
+
+	/**
+	 * Appends a trade to the journal.
+	 *
+	 * @param trade The trade to store.
+	 * @throws UncheckedIOException if a new segment can not be mapped
+	 */
+	@Override
+	public void storeTrade(Trade trade) {
+		if (currentRecords == recordsPerSegment) {
+			try {
+				roll();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Error mapping a new trade journal segment in " + directory, e);
+			}
+		}
+		long aggressor = trade.getAggressorOrderIdCode();
+		if (OrderIdCodec.isHashed(aggressor)) {
+			aggressor = toRecorded(trade.getAggressorOrderId());
+		}
+		long resting = trade.getRestingOrderIdCode();
+		if (OrderIdCodec.isHashed(resting)) {
+			resting = toRecorded(trade.getRestingOrderId());
+		}
+		int offset = currentRecords * RECORD_SIZE;
+		current.putLong(offset + AGGRESSOR_OFFSET, aggressor);
+		current.putLong(offset + RESTING_OFFSET, resting);
+		current.putLong(offset + SEQUENCE_OFFSET, trade.getSequence());
+		current.putInt(offset + PRICE_OFFSET, trade.getPrice());
+		current.putInt(offset + QUANTITY_OFFSET, trade.getQuantity());
+		currentRecords++;
+		tradeCount++;
+	}
+
+	/**
+	 * Returns the value recorded for an id with a hashed code, appending the id to
+	 * the ids file the first time it is met.
+	 */
+	private long toRecorded(String hashedId) {
+		Integer position = hashedIdPositions.get(hashedId);
+		if (position == null) {
+			byte[]     id    = hashedId.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES + id.length);
+			entry.putInt(id.length).put(id).flip();
+			try {
+				while (entry.hasRemaining()) {
+					ids.write(entry);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Error writing an order id to " + directory.resolve(IDS_FILE), e);
+			}
+			position = hashedIds.size();
+			hashedIdPositions.put(hashedId, position);
+			hashedIds.add(hashedId);
+		}
+		return -1L - position;
+	}
+
+	private String idOf(long recorded) {
+		return recorded >= 0 ? OrderIdCodec.decode(recorded) : hashedIds.get((int) (-1L - recorded));
+	}
+
+	/**
+	 * Appends a list of trades to the journal.
+	 *
+	 * @param trades The trades to store.
+	 */
+	@Override
+	public void storeTrades(List<Trade> trades) {
+		for (Trade trade : trades) {
+			storeTrade(trade);
+		}
+	}
+
+	/**
+	 * Returns a read-only view of the journal. Each read decodes the record into
+	 * a new trade, and the view grows as trades are appended.
+	 *
+	 * @return a view of every trade in the journal
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		return new AbstractList<Trade>() {
+			@Override
+			public Trade get(int index) {
+				return getTrade(index);
+			}
+
+			@Override
+			public int size() {
+				return (int) Math.min(tradeCount, Integer.MAX_VALUE);
+			}
+		};
+	}
+
+	/**
+	 * Reads one trade of the journal.
+	 *
+	 * @param index the position of the trade, from 0
+	 * @return a new trade holding the record
+	 * @throws IndexOutOfBoundsException if there is no trade at the position
+	 */
+	public Trade getTrade(long index) {
+		if (index < 0 || index >= tradeCount) {
+			throw new IndexOutOfBoundsException("Trade " + index + " of " + tradeCount);
+		}
+		MappedByteBuffer segment   = segments.get((int) (index / recordsPerSegment));
+		int              offset    = (int) (index % recordsPerSegment) * RECORD_SIZE;
+		long             aggressor = segment.getLong(offset + AGGRESSOR_OFFSET);
+		long             resting   = segment.getLong(offset + RESTING_OFFSET);
+		int              price     = segment.getInt(offset + PRICE_OFFSET);
+		int              quantity  = segment.getInt(offset + QUANTITY_OFFSET);
+		Trade            trade     = aggressor >= 0 && resting >= 0 ? new Trade(aggressor, resting, price, quantity)
+				: new Trade(idOf(aggressor), idOf(resting), price, quantity);
+		trade.setSequence(segment.getLong(offset + SEQUENCE_OFFSET));
+		return trade;
+	}
+
+	/**
+	 * Returns the number of trades in the journal.
+	 *
+	 * @return the number of trades
+	 */
+	public long getTradeCount() {
+		return tradeCount;
+	}
+
+	/**
+	 * The journal keeps no reference to the trades it is given.
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean retainsTrades() {
+		return false;
+	}
+
+	/**
+	 * Forces the current segment and the ids to the disk. Full segments were
+	 * forced when the journal rolled over them.
+	 *
+	 * @throws UncheckedIOException if the ids can not be forced
+	 */
+	public void flush() {
+		try {
+			ids.force(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error flushing " + directory.resolve(IDS_FILE), e);
+		}
+		current.force();
+	}
+
+	/**
+	 * Forces the journal to the disk and closes the ids file. The mappings are
+	 * released by the garbage collector once the journal is no longer
+	 * referenced.
+	 *
+	 * @throws IOException if the ids file can not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		ids.close();
+	}
+}
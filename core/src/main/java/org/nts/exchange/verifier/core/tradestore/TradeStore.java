@@ -28,4 +28,15 @@ public interface TradeStore {
 	List<Trade> getTrades();
 
 	void storeTrades(List<Trade> trades);
+
+	/**
+	 * 
+	 * Tells whether the store keeps references to the trades it is given. A store
+	 * that does must not be used with pooled trades, which are reused once stored.
+	 * 
+	 * @return true if stored trade instances are kept by the store
+	 */
+	default boolean retainsTrades() {
+		return true;
+	}
 }
\ No newline at end of file
@@ -88,4 +88,27 @@ class VerifierStartTest {
 		assertEquals(4, trades.size());
 	}
 
+	@Test
+	void testSweepStopsAtLimitPrice() throws InvalidQuantityException {
+		orderBook.addOrder(new Order("1", OrderSide.SELL, 100, 500));
+		orderBook.addOrder(new Order("2", OrderSide.SELL, 101, 500));
+		orderBook.addOrder(new Order("3", OrderSide.SELL, 102, 500));
+		orderBook.addOrder(new Order("4", OrderSide.SELL, 103, 500));
+
+		orderBook.addOrder(new Order("5", OrderSide.BUY, 102, 2000));
+
+		List<Trade> trades = tradeStore.getTrades();
+
+		assertEquals(3, trades.size());
+		assertEquals("1", trades.get(0).getRestingOrderId());
+		assertEquals(100, trades.get(0).getPrice());
+		assertEquals("3", trades.get(2).getRestingOrderId());
+		assertEquals(102, trades.get(2).getPrice());
+
+		// The unfilled remainder rests at its limit and the level above is untouched
+		assertEquals(102, orderBook.getBestBuyOrder().getPrice());
+		assertEquals(500, orderBook.getBestBuyOrder().getQuantity());
+		assertEquals("4", orderBook.getBestSellOrder().getId());
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package org.verifier.core.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.event.BookEvent;
+import org.nts.exchange.verifier.core.event.BookEventCursor;
+import org.nts.exchange.verifier.core.event.BookEventRing;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.DepthLevel;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class BookEventRingTest {
+
+	@Test
+	void events_shouldLetAConsumerRebuildTheDepth() {
+		PriceLadderOrderBook            orderBook      = new PriceLadderOrderBook();
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(orderBook,
+				new InMemoryTradeStore(), false);
+		BookEventRing                   ring           = new BookEventRing();
+		BookEventCursor                 cursor         = ring.newCursor();
+		matchingEngine.setEventRing(ring);
+
+		OrderFlowProfile                profile        = new OrderFlowProfile();
+		profile.setAggressiveRatio(0.3);
+		Map<Integer, Long>              buyDepth       = new TreeMap<>();
+		Map<Integer, Long>              sellDepth      = new TreeMap<>();
+		AtomicLong                      expected       = new AtomicLong();
+		AtomicLong                      trades         = new AtomicLong();
+		new OrderFlowGenerator(profile).stream(5_000).forEach(order -> {
+			matchingEngine.match(order);
+			int handled = cursor.poll((event, endOfBatch) -> {
+				assertEquals(expected.getAndIncrement(), event.getSequence());
+				assertEquals(endOfBatch, event.getSequence() == ring.getPublishedSequence());
+				if (event.getType() == BookEvent.Type.TRADE) {
+					trades.incrementAndGet();
+					return;
+				}
+				Map<Integer, Long> depth = event.getSide() == OrderSide.BUY ? buyDepth : sellDepth;
+				long               delta = event.getType() == BookEvent.Type.ADDED ? event.getQuantity()
+						: -event.getQuantity();
+				depth.merge(event.getPrice(), delta, Long::sum);
+				depth.remove(event.getPrice(), 0L);
+			});
+			assertTrue(handled > 0);
+		});
+
+		assertEquals(matchingEngine.getTradeStore().getTrades().size(), trades.get());
+		assertEquals(asMap(orderBook.getDepth(OrderSide.BUY, Integer.MAX_VALUE)), buyDepth);
+		assertEquals(asMap(orderBook.getDepth(OrderSide.SELL, Integer.MAX_VALUE)), sellDepth);
+		assertEquals(0, cursor.poll((event, endOfBatch) -> {
+		}));
+	}
+
+	private static Map<Integer, Long> asMap(List<DepthLevel> depth) {
+		return depth.stream().collect(Collectors.toMap(DepthLevel::getPrice, DepthLevel::getQuantity));
+	}
+
+	@Test
+	void slowConsumer_shouldHoldBackTheProducerWithoutLosingEvents() throws InterruptedException {
+		BookEventRing   ring       = new BookEventRing(8);
+		BookEventCursor slow       = ring.newCursor();
+		BookEventCursor fast       = ring.newCursor();
+		AtomicLong      slowSeen   = new AtomicLong();
+		AtomicLong      fastSeen   = new AtomicLong();
+		Thread          slowThread = new Thread(() -> readAll(slow, slowSeen, true));
+		Thread          fastThread = new Thread(() -> readAll(fast, fastSeen, false));
+		slowThread.start();
+		fastThread.start();
+
+		Order           order      = new Order("1", OrderSide.BUY, 100, 10);
+		for (int i = 0; i < 1_000; i++) {
+			order.setSequence(i);
+			ring.orderAdded(order);
+			if (i % 3 == 2) {
+				// Some cycles hold more than one event
+				ring.publish();
+			}
+		}
+		ring.publish();
+		slowThread.join(10_000);
+		fastThread.join(10_000);
+
+		assertEquals(1_000, slowSeen.get());
+		assertEquals(1_000, fastSeen.get());
+		assertThrows(IllegalArgumentException.class, () -> new BookEventRing(12));
+	}
+
+	private static void readAll(BookEventCursor cursor, AtomicLong seen, boolean slow) {
+		while (seen.get() < 1_000) {
+			cursor.poll((event, endOfBatch) -> {
+				// Every event is seen once, in sequence, and never overwritten first
+				assertEquals(seen.get(), event.getSequence());
+				assertEquals(seen.getAndIncrement(), event.getOrderSequence());
+			});
+			if (slow) {
+				Thread.yield();
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package org.verifier.core.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+class OrderFlowGeneratorTest {
+
+	@Test
+	void orders_shouldFollowTheProfile() {
+		OrderFlowProfile profile = OrderFlowProfile
+				.parse(Arrays.asList("mid=1000", "depth=10", "prices=uniform", "aggressive=0.25", "quantity=50",
+						"quantities=uniform", "seed=7"));
+		List<Order>      orders  = new OrderFlowGenerator(profile).stream(10_000).collect(Collectors.toList());
+
+		long             aggressive = 0;
+		for (Order order : orders) {
+			assertTrue(order.getPrice() >= 990 && order.getPrice() < 1010, order.toString());
+			assertTrue(order.getQuantity() >= 1 && order.getQuantity() <= 100, order.toString());
+			boolean below = order.getPrice() < 1000;
+			if (below != (order.getSide() == OrderSide.BUY)) {
+				aggressive++;
+			}
+		}
+		assertEquals("1", orders.get(0).getId());
+		assertEquals("10000", orders.get(9_999).getId());
+		assertTrue(aggressive > 2_000 && aggressive < 3_000, Long.toString(aggressive));
+	}
+
+	@Test
+	void write_shouldWriteTheOrdersOfTheSameSeed() throws IOException {
+		StringWriter file = new StringWriter();
+		new OrderFlowGenerator(new OrderFlowProfile()).write(file, 100);
+
+		String expected = new OrderFlowGenerator(new OrderFlowProfile()).stream(100)
+				.map(order -> order.getId() + (order.getSide() == OrderSide.BUY ? ",B," : ",S,") + order.getPrice()
+						+ "," + order.getQuantity() + "\n")
+				.collect(Collectors.joining());
+		assertEquals(expected, file.toString());
+		assertThrows(IllegalArgumentException.class, () -> OrderFlowProfile.parse(Arrays.asList("depth=0")).validate());
+		assertThrows(IllegalArgumentException.class, () -> OrderFlowProfile.parse(Arrays.asList("spread=1")));
+	}
+
+	@Test
+	void orders_shouldNeverExceedTheLargestQuantity() {
+		OrderFlowProfile profile = OrderFlowProfile
+				.parse(Arrays.asList("quantity=" + OrderFlowProfile.MAX_MEAN_QUANTITY, "quantities=exponential"));
+		profile.validate();
+		assertTrue(new OrderFlowGenerator(profile).stream(100_000)
+				.allMatch(order -> order.getQuantity() >= 1 && order.getQuantity() <= OrderFlowProfile.MAX_QUANTITY));
+
+		profile.setMeanQuantity(OrderFlowProfile.MAX_MEAN_QUANTITY + 1);
+		assertThrows(IllegalArgumentException.class, profile::validate);
+	}
+}
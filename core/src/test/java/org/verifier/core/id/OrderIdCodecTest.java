@@ -0,0 +1,70 @@
+package org.verifier.core.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.id.OrderIdCodec;
+
+class OrderIdCodecTest {
+
+	@Test
+	void encode_shouldRoundTripEveryPackedId() {
+		String[] ids = { "0", "10000", "999999999999999999", "0042", "-7", "abc-XYZ", "", "Z", "1234567890" };
+		for (String id : ids) {
+			long code = OrderIdCodec.encode(id);
+			assertFalse(OrderIdCodec.isHashed(code), id);
+			assertEquals(id, OrderIdCodec.decode(code), id);
+		}
+	}
+
+	@Test
+	void encode_shouldHashIdsThatCanNotBePacked() {
+		for (String id : new String[] { "12345678901234567890", "order#1", "an id with spaces",
+				"3f2504e0-4f89-11d3-9a0c-0305e82c3301" }) {
+			long code = OrderIdCodec.encode(id);
+			assertTrue(OrderIdCodec.isHashed(code), id);
+			assertEquals(code, OrderIdCodec.encode(new String(id.toCharArray())), id);
+			assertThrows(IllegalArgumentException.class, () -> OrderIdCodec.decode(code));
+		}
+	}
+
+	@Test
+	void decode_intoBytesShouldWriteTheId() {
+		byte[] target = new byte[64];
+		for (String id : new String[] { "0", "10000", "999999999999999999", "abc-XYZ" }) {
+			long code = OrderIdCodec.encode(id);
+			int  end  = OrderIdCodec.decode(code, target, 3);
+			assertEquals(id.length(), OrderIdCodec.decodedLength(code), id);
+			assertEquals(id, new String(target, 3, end - 3, StandardCharsets.US_ASCII), id);
+		}
+	}
+
+	@Test
+	void encode_shouldGiveDistinctIdsDistinctCodes() {
+		assertNotEquals(OrderIdCodec.encode("42"), OrderIdCodec.encode("042"));
+		assertNotEquals(OrderIdCodec.encode("a"), OrderIdCodec.encode("a0"));
+		assertNotEquals(OrderIdCodec.encode("1"), OrderIdCodec.encode("A"));
+		assertNotEquals(OrderIdCodec.encode("long-order-id-1"), OrderIdCodec.encode("long-order-id-2"));
+	}
+
+	@Test
+	void pack_shouldMatchEncodeOrLeaveTheIdToBeHashed() {
+		ByteBuffer bytes = ByteBuffer.wrap("x10000,abc-XYZ,long-order-id-1".getBytes(StandardCharsets.US_ASCII));
+		assertEquals(OrderIdCodec.encode("10000"), OrderIdCodec.pack(bytes, 1, 6));
+		assertEquals(OrderIdCodec.encode("abc-XYZ"), OrderIdCodec.pack(bytes, 7, 14));
+		assertEquals(OrderIdCodec.NO_CODE, OrderIdCodec.pack(bytes, 15, 30));
+	}
+
+	@Test
+	void decode_shouldRejectValuesThatAreNotCodes() {
+		assertThrows(IllegalArgumentException.class, () -> OrderIdCodec.decode(OrderIdCodec.NO_CODE));
+		assertThrows(IllegalArgumentException.class, () -> OrderIdCodec.decodedLength((3L << 62) | 5));
+	}
+}
@@ -0,0 +1,79 @@
+package org.verifier.core.marketdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.event.BookEventRing;
+import org.nts.exchange.verifier.core.generator.OrderFlowGenerator;
+import org.nts.exchange.verifier.core.generator.OrderFlowProfile;
+import org.nts.exchange.verifier.core.marketdata.ConflatingDepthPublisher;
+import org.nts.exchange.verifier.core.marketdata.DepthSnapshot;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+
+class ConflatingDepthPublisherTest {
+
+	@Test
+	void update_shouldKeepOnlyTheLatestSnapshot() {
+		PriceLadderOrderBook            orderBook      = new PriceLadderOrderBook();
+		orderBook.loadOrders(Arrays.asList(new Order("1", OrderSide.BUY, 99, 10), new Order("2", OrderSide.BUY, 98, 10)),
+				Arrays.asList(new Order("3", OrderSide.SELL, 101, 10)));
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(orderBook,
+				new DiscardingTradeStore(), false);
+		BookEventRing                   ring           = new BookEventRing(64);
+		matchingEngine.setEventRing(ring);
+		ConflatingDepthPublisher        publisher      = new ConflatingDepthPublisher(orderBook, ring, 1, 0,
+				TimeUnit.MILLISECONDS);
+
+		DepthSnapshot                   seeded         = publisher.getLatest();
+		assertEquals("-1 bids [10@99 (1)] asks [10@101 (1)]", seeded.toString());
+		assertEquals(2, seeded.getSpread());
+
+		// A reader that is not looking misses the states in between
+		matchingEngine.match(new Order("4", OrderSide.SELL, 100, 5));
+		matchingEngine.match(new Order("5", OrderSide.BUY, 101, 15));
+		publisher.update();
+		DepthSnapshot                   latest         = publisher.getLatestAfter(seeded.getSequence());
+		assertEquals(orderBook.getDepth(OrderSide.BUY, 1).toString(), latest.getBids().toString());
+		assertEquals(orderBook.getDepth(OrderSide.SELL, 1).toString(), latest.getAsks().toString());
+		assertEquals(ring.getPublishedSequence(), latest.getSequence());
+		assertEquals(99, latest.getBestBidPrice());
+		assertEquals(OrderBook.NO_PRICE, latest.getSpread());
+
+		publisher.update();
+		assertNull(publisher.getLatestAfter(latest.getSequence()));
+		publisher.close();
+	}
+
+	@Test
+	void interval_shouldLimitSnapshotsButPublishTheLastStateOnClose() {
+		PriceLadderOrderBook            orderBook      = new PriceLadderOrderBook();
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(orderBook,
+				new DiscardingTradeStore(), false);
+		BookEventRing                   ring           = new BookEventRing(1_024);
+		matchingEngine.setEventRing(ring);
+		ConflatingDepthPublisher        publisher      = new ConflatingDepthPublisher(orderBook, ring, 5, 1,
+				TimeUnit.HOURS);
+		publisher.start();
+
+		OrderFlowProfile                profile        = new OrderFlowProfile();
+		profile.setAggressiveRatio(0.3);
+		// Far more events than the ring holds, so matching only gets through if the
+		// publisher thread keeps reading between snapshots
+		new OrderFlowGenerator(profile).stream(20_000).forEach(matchingEngine::match);
+
+		publisher.close();
+		DepthSnapshot                   last           = publisher.getLatest();
+		assertEquals(ring.getPublishedSequence(), last.getSequence());
+		assertEquals(orderBook.getDepth(OrderSide.BUY, 5).toString(), last.getBids().toString());
+		assertEquals(orderBook.getDepth(OrderSide.SELL, 5).toString(), last.getAsks().toString());
+	}
+}
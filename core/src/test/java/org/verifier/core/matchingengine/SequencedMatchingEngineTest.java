@@ -0,0 +1,279 @@
+package org.verifier.core.matchingengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.MatchingEngineListener;
+import org.nts.exchange.verifier.core.matchingengine.SequencedMatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.exception.MatchingEngineException;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.pool.OrderPool;
+import org.nts.exchange.verifier.core.pool.TradePool;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+import org.nts.exchange.verifier.core.tradestore.TradeStore;
+
+class SequencedMatchingEngineTest {
+
+	private OrderBook               orderBook;
+	private TradeStore              tradeStore;
+	private SequencedMatchingEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		orderBook  = new PriceLadderOrderBook();
+		tradeStore = new InMemoryTradeStore();
+		engine     = new SequencedMatchingEngine(orderBook, tradeStore);
+	}
+
+	@Test
+	void submit_shouldMatchAndPublishInSequence() {
+		List<Trade> published = new ArrayList<>();
+		List<Order> processed = new ArrayList<>();
+		engine.addListener(new MatchingEngineListener() {
+			@Override
+			public void onTrade(Trade trade) {
+				published.add(trade);
+			}
+
+			@Override
+			public void onOrderProcessed(Order order) {
+				processed.add(order);
+			}
+		});
+
+		engine.start();
+		engine.submit(new Order("10000", OrderSide.BUY, 98, 25500));
+		engine.submit(new Order("10005", OrderSide.SELL, 105, 20000));
+		engine.submit(new Order("10001", OrderSide.SELL, 100, 500));
+		engine.submit(new Order("10002", OrderSide.SELL, 100, 10000));
+		engine.submit(new Order("10003", OrderSide.BUY, 99, 50000));
+		engine.submit(new Order("10004", OrderSide.SELL, 103, 100));
+		engine.submit(new Order("10006", OrderSide.BUY, 105, 16000));
+		engine.close();
+
+		assertEquals(4, published.size());
+		assertEquals(tradeStore.getTrades(), published);
+		assertEquals("10001", published.get(0).getRestingOrderId());
+		assertEquals("10005", published.get(3).getRestingOrderId());
+		assertEquals(5400, published.get(3).getQuantity());
+
+		assertEquals(7, processed.size());
+		assertEquals("10006", processed.get(6).getId());
+		assertEquals(0, processed.get(6).getQuantity());
+
+		assertEquals(14600, orderBook.getBestSellOrder().getQuantity());
+		assertEquals(2, orderBook.getBuyOrders().size());
+	}
+
+	@Test
+	void submit_fromConcurrentProducersShouldKeepBookConsistent() throws InterruptedException {
+		int             producers         = 4;
+		int             ordersPerProducer = 2_000;
+		ExecutorService executor          = Executors.newFixedThreadPool(producers);
+		CountDownLatch  done              = new CountDownLatch(producers);
+
+		engine.start();
+		for (int p = 0; p < producers; p++) {
+			OrderSide side = p % 2 == 0 ? OrderSide.BUY : OrderSide.SELL;
+			String    tag  = "p" + p + "-";
+			executor.execute(() -> {
+				for (int i = 0; i < ordersPerProducer; i++) {
+					engine.submit(new Order(tag + i, side, 100, 10));
+				}
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		engine.close();
+
+		// Every buy meets exactly one sell of the same size at the same price
+		assertEquals(producers / 2 * ordersPerProducer, tradeStore.getTrades().size());
+		assertTrue(orderBook.getOrders().isEmpty());
+	}
+
+	@Test
+	void submit_withPoolsShouldRecycleFilledOrdersAndTrades() {
+		OrderPool               orderPool = new OrderPool(16);
+		TradePool               tradePool = new TradePool(4);
+		List<String>            published = new ArrayList<>();
+		SequencedMatchingEngine pooled    = new SequencedMatchingEngine(orderBook, new DiscardingTradeStore(), 64,
+				Thread::new, orderPool, tradePool);
+		pooled.addListener(trade -> published.add(trade.toString()));
+
+		pooled.start();
+		for (int i = 0; i < 4; i++) {
+			pooled.submit(orderPool.acquire("s" + i, OrderSide.SELL, 100 + i, 10));
+		}
+		pooled.submit(orderPool.acquire("b1", OrderSide.BUY, 103, 40));
+		pooled.close();
+
+		assertEquals(4, published.size());
+		assertEquals("trade b1,s0,100,10", published.get(0));
+		assertEquals("trade b1,s3,103,10", published.get(3));
+		assertTrue(orderBook.getOrders().isEmpty());
+		// Every order and trade went back to its pool
+		assertEquals(16, orderPool.available());
+		assertEquals(4, tradePool.available());
+	}
+
+	@Test
+	void submit_shouldGivePriorityInOrderOfAcceptance() {
+		Order createdFirst  = new Order("1", OrderSide.SELL, 100, 10);
+		Order createdSecond = new Order("2", OrderSide.SELL, 100, 10);
+
+		engine.start();
+		engine.submit(createdSecond);
+		engine.submit(createdFirst);
+		engine.submit(new Order("3", OrderSide.BUY, 100, 10));
+		engine.close();
+
+		assertEquals("2", tradeStore.getTrades().get(0).getRestingOrderId());
+		assertEquals(3, tradeStore.getTrades().get(0).getSequence());
+		assertEquals(createdSecond.getSequence() + 1, createdFirst.getSequence());
+	}
+
+	@Test
+	void replay_shouldReproduceLiveRun() {
+		List<String> live = new ArrayList<>();
+		engine.addListener(trade -> live.add(trade + " seq:" + trade.getSequence()));
+		engine.start();
+		for (Order order : randomOrders(42, 5_000)) {
+			engine.submit(order);
+		}
+		engine.close();
+
+		OrderBook               replayBook = new PriceLadderOrderBook();
+		SequencedMatchingEngine replayer   = new SequencedMatchingEngine(replayBook, new InMemoryTradeStore());
+		List<String>            replayed   = new ArrayList<>();
+		replayer.addListener(trade -> replayed.add(trade + " seq:" + trade.getSequence()));
+		replayer.replay(randomOrders(42, 5_000));
+
+		assertTrue(live.size() > 0);
+		assertEquals(live, replayed);
+		assertEquals(orderBook.getBuyOrders().toString(), replayBook.getBuyOrders().toString());
+		assertEquals(orderBook.getSellOrders().toString(), replayBook.getSellOrders().toString());
+	}
+
+	@Test
+	void replay_whileRunningShouldFail() {
+		engine.start();
+		try {
+			assertThrows(MatchingEngineException.class, () -> engine.replay(new ArrayList<>()));
+		} finally {
+			engine.close();
+		}
+	}
+
+	@Test
+	void constructor_shouldRejectPooledTradesWithRetainingStore() {
+		assertThrows(IllegalArgumentException.class, () -> new SequencedMatchingEngine(orderBook, tradeStore, 64,
+				Thread::new, new OrderPool(1), new TradePool(1)));
+	}
+
+	@Test
+	void match_fromAnotherThreadWhileRunningShouldFail() {
+		engine.start();
+		try {
+			assertThrows(MatchingEngineException.class,
+					() -> engine.match(new Order("1", OrderSide.BUY, 100, 10)));
+		} finally {
+			engine.close();
+		}
+	}
+
+	@Test
+	void submit_afterCloseShouldFail() {
+		engine.start();
+		engine.close();
+		assertThrows(MatchingEngineException.class, () -> engine.submit(new Order("1", OrderSide.BUY, 100, 10)));
+	}
+
+	@Test
+	void submit_shouldStopMatchingWhenAListenerThrows() {
+		List<Order> processed = new ArrayList<>();
+		engine.addListener(new MatchingEngineListener() {
+			@Override
+			public void onTrade(Trade trade) {
+			}
+
+			@Override
+			public void onOrderAccepted(Order order) {
+				if (order.getId().equals("2")) {
+					throw new IllegalStateException("Listener failed");
+				}
+			}
+
+			@Override
+			public void onOrderProcessed(Order order) {
+				processed.add(order);
+			}
+		});
+
+		engine.start();
+		engine.submit(new Order("1", OrderSide.BUY, 100, 10));
+		engine.submit(new Order("2", OrderSide.BUY, 100, 10));
+		assertThrows(MatchingEngineException.class, () -> {
+			for (int i = 3; i <= 100; i++) {
+				engine.submit(new Order(Integer.toString(i), OrderSide.BUY, 100, 10));
+				Thread.sleep(1);
+			}
+		});
+		MatchingEngineException e = assertThrows(MatchingEngineException.class, engine::close);
+
+		assertTrue(e.getCause() instanceof IllegalStateException);
+		// Nothing is matched after the order that failed
+		assertEquals(1, processed.size());
+		assertEquals("1", processed.get(0).getId());
+	}
+
+	@Test
+	void submit_afterMatchingThreadDiedShouldFail() {
+		engine = new SequencedMatchingEngine(orderBook, tradeStore, 1, runnable -> new Thread(runnable, "dying-engine"));
+		engine.addListener(new MatchingEngineListener() {
+			@Override
+			public void onTrade(Trade trade) {
+			}
+
+			@Override
+			public void onOrderAccepted(Order order) {
+				throw new AssertionError("Matching thread killed");
+			}
+		});
+
+		engine.start();
+		assertThrows(MatchingEngineException.class, () -> {
+			for (int i = 1; i <= 10; i++) {
+				engine.submit(new Order(Integer.toString(i), OrderSide.BUY, 100, 10));
+			}
+		});
+		MatchingEngineException e = assertThrows(MatchingEngineException.class, engine::close);
+		assertTrue(e.getCause() instanceof AssertionError);
+	}
+
+	private static List<Order> randomOrders(long seed, int count) {
+		Random      random = new Random(seed);
+		List<Order> orders = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+			orders.add(new Order(Integer.toString(i + 1), side, 95 + random.nextInt(10), 1 + random.nextInt(100)));
+		}
+		return orders;
+	}
+}
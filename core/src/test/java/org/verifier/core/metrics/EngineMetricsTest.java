@@ -0,0 +1,84 @@
+package org.verifier.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.metrics.EngineMetrics;
+import org.nts.exchange.verifier.core.orderbook.InMemoryOrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderBook;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.DiscardingTradeStore;
+
+class EngineMetricsTest {
+
+	private static EngineMetrics matchSample(OrderBook orderBook) {
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(orderBook,
+				new DiscardingTradeStore(), false);
+		EngineMetrics                   metrics        = new EngineMetrics();
+		matchingEngine.setMetrics(metrics);
+
+		matchingEngine.match(new Order("1", OrderSide.SELL, 101, 100), trade -> {
+		});
+		matchingEngine.match(new Order("2", OrderSide.SELL, 101, 100), trade -> {
+		});
+		matchingEngine.match(new Order("3", OrderSide.SELL, 102, 100), trade -> {
+		});
+		matchingEngine.match(new Order("4", OrderSide.BUY, 99, 100), trade -> {
+		});
+		// Fills orders 1 and 2 and rests the last 50 at 102
+		matchingEngine.match(new Order("5", OrderSide.BUY, 102, 350), trade -> {
+		});
+		return metrics;
+	}
+
+	@Test
+	void match_shouldCountOrdersTradesAndDepth() {
+		for (OrderBook orderBook : new OrderBook[] { new PriceLadderOrderBook(), new InMemoryOrderBook() }) {
+			EngineMetrics metrics = matchSample(orderBook);
+
+			String        book    = orderBook.getClass().getSimpleName();
+			assertEquals(5, metrics.getOrdersAccepted(), book);
+			assertEquals(3, metrics.getTrades(), book);
+			assertEquals(1, metrics.getAggressorOrders(), book);
+			assertEquals(3.0, metrics.getFillsPerAggressor(), 1e-9, book);
+			assertEquals(2, metrics.getBuyOrderCount(), book);
+			assertEquals(2, metrics.getBuyLevelCount(), book);
+			assertEquals(0, metrics.getSellOrderCount(), book);
+			assertEquals(0, metrics.getSellLevelCount(), book);
+			assertEquals(5, metrics.getMatchLatency().getCount(), book);
+			// Orders 1 to 4 rest whole and order 5 rests its remainder
+			assertEquals(5, metrics.getAddOrderLatency().getCount(), book);
+			assertTrue(metrics.getMatchLatencyMax() >= metrics.getMatchLatencyP50(), book);
+
+			metrics.resetLatencies();
+			assertEquals(0, metrics.getMatchLatency().getCount(), book);
+		}
+	}
+
+	@Test
+	void register_shouldPublishTheMetricsOverJmx() throws Exception {
+		EngineMetrics metrics = matchSample(new PriceLadderOrderBook());
+		MBeanServer   server  = ManagementFactory.getPlatformMBeanServer();
+
+		ObjectName    name    = metrics.register("test");
+		try {
+			assertEquals(5L, server.getAttribute(name, "OrdersAccepted"));
+			assertEquals(2, server.getAttribute(name, "BuyOrderCount"));
+			assertThrows(IllegalStateException.class, () -> new EngineMetrics().register("test"));
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+}
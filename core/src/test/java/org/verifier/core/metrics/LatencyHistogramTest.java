@@ -0,0 +1,67 @@
+package org.verifier.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.metrics.LatencyHistogram;
+
+class LatencyHistogramTest {
+
+	@Test
+	void percentiles_shouldBeWithinTheResolutionOfTheBuckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 1_000_000; value++) {
+			histogram.record(value * 1_000);
+		}
+
+		assertEquals(1_000_000, histogram.getCount());
+		assertEquals(1_000, histogram.getMin());
+		assertEquals(1_000_000_000L, histogram.getMax());
+		assertEquals(500_000_500.0, histogram.getMean(), 1e-3);
+		assertWithinResolution(500_000_000L, histogram.getValueAtPercentile(50));
+		assertWithinResolution(990_000_000L, histogram.getValueAtPercentile(99));
+		assertWithinResolution(999_000_000L, histogram.getValueAtPercentile(99.9));
+		assertEquals(1_000_000_000L, histogram.getValueAtPercentile(100));
+	}
+
+	private static void assertWithinResolution(long expected, long actual) {
+		assertTrue(actual >= expected && actual <= expected + expected / 1024, actual + " is not " + expected);
+	}
+
+	@Test
+	void smallValues_shouldBeExactAndHistogramsAdded() {
+		LatencyHistogram first  = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		first.record(3);
+		first.record(7);
+		second.record(5);
+		second.record(Long.MAX_VALUE);
+
+		first.add(second);
+
+		assertEquals(4, first.getCount());
+		assertEquals(3, first.getValueAtPercentile(25));
+		assertEquals(5, first.getValueAtPercentile(50));
+		assertEquals(7, first.getValueAtPercentile(75));
+		assertEquals(Long.MAX_VALUE, first.getValueAtPercentile(100));
+		assertEquals("count=2 p50=3.0ns p99=7.0ns p99.9=7.0ns max=7.0ns",
+				summaryOf(3, 7));
+		assertThrows(IllegalArgumentException.class, () -> first.record(-1));
+
+		first.reset();
+		assertEquals(0, first.getCount());
+		assertEquals(0, first.getValueAtPercentile(99));
+	}
+
+	private static String summaryOf(long... values) {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value : values) {
+			histogram.record(value);
+		}
+		return histogram.summary(TimeUnit.NANOSECONDS);
+	}
+}
@@ -3,18 +3,23 @@ package org.verifier.core.orderbook;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
 import org.nts.exchange.verifier.core.orderbook.InMemoryOrderBook;
 import org.nts.exchange.verifier.core.orderbook.OrderBook;
 import org.nts.exchange.verifier.core.orderbook.OrderBookListener;
 import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
 
 class InMemoryOrderBookTest {
 
@@ -147,4 +152,68 @@ class InMemoryOrderBookTest {
 		assertTrue(buyOrders.contains(order2));
 		assertFalse(buyOrders.contains(order1));
 	}
+
+	@Test
+	void loadOrders_shouldBuildSidesInPriceTimePriority() {
+		List<Order> buys  = new ArrayList<>();
+		List<Order> sells = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			buys.add(new Order("B" + i, OrderSide.BUY, 1000 - i / 10, 10));
+			sells.add(new Order("S" + i, OrderSide.SELL, 2000 + i / 10, 10));
+		}
+		orderBook.loadOrders(buys, sells);
+
+		assertEquals(buys, orderBook.getBuyOrders());
+		assertEquals(sells, orderBook.getSellOrders());
+		assertEquals(buys.get(0), orderBook.getBestBuyOrder());
+		assertEquals(sells.get(0), orderBook.getBestSellOrder());
+		assertEquals(10, orderBook.getSellOrdersAtPrice(2000).size());
+	}
+
+	@Test
+	void getDepth_shouldAggregateLevels() throws Exception {
+		List<Order> buys  = new ArrayList<>();
+		List<Order> sells = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			buys.add(new Order("B" + i, OrderSide.BUY, 1000 - i / 10, 10));
+			sells.add(new Order("S" + i, OrderSide.SELL, 2000 + i / 10, 10));
+		}
+		orderBook.loadOrders(buys, sells);
+
+		assertEquals(1000, orderBook.getBestBidPrice());
+		assertEquals(2000, orderBook.getBestAskPrice());
+		assertEquals(1000, orderBook.getSpread());
+		assertEquals("[100@1000 (10), 100@999 (10)]", orderBook.getDepth(OrderSide.BUY, 2).toString());
+
+		orderBook.reduceOrder(sells.get(0), 4);
+		orderBook.removeOrder("S1");
+		orderBook.addOrder(new Order("S100", OrderSide.SELL, 1999, 5));
+		assertEquals(1999, orderBook.getBestAskPrice());
+		assertEquals("[5@1999 (1), 86@2000 (9), 100@2001 (10)]", orderBook.getDepth(OrderSide.SELL, 3).toString());
+		assertEquals(11, orderBook.getDepth(OrderSide.SELL, 20).size());
+	}
+
+	@Test
+	void getDepth_shouldFollowAggressorsFilledAfterResting() {
+		new PriceTimePriorityMatchingEngine(orderBook, new InMemoryTradeStore());
+		orderBook.addOrder(new Order("1", OrderSide.BUY, 10, 100));
+		orderBook.addOrder(new Order("2", OrderSide.BUY, 9, 20));
+		orderBook.addOrder(new Order("3", OrderSide.SELL, 9, 150));
+		assertEquals("[30@9 (1)]", orderBook.getDepth(OrderSide.SELL, 5).toString());
+		assertTrue(orderBook.getDepth(OrderSide.BUY, 5).isEmpty());
+
+		orderBook.addOrder(new Order("4", OrderSide.BUY, 12, 30));
+		orderBook.addOrder(new Order("5", OrderSide.SELL, 9, 7));
+		assertEquals("[7@9 (1)]", orderBook.getDepth(OrderSide.SELL, 5).toString());
+		assertEquals(1, orderBook.getLevelCount(OrderSide.SELL));
+	}
+
+	@Test
+	void loadOrders_shouldRejectCrossingOrders() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> orderBook.loadOrders(Arrays.asList(new Order("1", OrderSide.BUY, 105, 10)),
+						Arrays.asList(new Order("2", OrderSide.SELL, 100, 10))));
+		assertTrue(e.getMessage().startsWith("Orders cross"));
+		assertTrue(orderBook.getOrders().isEmpty());
+	}
 }
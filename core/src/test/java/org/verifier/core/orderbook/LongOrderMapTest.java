@@ -0,0 +1,75 @@
+package org.verifier.core.orderbook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.reflect.Field;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.orderbook.LongOrderMap;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+
+class LongOrderMapTest {
+
+	@Test
+	void put_shouldReplaceAndReturnPreviousOrder() {
+		LongOrderMap map    = new LongOrderMap();
+		Order        first  = new Order(1L, OrderSide.BUY, 100, 10);
+		Order        second = new Order(1L, OrderSide.BUY, 100, 20);
+
+		assertNull(map.put(first));
+		assertSame(first, map.put(second));
+		assertSame(second, map.get(1L));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void remove_shouldKeepRemainingOrdersReachableWhileGrowing() {
+		LongOrderMap map   = new LongOrderMap(8);
+		int          count = 10_000;
+		Order[]      all   = new Order[count];
+		for (int i = 0; i < count; i++) {
+			all[i] = new Order(i, OrderSide.SELL, 100, 1);
+			map.put(all[i]);
+		}
+		// Remove every other order so that probe runs are broken up everywhere
+		for (int i = 0; i < count; i += 2) {
+			assertSame(all[i], map.remove(i));
+		}
+		assertEquals(count / 2, map.size());
+		for (int i = 0; i < count; i++) {
+			if (i % 2 == 0) {
+				assertNull(map.get(i));
+			} else {
+				assertSame(all[i], map.get(i));
+			}
+		}
+		assertNull(map.remove(count));
+	}
+
+	@Test
+	void get_shouldTellApartIdsSharingAHashedCode() throws ReflectiveOperationException {
+		LongOrderMap map    = new LongOrderMap();
+		Order        first  = new Order("an-order-id-with-a-hash", OrderSide.BUY, 100, 10);
+		Order        second = new Order("an-order-id-with-a-hash", OrderSide.BUY, 100, 20);
+		Order        other  = new Order("another-order-id-with-a-hash", OrderSide.SELL, 101, 5);
+		// Forge a collision: the other id is given the same hashed code
+		Field        idCode = Order.class.getDeclaredField("idCode");
+		idCode.setAccessible(true);
+		idCode.setLong(other, first.getIdCode());
+
+		assertNull(map.put(first));
+		assertNull(map.put(other));
+		assertEquals(2, map.size());
+		assertSame(first, map.get(first.getIdCode(), "an-order-id-with-a-hash"));
+		assertSame(other, map.get(first.getIdCode(), "another-order-id-with-a-hash"));
+		assertNull(map.get(first.getIdCode()));
+
+		assertSame(first, map.put(second));
+		assertSame(other, map.remove(first.getIdCode(), "another-order-id-with-a-hash"));
+		assertSame(second, map.get(first.getIdCode(), "an-order-id-with-a-hash"));
+		assertEquals(1, map.size());
+	}
+}
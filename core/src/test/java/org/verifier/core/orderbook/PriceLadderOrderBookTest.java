@@ -0,0 +1,277 @@
+package org.verifier.core.orderbook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+import org.nts.exchange.verifier.core.tradestore.TradeStore;
+
+class PriceLadderOrderBookTest {
+
+	private PriceLadderOrderBook orderBook;
+
+	@BeforeEach
+	void setUp() {
+		orderBook = new PriceLadderOrderBook();
+	}
+
+	@Test
+	void emptyBook_shouldHaveNoBestPrices() {
+		assertEquals(PriceLadderOrderBook.NO_PRICE, orderBook.getBestBidPrice());
+		assertEquals(PriceLadderOrderBook.NO_PRICE, orderBook.getBestAskPrice());
+		assertTrue(orderBook.getOrders().isEmpty());
+	}
+
+	@Test
+	void addOrder_shouldMoveBestPrices() {
+		orderBook.addOrder(new Order("1", OrderSide.BUY, 98, 10));
+		orderBook.addOrder(new Order("2", OrderSide.BUY, 99, 10));
+		orderBook.addOrder(new Order("3", OrderSide.BUY, 97, 10));
+		orderBook.addOrder(new Order("4", OrderSide.SELL, 103, 10));
+		orderBook.addOrder(new Order("5", OrderSide.SELL, 101, 10));
+
+		assertEquals(99, orderBook.getBestBidPrice());
+		assertEquals(101, orderBook.getBestAskPrice());
+	}
+
+	@Test
+	void removeOrder_shouldMoveBestPricesToNextLevel() {
+		orderBook.addOrder(new Order("1", OrderSide.BUY, 95, 10));
+		orderBook.addOrder(new Order("2", OrderSide.BUY, 99, 10));
+		orderBook.addOrder(new Order("3", OrderSide.BUY, 99, 10));
+		orderBook.addOrder(new Order("4", OrderSide.SELL, 100, 10));
+		orderBook.addOrder(new Order("5", OrderSide.SELL, 110, 10));
+
+		orderBook.removeOrder("2");
+		assertEquals(99, orderBook.getBestBidPrice());
+
+		orderBook.removeOrder("3");
+		assertEquals(95, orderBook.getBestBidPrice());
+
+		orderBook.removeOrder("4");
+		assertEquals(110, orderBook.getBestAskPrice());
+
+		orderBook.removeOrder("1");
+		orderBook.removeOrder("5");
+		assertEquals(PriceLadderOrderBook.NO_PRICE, orderBook.getBestBidPrice());
+		assertEquals(PriceLadderOrderBook.NO_PRICE, orderBook.getBestAskPrice());
+	}
+
+	@Test
+	void getBuyOrders_shouldReturnPriceTimePriority() {
+		Order order1 = new Order("1", OrderSide.BUY, 99, 1000);
+		Order order2 = new Order("2", OrderSide.BUY, 98, 1200);
+		Order order3 = new Order("3", OrderSide.BUY, 99, 500);
+		orderBook.addOrder(order1);
+		orderBook.addOrder(order2);
+		orderBook.addOrder(order3);
+
+		List<Order> buyOrders = orderBook.getBuyOrders();
+		assertEquals(3, buyOrders.size());
+		assertEquals(order1, buyOrders.get(0));
+		assertEquals(order3, buyOrders.get(1));
+		assertEquals(order2, buyOrders.get(2));
+	}
+
+	@Test
+	void removeOrder_shouldKeepFifoOrderOfLevel() {
+		Order order1 = new Order("1", OrderSide.SELL, 100, 10);
+		Order order2 = new Order("2", OrderSide.SELL, 100, 20);
+		Order order3 = new Order("3", OrderSide.SELL, 100, 30);
+		Order order4 = new Order("4", OrderSide.SELL, 100, 40);
+		orderBook.addOrder(order1);
+		orderBook.addOrder(order2);
+		orderBook.addOrder(order3);
+		orderBook.addOrder(order4);
+
+		orderBook.removeOrder("2");
+		orderBook.removeOrder("4");
+
+		List<Order> sellOrders = orderBook.getSellOrders();
+		assertEquals(2, sellOrders.size());
+		assertEquals(order1, sellOrders.get(0));
+		assertEquals(order3, sellOrders.get(1));
+		assertNull(order2.getNext());
+		assertNull(order2.getPrevious());
+
+		orderBook.removeOrder("1");
+		orderBook.addOrder(order2);
+		sellOrders = orderBook.getSellOrders();
+		assertEquals(order3, sellOrders.get(0));
+		assertEquals(order2, sellOrders.get(1));
+	}
+
+	@Test
+	void addOrder_shouldReuseEmptiedLevel() {
+		orderBook.addOrder(new Order("1", OrderSide.BUY, 100, 10));
+		orderBook.removeOrder("1");
+		assertEquals(PriceLadderOrderBook.NO_PRICE, orderBook.getBestBidPrice());
+
+		orderBook.addOrder(new Order("2", OrderSide.BUY, 100, 10));
+		assertEquals(100, orderBook.getBestBidPrice());
+		assertEquals(1, orderBook.getBuyOrders().size());
+	}
+
+	@Test
+	void addOrder_shouldKeepLevelsWhileTheLadderGrowsBothWays() {
+		int[] prices = { 500_000, 500_040, 499_000, PriceLadderOrderBook.MAX_PRICE, 0, 500_001, 1 };
+		for (int i = 0; i < prices.length; i++) {
+			orderBook.addOrder(new Order("B" + i, OrderSide.BUY, prices[i], 10));
+			orderBook.addOrder(new Order("S" + i, OrderSide.SELL, prices[i], 10));
+		}
+
+		assertEquals(PriceLadderOrderBook.MAX_PRICE, orderBook.getBestBidPrice());
+		assertEquals(0, orderBook.getBestAskPrice());
+		assertEquals(Arrays.asList("S4", "S6", "S2", "S0", "S5", "S1", "S3"),
+				orderBook.getSellOrders().stream().map(Order::getId).collect(Collectors.toList()));
+		assertEquals(Arrays.asList("B3", "B1", "B5", "B0", "B2", "B6", "B4"),
+				orderBook.getBuyOrders().stream().map(Order::getId).collect(Collectors.toList()));
+
+		orderBook.removeOrder("S4");
+		orderBook.removeOrder("B3");
+		assertEquals(1, orderBook.getBestAskPrice());
+		assertEquals(500_040, orderBook.getBestBidPrice());
+	}
+
+	@Test
+	void getDepth_shouldFollowAddsFillsAndRemoves() {
+		PriceTimePriorityMatchingEngine matchingEngine = new PriceTimePriorityMatchingEngine(orderBook,
+				new InMemoryTradeStore(), false);
+		matchingEngine.match(new Order("1", OrderSide.SELL, 101, 100));
+		matchingEngine.match(new Order("2", OrderSide.SELL, 101, 50));
+		matchingEngine.match(new Order("3", OrderSide.SELL, 104, 70));
+		matchingEngine.match(new Order("4", OrderSide.BUY, 98, 30));
+
+		assertEquals(3, orderBook.getSpread());
+		assertEquals("[150@101 (2), 70@104 (1)]", orderBook.getDepth(OrderSide.SELL, 5).toString());
+
+		// Fills order 1 completely and order 2 partly
+		matchingEngine.match(new Order("5", OrderSide.BUY, 101, 120));
+		assertEquals("[30@101 (1)]", orderBook.getDepth(OrderSide.SELL, 1).toString());
+
+		orderBook.removeOrder("2");
+		assertEquals(6, orderBook.getSpread());
+		assertEquals("[70@104 (1)]", orderBook.getDepth(OrderSide.SELL, 5).toString());
+		assertEquals("[30@98 (1)]", orderBook.getDepth(OrderSide.BUY, 5).toString());
+
+		orderBook.removeOrder("4");
+		assertEquals(PriceLadderOrderBook.NO_PRICE, orderBook.getSpread());
+		assertTrue(orderBook.getDepth(OrderSide.BUY, 5).isEmpty());
+	}
+
+	@Test
+	void getDepth_shouldFollowAggressorsFilledAfterResting() {
+		// A subscribed engine matches each order once it rests in its level
+		new PriceTimePriorityMatchingEngine(orderBook, new InMemoryTradeStore());
+		orderBook.addOrder(new Order("1", OrderSide.SELL, 10, 100));
+		orderBook.addOrder(new Order("2", OrderSide.BUY, 10, 150));
+		assertEquals("[50@10 (1)]", orderBook.getDepth(OrderSide.BUY, 5).toString());
+		assertTrue(orderBook.getDepth(OrderSide.SELL, 5).isEmpty());
+
+		orderBook.addOrder(new Order("3", OrderSide.SELL, 10, 50));
+		assertTrue(orderBook.getDepth(OrderSide.BUY, 5).isEmpty());
+		assertTrue(orderBook.getDepth(OrderSide.SELL, 5).isEmpty());
+
+		// The emptied level starts again from nothing
+		orderBook.addOrder(new Order("4", OrderSide.BUY, 10, 7));
+		assertEquals("[7@10 (1)]", orderBook.getDepth(OrderSide.BUY, 5).toString());
+	}
+
+	@Test
+	void getSellOrdersAtPrice_shouldReturnOnlyEligibleLevels() {
+		orderBook.addOrder(new Order("1", OrderSide.SELL, 105, 10));
+		orderBook.addOrder(new Order("2", OrderSide.SELL, 100, 10));
+		orderBook.addOrder(new Order("3", OrderSide.SELL, 103, 10));
+
+		List<Order> sellOrders = orderBook.getSellOrdersAtPrice(103);
+		assertEquals(2, sellOrders.size());
+		assertEquals("2", sellOrders.get(0).getId());
+		assertEquals("3", sellOrders.get(1).getId());
+	}
+
+	@Test
+	void addOrder_shouldRejectPriceOutsideLadder() {
+		orderBook.addOrder(new Order("1", OrderSide.BUY, PriceLadderOrderBook.MAX_PRICE + 1, 10));
+		orderBook.addOrder(new Order("2", OrderSide.SELL, -1, 10));
+		orderBook.addOrder(new Order("3", OrderSide.SELL, PriceLadderOrderBook.MAX_PRICE, 10));
+
+		assertTrue(orderBook.getBuyOrders().isEmpty());
+		assertEquals(1, orderBook.getSellOrders().size());
+		assertEquals(PriceLadderOrderBook.MAX_PRICE, orderBook.getBestAskPrice());
+	}
+
+	@Test
+	void matchingExample_shouldLeaveSameBookAsInMemoryOrderBook() {
+		TradeStore tradeStore = new InMemoryTradeStore();
+		new PriceTimePriorityMatchingEngine(orderBook, tradeStore);
+
+		orderBook.addOrder(new Order("1", OrderSide.BUY, 99, 1000));
+		orderBook.addOrder(new Order("2", OrderSide.BUY, 99, 500));
+		orderBook.addOrder(new Order("3", OrderSide.BUY, 98, 1200));
+		orderBook.addOrder(new Order("4", OrderSide.SELL, 101, 2000));
+		orderBook.addOrder(new Order("5", OrderSide.SELL, 95, 2000));
+
+		List<Trade> trades = tradeStore.getTrades();
+		assertEquals(3, trades.size());
+		assertEquals("1", trades.get(0).getRestingOrderId());
+		assertEquals("2", trades.get(1).getRestingOrderId());
+		assertEquals("3", trades.get(2).getRestingOrderId());
+
+		assertEquals(98, orderBook.getBestBidPrice());
+		assertEquals(700, orderBook.getBuyOrders().get(0).getQuantity());
+		assertEquals(101, orderBook.getBestAskPrice());
+		assertEquals(1, orderBook.getSellOrders().size());
+	}
+
+	@Test
+	void loadOrders_shouldBuildLevelsAndBestPrices() {
+		Order buy1  = new Order("1", OrderSide.BUY, 99, 10);
+		Order buy2  = new Order("2", OrderSide.BUY, 99, 20);
+		Order buy3  = new Order("3", OrderSide.BUY, 97, 30);
+		Order sell1 = new Order("4", OrderSide.SELL, 101, 40);
+		sell1.setSequence(42);
+		orderBook.loadOrders(Arrays.asList(buy1, buy2, buy3), Arrays.asList(sell1));
+
+		assertEquals(99, orderBook.getBestBidPrice());
+		assertEquals(101, orderBook.getBestAskPrice());
+		assertEquals(Arrays.asList(buy1, buy2, buy3), orderBook.getBuyOrders());
+		assertEquals(42, sell1.getSequence());
+		assertEquals(43, buy1.getSequence());
+
+		orderBook.removeOrder("1");
+		orderBook.removeOrder("2");
+		assertEquals(97, orderBook.getBestBidPrice());
+	}
+
+	@Test
+	void loadOrders_shouldRejectCrossingOrOutOfPriorityInput() {
+		List<Order> buys = Arrays.asList(new Order("1", OrderSide.BUY, 101, 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> orderBook.loadOrders(buys, Arrays.asList(new Order("2", OrderSide.SELL, 101, 10))));
+		assertThrows(IllegalArgumentException.class, () -> orderBook.loadOrders(
+				Arrays.asList(new Order("1", OrderSide.BUY, 99, 10), new Order("2", OrderSide.BUY, 100, 10)),
+				Collections.emptyList()));
+		assertThrows(IllegalArgumentException.class, () -> orderBook.loadOrders(
+				Arrays.asList(new Order("1", OrderSide.BUY, 99, 10), new Order("1", OrderSide.BUY, 98, 10)),
+				Collections.emptyList()));
+		assertTrue(orderBook.getOrders().isEmpty());
+		assertNull(orderBook.getBestBuyOrder());
+
+		orderBook.loadOrders(buys, Collections.emptyList());
+		assertThrows(IllegalStateException.class, () -> orderBook.loadOrders(buys, Collections.emptyList()));
+	}
+}
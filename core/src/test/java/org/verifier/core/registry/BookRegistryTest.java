@@ -0,0 +1,116 @@
+package org.verifier.core.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Order;
+import org.nts.exchange.verifier.core.matchingengine.PriceTimePriorityMatchingEngine;
+import org.nts.exchange.verifier.core.matchingengine.exception.MatchingEngineException;
+import org.nts.exchange.verifier.core.orderbook.OrderSide;
+import org.nts.exchange.verifier.core.orderbook.PriceLadderOrderBook;
+import org.nts.exchange.verifier.core.registry.BookRegistry;
+import org.nts.exchange.verifier.core.tradestore.InMemoryTradeStore;
+
+class BookRegistryTest {
+
+	private static final String[] SYMBOLS = { "AAPL", "MSFT", "GOOG", "AMZN", "TSLA", "NVDA", "META" };
+
+	private static List<Order> randomOrders(String symbol, int count, long seed) {
+		Random      random = new Random(seed);
+		List<Order> orders = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			orders.add(new Order(symbol + "-" + i, random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL,
+					95 + random.nextInt(10), 1 + random.nextInt(500)));
+		}
+		return orders;
+	}
+
+	private static List<String> toStrings(List<?> values) {
+		return values.stream().map(Object::toString).collect(Collectors.toList());
+	}
+
+	@Test
+	void submit_shouldMatchEachSymbolAsASingleThreadedEngineWould() {
+		BookRegistry registry = new BookRegistry(3, PriceLadderOrderBook::new, InMemoryTradeStore::new, 8, null);
+		List<List<Order>> inputs = new ArrayList<>();
+		for (int s = 0; s < SYMBOLS.length; s++) {
+			inputs.add(randomOrders(SYMBOLS[s], 2_000, s));
+		}
+
+		registry.start();
+		// Interleave the symbols, as a mixed input file would
+		for (int i = 0; i < 2_000; i++) {
+			for (int s = 0; s < SYMBOLS.length; s++) {
+				Order original = inputs.get(s).get(i);
+				Order order    = new Order(original.getIdCode(), original.getSide(), original.getPrice(),
+						original.getQuantity());
+				order.setSymbolId(registry.symbolId(SYMBOLS[s]));
+				registry.submit(order);
+			}
+		}
+		registry.close();
+
+		for (int s = 0; s < SYMBOLS.length; s++) {
+			PriceTimePriorityMatchingEngine expected = new PriceTimePriorityMatchingEngine(new PriceLadderOrderBook(),
+					new InMemoryTradeStore(), false);
+			for (Order order : inputs.get(s)) {
+				expected.match(order, trade -> {
+				});
+			}
+			assertEquals(toStrings(expected.getTradeStore().getTrades()),
+					toStrings(registry.getTradeStore(SYMBOLS[s]).getTrades()), SYMBOLS[s]);
+			assertEquals(toStrings(expected.getOrderBook().getOrders()),
+					toStrings(registry.getOrderBook(SYMBOLS[s]).getOrders()), SYMBOLS[s]);
+		}
+	}
+
+	@Test
+	void symbolId_shouldBeStableAndShardedByName() {
+		BookRegistry registry = new BookRegistry(4, PriceLadderOrderBook::new, InMemoryTradeStore::new);
+
+		assertEquals(Order.DEFAULT_SYMBOL_ID, registry.symbolId(BookRegistry.DEFAULT_SYMBOL));
+		int aapl = registry.symbolId("AAPL");
+		int msft = registry.symbolId("MSFT");
+		assertNotEquals(aapl, msft);
+		assertEquals(aapl, registry.symbolId("AAPL"));
+		assertEquals(Math.floorMod("MSFT".hashCode(), 4), registry.getShard("MSFT"));
+		assertEquals(3, registry.getSymbols().size());
+		assertThrows(IllegalArgumentException.class, () -> registry.getOrderBook("IBM"));
+		assertThrows(MatchingEngineException.class, () -> registry.submit(new Order("1", OrderSide.BUY, 1, 1)));
+	}
+
+	@Test
+	void submit_afterAShardFailedShouldFail() {
+		AtomicInteger books    = new AtomicInteger();
+		BookRegistry  registry = new BookRegistry(1, () -> {
+			// The book of the second symbol matched can not be created
+			if (books.incrementAndGet() == 2) {
+				throw new IllegalStateException("No book");
+			}
+			return new PriceLadderOrderBook();
+		}, InMemoryTradeStore::new, 1, null);
+		int aapl = registry.symbolId("AAPL");
+		int msft = registry.symbolId("MSFT");
+
+		registry.start();
+		assertThrows(MatchingEngineException.class, () -> {
+			for (int i = 0; i < 100; i++) {
+				Order order = new Order(Integer.toString(i), OrderSide.BUY, 100, 10);
+				order.setSymbolId(i == 0 ? aapl : msft);
+				registry.submit(order);
+			}
+		});
+		MatchingEngineException e = assertThrows(MatchingEngineException.class, registry::close);
+		assertTrue(e.getCause() instanceof IllegalStateException);
+		assertEquals(1, registry.getOrderBook("AAPL").getBuyOrders().size());
+	}
+}
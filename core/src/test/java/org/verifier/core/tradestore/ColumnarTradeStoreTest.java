@@ -0,0 +1,73 @@
+package org.verifier.core.tradestore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.tradestore.ColumnarTradeStore;
+
+class ColumnarTradeStoreTest {
+
+	private ColumnarTradeStore tradeStore;
+
+	@BeforeEach
+	void setUp() {
+		// A capacity of one makes every store grow the columns
+		tradeStore = new ColumnarTradeStore(1);
+	}
+
+	private static Trade trade(String aggressor, String resting, int price, int quantity, long sequence) {
+		Trade trade = new Trade(aggressor, resting, price, quantity);
+		trade.setSequence(sequence);
+		return trade;
+	}
+
+	@Test
+	void storeTrades_shouldReadBackEveryColumn() {
+		tradeStore.storeTrade(trade("ABC", "CBA", 100, 50, 3));
+		tradeStore.storeTrades(Arrays.asList(trade("XYZ", "ZYX", 50, 75, 4), trade("10", "2", 55, 5, 6)));
+
+		List<Trade> trades = tradeStore.getTrades();
+		assertEquals(3, trades.size());
+		assertEquals("trade ABC,CBA,100,50", trades.get(0).toString());
+		assertEquals("trade XYZ,ZYX,50,75", trades.get(1).toString());
+		assertEquals("trade 10,2,55,5", trades.get(2).toString());
+		assertEquals(6, trades.get(2).getSequence());
+	}
+
+	@Test
+	void aggregates_shouldBeComputedOverTheColumns() {
+		assertTrue(Double.isNaN(tradeStore.vwap()));
+
+		tradeStore.storeTrade(trade("1", "2", 100, 10, 1));
+		tradeStore.storeTrade(trade("3", "2", 100, 20, 2));
+		tradeStore.storeTrade(trade("4", "5", 110, 30, 5));
+
+		assertEquals(60, tradeStore.totalVolume());
+		assertEquals((100.0 * 30 + 110.0 * 30) / 60, tradeStore.vwap(), 1e-9);
+		SortedMap<Integer, Long> volumes = tradeStore.volumeByPrice();
+		assertEquals(2, volumes.size());
+		assertEquals(30L, volumes.get(100));
+		assertEquals(30L, volumes.get(110));
+
+		List<Trade> range = tradeStore.tradesInSequenceRange(2, 5);
+		assertEquals(2, range.size());
+		assertEquals("trade 3,2,100,20", range.get(0).toString());
+		assertEquals("trade 4,5,110,30", range.get(1).toString());
+	}
+
+	@Test
+	void vwap_shouldNotOverflowAtTheLargestPricesAndQuantities() {
+		for (int i = 1; i <= 3; i++) {
+			tradeStore.storeTrade(trade("1", "2", Integer.MAX_VALUE, Integer.MAX_VALUE, i));
+		}
+
+		assertEquals(Integer.MAX_VALUE, tradeStore.vwap(), 1e-3);
+	}
+}
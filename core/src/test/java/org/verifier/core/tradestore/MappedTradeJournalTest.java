@@ -0,0 +1,95 @@
+package org.verifier.core.tradestore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nts.exchange.verifier.core.Trade;
+import org.nts.exchange.verifier.core.tradestore.MappedTradeJournal;
+
+class MappedTradeJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void storeTrade_shouldRollOverSegmentsAndReadBack() throws IOException {
+		try (MappedTradeJournal journal = new MappedTradeJournal(directory, 4)) {
+			// A single trade is reused, as a pooled trade would be
+			Trade trade = new Trade(0L, 0L, 0, 0);
+			for (int i = 0; i < 10; i++) {
+				trade.init(100 + i, i, 50 + i, 10 + i);
+				trade.setSequence(i + 1);
+				journal.storeTrade(trade);
+			}
+
+			assertFalse(journal.retainsTrades());
+			assertTrue(Files.exists(directory.resolve("trades-00000002.journal")));
+			List<Trade> trades = journal.getTrades();
+			assertEquals(10, trades.size());
+			for (int i = 0; i < 10; i++) {
+				assertEquals(new Trade(Integer.toString(100 + i), Integer.toString(i), 50 + i, 10 + i).toString(),
+						trades.get(i).toString());
+				assertEquals(i + 1, trades.get(i).getSequence());
+			}
+			assertThrows(IndexOutOfBoundsException.class, () -> trades.get(10));
+		}
+	}
+
+	@Test
+	void open_shouldCarryOnAfterExistingTrades() throws IOException {
+		try (MappedTradeJournal journal = new MappedTradeJournal(directory, 4)) {
+			for (int i = 0; i < 6; i++) {
+				journal.storeTrade(new Trade("ABC", "CBA", 100, i + 1));
+			}
+		}
+
+		try (MappedTradeJournal journal = new MappedTradeJournal(directory, 4)) {
+			assertEquals(6, journal.getTradeCount());
+			journal.storeTrade(new Trade("XYZ", "ZYX", 50, 75));
+
+			List<Trade> trades = journal.getTrades();
+			assertEquals(7, trades.size());
+			assertEquals("trade ABC,CBA,100,6", trades.get(5).toString());
+			assertEquals("trade XYZ,ZYX,50,75", trades.get(6).toString());
+		}
+	}
+
+	@Test
+	void storeTrade_shouldWriteIdsThatCanNotBePackedOnce() throws IOException {
+		String longId = "AN-ORDER-ID-TOO-LONG-TO-PACK";
+		try (MappedTradeJournal journal = new MappedTradeJournal(directory, 4)) {
+			journal.storeTrade(new Trade(longId, "CBA", 100, 1));
+			journal.storeTrade(new Trade("ABC", longId, 100, 2));
+		}
+		// Its length and its bytes, once
+		assertEquals(Integer.BYTES + longId.length(), Files.size(directory.resolve("ids.journal")));
+
+		try (MappedTradeJournal journal = new MappedTradeJournal(directory, 4)) {
+			journal.storeTrade(new Trade(longId, "XYZ", 50, 3));
+
+			List<Trade> trades = journal.getTrades();
+			assertEquals("trade " + longId + ",CBA,100,1", trades.get(0).toString());
+			assertEquals("trade ABC," + longId + ",100,2", trades.get(1).toString());
+			assertEquals("trade " + longId + ",XYZ,50,3", trades.get(2).toString());
+		}
+		assertEquals(Integer.BYTES + longId.length(), Files.size(directory.resolve("ids.journal")));
+	}
+
+	@Test
+	void open_shouldRejectSegmentSizesOutOfRange() {
+		assertThrows(IllegalArgumentException.class, () -> new MappedTradeJournal(directory, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> new MappedTradeJournal(directory, MappedTradeJournal.MAX_RECORDS_PER_SEGMENT + 1));
+		assertThrows(IllegalArgumentException.class, () -> new MappedTradeJournal(directory, 1 << 26));
+		assertFalse(Files.exists(directory.resolve("ids.journal")));
+	}
+}